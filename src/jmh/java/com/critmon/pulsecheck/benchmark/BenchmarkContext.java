@@ -0,0 +1,117 @@
+package com.critmon.pulsecheck.benchmark;
+
+import com.critmon.pulsecheck.PulseCheckApiApplication;
+import com.critmon.pulsecheck.dto.BatchMonitorCreateRequest;
+import com.critmon.pulsecheck.dto.BatchMonitorResponse;
+import com.critmon.pulsecheck.dto.MonitorResponse;
+import com.critmon.pulsecheck.service.MonitorServiceInterface;
+import com.critmon.pulsecheck.service.MonitorStateStore;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The application started against a private in-memory H2 database, without a web server and with
+ * a mail sender that drops every message, so benchmarks measure the service paths only.
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    /** Long enough that no seeded monitor expires while a benchmark runs. */
+    static final int SEEDED_TIMEOUT_SECONDS = 86_400;
+    private static final int SEED_CHUNK_SIZE = 10_000;
+
+    private final ConfigurableApplicationContext context;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static BenchmarkContext start(String... properties) {
+        List<String> all = new ArrayList<>(List.of(
+                "spring.profiles.active=h2",
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID()
+                        + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "SMTP_HOST=localhost",
+                "SMTP_PORT=25",
+                "SMTP_USERNAME=",
+                "SMTP_PASSWORD=",
+                "logging.level.root=WARN",
+                "logging.level.com.critmon.pulsecheck=WARN",
+                "logging.level.org.springframework.web=WARN",
+                "logging.level.org.springframework.cache=WARN",
+                // Only the benchmarks themselves sweep
+                "pulse-check.expiry.reconcile-interval-ms=86400000"));
+        all.addAll(List.of(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                PulseCheckApiApplication.class, NoOpMailConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(all.toArray(new String[0]))
+                .run();
+        return new BenchmarkContext(context);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates {@code count} monitors through the batch path and waits until they are flushed.
+     *
+     * @return the IDs of the created monitors
+     */
+    public List<String> seed(int count, AtomicLong deviceSequence) {
+        MonitorServiceInterface monitorService = bean(MonitorServiceInterface.class);
+        List<String> ids = new ArrayList<>(count);
+        for (int from = 0; from < count; from += SEED_CHUNK_SIZE) {
+            BatchMonitorResponse response = monitorService.createMonitorsBatch(
+                    batchRequest(Math.min(SEED_CHUNK_SIZE, count - from), deviceSequence));
+            for (MonitorResponse created : response.getCreatedMonitors()) {
+                ids.add(created.getId());
+            }
+        }
+        bean(MonitorStateStore.class).flush();
+        return ids;
+    }
+
+    public static BatchMonitorCreateRequest batchRequest(int size, AtomicLong deviceSequence) {
+        List<BatchMonitorCreateRequest.DeviceRequest> devices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long n = deviceSequence.incrementAndGet();
+            BatchMonitorCreateRequest.DeviceRequest device = new BatchMonitorCreateRequest.DeviceRequest();
+            device.setId("device-" + n);
+            device.setTimeout(SEEDED_TIMEOUT_SECONDS);
+            // A few hundred recipients, like a fleet shared between on-call teams
+            device.setAlert_email("team-" + (n % 500) + "@example.com");
+            devices.add(device);
+        }
+        BatchMonitorCreateRequest request = new BatchMonitorCreateRequest();
+        request.setDevices(devices);
+        return request;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    static class NoOpMailConfig {
+
+        @Bean
+        public JavaMailSender javaMailSender() {
+            return new JavaMailSenderImpl() {
+                @Override
+                protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.critmon.pulsecheck.benchmark;
+
+import com.critmon.pulsecheck.service.EmailTemplateRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders {@code monitor-expired.html} for one alert with the precompiled
+ * {@link EmailTemplateRenderer} and with the chain of {@link String#replace} calls it replaced,
+ * both on a template already in memory and, as the old code did per email, after reading the
+ * template from the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailTemplateBenchmark {
+
+    private static final String TEMPLATE = "monitor-expired.html";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private EmailTemplateRenderer renderer;
+    private String source;
+    private String deviceId;
+    private String monitorId;
+    private LocalDateTime lastHeartbeat;
+    private LocalDateTime expiresAt;
+    private int timeout;
+
+    @Setup
+    public void setUp() throws IOException {
+        renderer = new EmailTemplateRenderer(Clock.systemDefaultZone(), false);
+        renderer.preload();
+        source = load();
+        deviceId = "device-42";
+        monitorId = "5f0c6a8e-2b1d-4e7a-9c3f-8a6d1e2b4c70";
+        expiresAt = LocalDateTime.of(2026, 2, 23, 15, 32);
+        lastHeartbeat = expiresAt.minusSeconds(60);
+        timeout = 60;
+    }
+
+    @Benchmark
+    public String compiled() {
+        String alertTime = LocalDateTime.now().format(FORMATTER);
+        return renderer.render(TEMPLATE, null, name -> value(name, alertTime));
+    }
+
+    @Benchmark
+    public String replaceChain() {
+        return replace(source);
+    }
+
+    @Benchmark
+    public String loadAndReplaceChain() throws IOException {
+        return replace(load());
+    }
+
+    private String replace(String template) {
+        return template
+                .replace("{{deviceId}}", deviceId)
+                .replace("{{monitorId}}", monitorId)
+                .replace("{{lastHeartbeat}}", lastHeartbeat.format(FORMATTER))
+                .replace("{{expiresAt}}", expiresAt.format(FORMATTER))
+                .replace("{{timeout}}", String.valueOf(timeout))
+                .replace("{{alertTime}}", LocalDateTime.now().format(FORMATTER));
+    }
+
+    private Object value(String name, String alertTime) {
+        switch (name) {
+            case "deviceId":
+                return deviceId;
+            case "monitorId":
+                return monitorId;
+            case "lastHeartbeat":
+                return lastHeartbeat.format(FORMATTER);
+            case "expiresAt":
+                return expiresAt.format(FORMATTER);
+            case "timeout":
+                return timeout;
+            case "alertTime":
+                return alertTime;
+            default:
+                return null;
+        }
+    }
+
+    private static String load() throws IOException {
+        ClassPathResource resource = new ClassPathResource("templates/email/" + TEMPLATE);
+        return new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), StandardCharsets.UTF_8);
+    }
+}
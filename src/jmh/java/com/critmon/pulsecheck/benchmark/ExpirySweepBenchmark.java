@@ -0,0 +1,82 @@
+package com.critmon.pulsecheck.benchmark;
+
+import com.critmon.pulsecheck.service.MonitorAlertService;
+import com.critmon.pulsecheck.service.MonitorStateStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One reconciliation sweep of {@link MonitorAlertService#checkExpiredMonitors()} claiming
+ * {@code expired} monitors out of {@code monitors}. Before each sweep those monitors are expired
+ * directly in the database and dropped from the state store, as if they had been changed outside
+ * the API, so the sweep rather than the timing wheel finds them. Alerts go to a mail sender that
+ * drops them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ExpirySweepBenchmark {
+
+    private static final String EXPIRE = "UPDATE monitors SET is_active = TRUE, is_paused = FALSE, expires_at_ms = ? "
+            + "WHERE id IN (SELECT id FROM monitors ORDER BY id LIMIT ?)";
+
+    @Param({"1000", "100000", "1000000"})
+    public int monitors;
+
+    @Param({"1000"})
+    public int expired;
+
+    private BenchmarkContext context;
+    private MonitorAlertService alertService;
+    private MonitorStateStore stateStore;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        alertService = context.bean(MonitorAlertService.class);
+        stateStore = context.bean(MonitorStateStore.class);
+        jdbcTemplate = context.bean(JdbcTemplate.class);
+        List<String> seeded = context.seed(monitors, new AtomicLong());
+        if (seeded.size() < expired) {
+            throw new IllegalStateException("Seeded " + seeded.size() + " monitors, fewer than " + expired + " to expire");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void expire() {
+        stateStore.flush();
+        // A new deadline per sweep gives every alert a new outbox key
+        jdbcTemplate.update(EXPIRE, System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1), expired);
+        stateStore.invalidateAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void checkExpiredMonitors() throws InterruptedException {
+        alertService.checkExpiredMonitors();
+    }
+}
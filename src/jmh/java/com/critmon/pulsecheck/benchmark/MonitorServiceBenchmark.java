@@ -0,0 +1,92 @@
+package com.critmon.pulsecheck.benchmark;
+
+import com.critmon.pulsecheck.dto.BatchMonitorResponse;
+import com.critmon.pulsecheck.dto.DashboardResponse;
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.service.MonitorServiceInterface;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request paths of {@link MonitorServiceInterface} with {@code monitors} monitors already
+ * registered. Heartbeats hit random monitors, so at larger sizes most miss the CPU caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MonitorServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int monitors;
+
+    private final AtomicLong deviceSequence = new AtomicLong();
+    private BenchmarkContext context;
+    private MonitorServiceInterface monitorService;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        monitorService = context.bean(MonitorServiceInterface.class);
+        List<String> seeded = context.seed(monitors, deviceSequence);
+        ids = seeded.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Monitor heartbeat() {
+        return monitorService.heartbeat(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    /**
+     * Every call creates new devices, so the table grows by {@code batchSize} per operation. Timed
+     * as single shots, so a trial adds a fixed number of batches however large they are.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public BatchMonitorResponse createMonitorsBatch(Batch batch) {
+        return monitorService.createMonitorsBatch(BenchmarkContext.batchRequest(batch.batchSize, deviceSequence));
+    }
+
+    @Benchmark
+    public DashboardResponse getDashboardStats() {
+        return monitorService.getDashboardStats();
+    }
+
+    /**
+     * Kept apart so only {@code createMonitorsBatch} runs once per batch size.
+     */
+    @State(Scope.Benchmark)
+    public static class Batch {
+
+        /** Devices per {@code createMonitorsBatch} call. */
+        @Param({"1000", "10000", "100000"})
+        public int batchSize;
+    }
+}
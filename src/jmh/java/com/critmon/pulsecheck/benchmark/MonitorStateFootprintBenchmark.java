@@ -0,0 +1,111 @@
+package com.critmon.pulsecheck.benchmark;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.service.MonitorStateTable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held per monitor by a {@link MonitorStateTable} filled with {@code monitors} monitors, next
+ * to a map of {@link Monitor} entities, which is what the store held before. Each shot fills a
+ * fresh structure. The shot time includes the full collections around the fill; the
+ * {@code BytesPerMonitor} counters are what to read: {@code footprint} as estimated by
+ * {@link MonitorStateTable#footprintBytes()}, {@code retained} as the growth of the used heap
+ * after full collections. JMH adds event counters up over the measured iterations, so only one
+ * shot is measured, and each shot returns a size rather than the structure, which JMH could
+ * otherwise keep reachable while the next shot reads its starting heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class MonitorStateFootprintBenchmark {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final long NOW = CREATED_AT.toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    @Param({"100000", "1000000"})
+    public int monitors;
+
+    @Benchmark
+    public int table(Footprint footprint) {
+        long before = usedHeapAfterGc();
+        MonitorStateTable table = new MonitorStateTable(ZoneOffset.UTC);
+        for (int i = 0; i < monitors; i++) {
+            table.add(monitor(i));
+        }
+        footprint.record(monitors, before, table.footprintBytes());
+        return table.size();
+    }
+
+    @Benchmark
+    public int entities(Footprint footprint) {
+        long before = usedHeapAfterGc();
+        Map<String, Monitor> entities = new HashMap<>();
+        for (int i = 0; i < monitors; i++) {
+            Monitor monitor = monitor(i);
+            entities.put(monitor.getId(), monitor);
+        }
+        footprint.record(monitors, before, 0);
+        return entities.size();
+    }
+
+    private static Monitor monitor(int i) {
+        Monitor monitor = Monitor.builder()
+                .id(UUID.randomUUID().toString())
+                .deviceId("device-" + i)
+                .timeout(60)
+                // A few hundred recipients, like a fleet shared between on-call teams
+                .alertEmail("team-" + (i % 500) + "@example.com")
+                // Distinct instances, as entities read from the database would have
+                .createdAt(CREATED_AT.plusSeconds(i))
+                .version(0L)
+                .build();
+        monitor.resetTimer(NOW);
+        return monitor;
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Bytes per monitor of the structure filled by the last shot.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public double footprintBytesPerMonitor;
+        public double retainedBytesPerMonitor;
+
+        void record(int monitors, long usedBefore, long footprintBytes) {
+            footprintBytesPerMonitor = (double) footprintBytes / monitors;
+            retainedBytesPerMonitor = (double) (usedHeapAfterGc() - usedBefore) / monitors;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.critmon.pulsecheck.benchmark;
+
+import com.critmon.pulsecheck.dto.ApiResponse;
+import com.critmon.pulsecheck.dto.MonitorResponse;
+import com.critmon.pulsecheck.mapper.MonitorJsonWriter;
+import com.critmon.pulsecheck.mapper.MonitorMapper;
+import com.critmon.pulsecheck.model.Monitor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping monitors to responses and writing them as the JSON bodies the controller returns, with
+ * the Jackson settings from {@code application.yml}. {@code pageSize} 1 is a single monitor
+ * response and larger sizes a page of the listing.
+ *
+ * <p>The {@code monitor*} benchmarks compare the ways of writing one {@code ApiResponse<MonitorResponse>}:
+ * data binding with indentation (as before {@code indent-output} was dropped), compact data binding
+ * through a writer resolved once, and {@link MonitorJsonWriter} as used by the controller. They
+ * ignore {@code pageSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseMappingBenchmark {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final Clock CLOCK = Clock.system(ZONE);
+
+    @Param({"1", "100"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper indentedMapper;
+    private ObjectWriter monitorWriter;
+    private MonitorJsonWriter jsonWriter;
+    private List<Monitor> monitors;
+    private ApiResponse<List<MonitorResponse>> response;
+    private ApiResponse<MonitorResponse> monitorResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+        indentedMapper = objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+        monitorWriter = objectMapper.writerFor(new TypeReference<ApiResponse<MonitorResponse>>() { });
+        jsonWriter = new MonitorJsonWriter(objectMapper.getFactory(), ZONE);
+        long now = System.currentTimeMillis();
+        monitors = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Monitor monitor = Monitor.builder()
+                    .deviceId("device-" + i)
+                    .timeout(60)
+                    .alertEmail("team-" + (i % 500) + "@example.com")
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            monitor.resetTimer(now);
+            monitors.add(monitor);
+        }
+        response = ApiResponse.success(toResponses(), CLOCK);
+        monitorResponse = ApiResponse.success(MonitorMapper.toResponse(monitors.get(0), ZONE), CLOCK);
+    }
+
+    @Benchmark
+    public List<MonitorResponse> toResponse() {
+        return toResponses();
+    }
+
+    @Benchmark
+    public byte[] serializeApiResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ApiResponse.success(toResponses(), CLOCK));
+    }
+
+    @Benchmark
+    public byte[] monitorIndented() throws JsonProcessingException {
+        return indentedMapper.writeValueAsBytes(ApiResponse.success(MonitorMapper.toResponse(monitors.get(0), ZONE), CLOCK));
+    }
+
+    @Benchmark
+    public byte[] monitorCompact() throws JsonProcessingException {
+        return monitorWriter.writeValueAsBytes(ApiResponse.success(MonitorMapper.toResponse(monitors.get(0), ZONE), CLOCK));
+    }
+
+    @Benchmark
+    public byte[] monitorSerializeOnly() throws JsonProcessingException {
+        return monitorWriter.writeValueAsBytes(monitorResponse);
+    }
+
+    @Benchmark
+    public byte[] monitorStreaming() {
+        return jsonWriter.monitor(monitors.get(0), LocalDateTime.now());
+    }
+
+    @Benchmark
+    public byte[] pageStreaming() {
+        String nextCursor = monitors.get(monitors.size() - 1).getId();
+        return jsonWriter.page(monitors, pageSize, nextCursor, "1a2b3c4d-42", LocalDateTime.now());
+    }
+
+    private List<MonitorResponse> toResponses() {
+        List<MonitorResponse> responses = new ArrayList<>(monitors.size());
+        for (Monitor monitor : monitors) {
+            responses.add(MonitorMapper.toResponse(monitor, ZONE));
+        }
+        return responses;
+    }
+}
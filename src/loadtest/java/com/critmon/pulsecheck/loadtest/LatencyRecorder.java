@@ -0,0 +1,124 @@
+package com.critmon.pulsecheck.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Latencies per endpoint, kept as raw samples so percentiles are exact. Paths are grouped by
+ * their route, with monitor IDs replaced by {@code {id}}.
+ */
+public class LatencyRecorder {
+
+    private static final Pattern MONITOR_ID = Pattern.compile(
+            "^/monitors/(?!batch$|heartbeats$|stream$|dashboard$)[^/?]+");
+
+    private final Map<String, Samples> endpoints = new ConcurrentHashMap<>();
+
+    public static String endpoint(String method, String path) {
+        int query = path.indexOf('?');
+        String route = query >= 0 ? path.substring(0, query) : path;
+        return method + " " + MONITOR_ID.matcher(route).replaceFirst("/monitors/{id}");
+    }
+
+    public void record(String endpoint, long latencyMicros, boolean failed) {
+        endpoints.computeIfAbsent(endpoint, key -> new Samples()).add(latencyMicros, failed);
+    }
+
+    /**
+     * @return summaries per endpoint, sorted by endpoint
+     */
+    public Map<String, Summary> summarize() {
+        Map<String, Summary> summaries = new TreeMap<>();
+        endpoints.forEach((endpoint, samples) -> summaries.put(endpoint, samples.summarize()));
+        return summaries;
+    }
+
+    /**
+     * Growable array of samples in microseconds.
+     */
+    static final class Samples {
+
+        private long[] values = new long[1024];
+        private int size;
+        private long failures;
+
+        synchronized void add(long value, boolean failed) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            if (failed) {
+                failures++;
+            }
+        }
+
+        synchronized Summary summarize() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return new Summary(sorted, failures);
+        }
+    }
+
+    /**
+     * Percentiles of a set of samples, in milliseconds.
+     */
+    public static final class Summary {
+
+        private final long count;
+        private final long failures;
+        private final double p50;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+        Summary(long[] sorted, long failures) {
+            this.count = sorted.length;
+            this.failures = failures;
+            this.p50 = percentile(sorted, 0.50);
+            this.p99 = percentile(sorted, 0.99);
+            this.p999 = percentile(sorted, 0.999);
+            this.max = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0;
+        }
+
+        public static Summary of(long[] micros) {
+            long[] sorted = micros.clone();
+            Arrays.sort(sorted);
+            return new Summary(sorted, 0);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", count);
+            map.put("failures", failures);
+            map.put("p50Ms", p50);
+            map.put("p99Ms", p99);
+            map.put("p999Ms", p999);
+            map.put("maxMs", max);
+            return map;
+        }
+
+        public String format() {
+            return String.format("%9d %8d %10.2f %10.2f %10.2f %10.2f", count, failures, p50, p99, p999, max);
+        }
+    }
+}
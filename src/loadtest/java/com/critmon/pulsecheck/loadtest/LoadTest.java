@@ -0,0 +1,359 @@
+package com.critmon.pulsecheck.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator. Synthesized devices heartbeat on their own schedule and recorded
+ * requests arrive at a fixed rate or their recorded offsets, independent of how fast responses
+ * come back. Latency is measured from the intended send time, so a slow server also shows up in
+ * the latency of the requests it kept waiting.
+ *
+ * <p>Replayed requests are JSON lines of the form
+ * {@code {"method": "GET", "path": "/monitors/{id}", "body": {...}, "offsetMs": 1500}}, where
+ * {@code body} and {@code offsetMs} are optional. In paths and bodies, {@code {id}} is replaced by
+ * a random synthesized monitor and {@code {n}} by a unique number.
+ */
+public class LoadTest {
+
+    static final String ALERT_LATENESS = "alert lateness";
+    private static final int REGISTER_CHUNK_SIZE = 1000;
+    private static final String JSON = "application/json";
+
+    private final LoadTestConfig config;
+    private final String baseUrl;
+    private final boolean alertsObserved;
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final LatencyRecorder alertLateness;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Semaphore inFlight;
+    private final Random random = new Random();
+    private final AtomicLong sequence = new AtomicLong();
+    /** Timeouts in seconds of the registered monitors, by monitor ID. */
+    private final Map<String, Integer> registered = new LinkedHashMap<>();
+    private final List<String> monitorIds = new ArrayList<>();
+    private int expectedAlerts;
+
+    LoadTest(LoadTestConfig config, String baseUrl, LatencyRecorder alertLateness) {
+        this.config = config;
+        this.baseUrl = baseUrl;
+        this.alertsObserved = alertLateness != null;
+        this.alertLateness = alertLateness != null ? alertLateness : new LatencyRecorder();
+        this.inFlight = new Semaphore(config.getConcurrency());
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        System.out.println("Load test: " + config);
+        if (!config.getUrl().isEmpty()) {
+            new LoadTest(config, config.getUrl(), null).run();
+            return;
+        }
+        LatencyRecorder alertLateness = new LatencyRecorder();
+        try (LocalApp app = LocalApp.start(alertLateness, config.isVirtualThreads(), config.getDbLatencyMillis())) {
+            new LoadTest(config, app.baseUrl(), alertLateness).run();
+        }
+    }
+
+    void run() throws IOException, InterruptedException {
+        registerFleet();
+
+        PriorityQueue<Arrival> arrivals = new PriorityQueue<>();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        scheduleFleet(arrivals, start, end);
+        List<ReplayRequest> replay = loadReplay();
+        boolean recordedOffsets = !replay.isEmpty() && replay.stream().allMatch(request -> request.offsetMs >= 0);
+        if (recordedOffsets) {
+            for (ReplayRequest request : replay) {
+                arrivals.add(Arrival.replay(start + (long) (TimeUnit.MILLISECONDS.toNanos(request.offsetMs) / config.getSpeed()), request));
+            }
+        } else if (!replay.isEmpty()) {
+            arrivals.add(Arrival.replay(start, replay.get(0)));
+        }
+
+        System.out.printf("Generating traffic for %ds against %s%n", config.getDurationSeconds(), baseUrl);
+        int replayIndex = 0;
+        while (true) {
+            Arrival arrival = arrivals.poll();
+            if (arrival == null || arrival.dueNanos >= end) {
+                break;
+            }
+            sleepUntil(arrival.dueNanos);
+            if (arrival.request != null) {
+                send(arrival.dueNanos, arrival.request.method, expand(arrival.request.path), expand(arrival.request.body));
+                if (!recordedOffsets) {
+                    // Cycle through the recording at the configured rate until the time is up
+                    replayIndex++;
+                    arrivals.add(Arrival.replay(arrival.dueNanos + nextInterArrivalNanos(), replay.get(replayIndex % replay.size())));
+                }
+            } else {
+                Device device = arrival.device;
+                send(arrival.dueNanos, "POST", "/monitors/" + device.id + "/heartbeat", null);
+                long next = arrival.dueNanos + device.periodNanos;
+                if (next < device.stopNanos) {
+                    arrivals.add(Arrival.heartbeat(next, device));
+                }
+            }
+        }
+        inFlight.acquire(config.getConcurrency());
+        inFlight.release(config.getConcurrency());
+        awaitAlerts();
+        report();
+    }
+
+    private void registerFleet() throws IOException, InterruptedException {
+        if (config.getDevices() <= 0) {
+            return;
+        }
+        System.out.printf("Registering %d devices with timeouts %s%n", config.getDevices(), config.getTimeouts());
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int from = 0; from < config.getDevices(); from += REGISTER_CHUNK_SIZE) {
+            ObjectNode body = objectMapper.createObjectNode();
+            ArrayNode devices = body.putArray("devices");
+            for (int i = from; i < Math.min(from + REGISTER_CHUNK_SIZE, config.getDevices()); i++) {
+                devices.addObject()
+                        .put("id", "loadtest-" + runId + "-" + i)
+                        .put("timeout", config.getTimeouts().sample(random))
+                        .put("alert_email", "loadtest-" + (i % 100) + "@example.com");
+            }
+            HttpResponse<String> response = sendNow("POST", "/monitors/batch", objectMapper.writeValueAsString(body));
+            if (response.statusCode() >= 300 && response.statusCode() != 206) {
+                throw new IllegalStateException("Registering devices failed with " + response.statusCode() + ": " + response.body());
+            }
+            for (JsonNode created : objectMapper.readTree(response.body()).path("data").path("createdMonitors")) {
+                registered.put(created.path("id").asText(), created.path("timeout").asInt());
+            }
+        }
+        monitorIds.addAll(registered.keySet());
+        System.out.printf("Registered %d monitors%n", monitorIds.size());
+    }
+
+    private void scheduleFleet(PriorityQueue<Arrival> arrivals, long start, long end) {
+        for (Map.Entry<String, Integer> monitor : registered.entrySet()) {
+            String id = monitor.getKey();
+            long periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(monitor.getValue()) * config.getHeartbeatRatio()));
+            long stopNanos = Long.MAX_VALUE;
+            if (random.nextDouble() < config.getDropout()) {
+                // Stop in the first half, so most of these monitors expire before the traffic ends
+                stopNanos = start + (long) (random.nextDouble() * (end - start) / 2);
+                expectedAlerts++;
+            }
+            long first = start + (long) (random.nextDouble() * periodNanos);
+            if (first < stopNanos) {
+                arrivals.add(Arrival.heartbeat(first, new Device(id, periodNanos, stopNanos)));
+            }
+        }
+    }
+
+    private List<ReplayRequest> loadReplay() throws IOException {
+        List<ReplayRequest> requests = new ArrayList<>();
+        if (config.getReplay() == null) {
+            return requests;
+        }
+        for (String line : Files.readAllLines(config.getReplay())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node = objectMapper.readTree(line);
+            if (!node.hasNonNull("method") || !node.hasNonNull("path")) {
+                throw new IllegalArgumentException("Replay lines need a method and a path: " + line);
+            }
+            JsonNode body = node.get("body");
+            requests.add(new ReplayRequest(
+                    node.get("method").asText().toUpperCase(),
+                    node.get("path").asText(),
+                    body == null || body.isNull() ? null : body.isTextual() ? body.asText() : objectMapper.writeValueAsString(body),
+                    node.path("offsetMs").asLong(-1)));
+        }
+        System.out.printf("Replaying %d recorded requests from %s%n", requests.size(), config.getReplay());
+        return requests;
+    }
+
+    private long nextInterArrivalNanos() {
+        // Exponential gaps make the arrivals a Poisson process
+        return (long) (-Math.log(1 - random.nextDouble()) / config.getRate() * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private String expand(String template) {
+        if (template == null) {
+            return null;
+        }
+        String expanded = template;
+        if (expanded.contains("{id}") && !monitorIds.isEmpty()) {
+            expanded = expanded.replace("{id}", monitorIds.get(random.nextInt(monitorIds.size())));
+        }
+        if (expanded.contains("{n}")) {
+            expanded = expanded.replace("{n}", Long.toString(sequence.incrementAndGet()));
+        }
+        return expanded;
+    }
+
+    private void send(long intendedNanos, String method, String path, String body) throws InterruptedException {
+        inFlight.acquire();
+        String endpoint = LatencyRecorder.endpoint(method, path);
+        client.sendAsync(request(method, path, body), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+                    latencies.record(endpoint, micros, error != null || response.statusCode() >= 400);
+                    inFlight.release();
+                });
+    }
+
+    private HttpResponse<String> sendNow(String method, String path, String body) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> response = client.send(request(method, path, body), HttpResponse.BodyHandlers.ofString());
+        latencies.record(LatencyRecorder.endpoint(method, path),
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started), response.statusCode() >= 400);
+        return response;
+    }
+
+    private HttpRequest request(String method, String path, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", JSON);
+        if (body != null) {
+            builder.header("Content-Type", JSON).method(method, HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
+
+    private void awaitAlerts() throws InterruptedException {
+        if (!alertsObserved || expectedAlerts == 0) {
+            return;
+        }
+        System.out.printf("Waiting up to %ds for %d expected alerts%n", config.getDrainSeconds(), expectedAlerts);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getDrainSeconds());
+        while (alertCount() < expectedAlerts && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+        }
+    }
+
+    private long alertCount() {
+        LatencyRecorder.Summary summary = alertLateness.summarize().get(ALERT_LATENESS);
+        return summary != null ? summary.getCount() : 0;
+    }
+
+    private void report() throws IOException {
+        Map<String, LatencyRecorder.Summary> summaries = latencies.summarize();
+        double seconds = config.getDurationSeconds();
+        System.out.printf("%n%-34s %9s %8s %10s %10s %10s %10s %9s%n",
+                "endpoint", "requests", "failed", "p50 ms", "p99 ms", "p999 ms", "max ms", "req/s");
+        summaries.forEach((endpoint, summary) -> System.out.printf("%-34s %s %9.1f%n",
+                endpoint, summary.format(), summary.getCount() / seconds));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.toString());
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        summaries.forEach((endpoint, summary) -> {
+            Map<String, Object> values = summary.toMap();
+            values.put("perSecond", summary.getCount() / seconds);
+            endpoints.put(endpoint, values);
+        });
+        report.put("endpoints", endpoints);
+
+        if (alertsObserved) {
+            LatencyRecorder.Summary lateness = alertLateness.summarize().get(ALERT_LATENESS);
+            System.out.printf("%n%-34s %s  (%d expected)%n", "alert lateness (fired - expiresAt)",
+                    lateness != null ? lateness.format() : "no alerts fired", expectedAlerts);
+            Map<String, Object> alerts = lateness != null ? lateness.toMap() : new LinkedHashMap<>();
+            alerts.put("expected", expectedAlerts);
+            report.put("alertLateness", alerts);
+        } else {
+            System.out.println("\nAlert lateness is only measured when the load test starts the app itself");
+        }
+
+        if (config.getReport().getParent() != null) {
+            Files.createDirectories(config.getReport().getParent());
+        }
+        objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT).writeValue(config.getReport().toFile(), report);
+        System.out.println("Report written to " + config.getReport());
+    }
+
+    private static void sleepUntil(long dueNanos) {
+        long remaining;
+        while ((remaining = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static final class Device {
+
+        private final String id;
+        private final long periodNanos;
+        private final long stopNanos;
+
+        Device(String id, long periodNanos, long stopNanos) {
+            this.id = id;
+            this.periodNanos = periodNanos;
+            this.stopNanos = stopNanos;
+        }
+    }
+
+    private static final class ReplayRequest {
+
+        private final String method;
+        private final String path;
+        private final String body;
+        private final long offsetMs;
+
+        ReplayRequest(String method, String path, String body, long offsetMs) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+            this.offsetMs = offsetMs;
+        }
+    }
+
+    private static final class Arrival implements Comparable<Arrival> {
+
+        private final long dueNanos;
+        private final Device device;
+        private final ReplayRequest request;
+
+        private Arrival(long dueNanos, Device device, ReplayRequest request) {
+            this.dueNanos = dueNanos;
+            this.device = device;
+            this.request = request;
+        }
+
+        static Arrival heartbeat(long dueNanos, Device device) {
+            return new Arrival(dueNanos, device, null);
+        }
+
+        static Arrival replay(long dueNanos, ReplayRequest request) {
+            return new Arrival(dueNanos, null, request);
+        }
+
+        @Override
+        public int compareTo(Arrival other) {
+            return Long.compare(dueNanos, other.dueNanos);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.critmon.pulsecheck.loadtest;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties so they can be passed to
+ * Maven with {@code -D}.
+ */
+@Getter
+@ToString
+public class LoadTestConfig {
+
+    /** Base URL of a running instance, e.g. {@code http://localhost:8080/api}. Empty starts one in-process on H2. */
+    private final String url;
+    /** How long traffic is generated. */
+    private final int durationSeconds;
+    /** Maximum requests in flight; arrivals beyond it wait, and the wait counts as latency. */
+    private final int concurrency;
+
+    /** Synthesized devices, each registered through the batch endpoint and heartbeating on its own schedule. */
+    private final int devices;
+    private final TimeoutDistribution timeouts;
+    /** Heartbeat period as a fraction of the monitor timeout. */
+    private final double heartbeatRatio;
+    /** Fraction of devices that stop sending heartbeats partway through, so their monitors expire. */
+    private final double dropout;
+
+    /** Recorded traffic to replay, one JSON request per line. */
+    private final Path replay;
+    /** Open-model arrival rate for replayed requests without their own offsets, per second. */
+    private final double rate;
+    /** Speed-up applied to recorded offsets. */
+    private final double speed;
+
+    /** Runs the in-process app with {@code spring.threads.virtual.enabled}. */
+    private final boolean virtualThreads;
+    /** Delay added to every database connection checkout of the in-process app. */
+    private final long dbLatencyMillis;
+
+    /** How long to keep waiting for alerts of dropped-out devices after the traffic stops. */
+    private final int drainSeconds;
+    private final Path report;
+
+    private LoadTestConfig() {
+        url = property("url", "").replaceAll("/+$", "");
+        durationSeconds = Integer.parseInt(property("duration-s", "120"));
+        concurrency = Integer.parseInt(property("concurrency", "256"));
+        devices = Integer.parseInt(property("devices", "10000"));
+        timeouts = TimeoutDistribution.parse(property("timeouts", "30:0.6,60:0.3,300:0.1"));
+        heartbeatRatio = Double.parseDouble(property("heartbeat-ratio", "0.5"));
+        dropout = Double.parseDouble(property("dropout", "0.01"));
+        String replayPath = property("replay", "");
+        replay = replayPath.isEmpty() ? null : Paths.get(replayPath);
+        rate = Double.parseDouble(property("rate", "100"));
+        speed = Double.parseDouble(property("speed", "1"));
+        virtualThreads = Boolean.parseBoolean(property("virtual-threads", "false"));
+        dbLatencyMillis = Long.parseLong(property("db-latency-ms", "0"));
+        drainSeconds = Integer.parseInt(property("drain-s", "60"));
+        report = Paths.get(property("report", "target/loadtest-report.json"));
+        if (concurrency < 1 || heartbeatRatio <= 0 || rate <= 0 || speed <= 0) {
+            throw new IllegalArgumentException("concurrency, heartbeat-ratio, rate and speed must be positive");
+        }
+        if (dropout < 0 || dropout > 1) {
+            throw new IllegalArgumentException("dropout must be between 0 and 1: " + dropout);
+        }
+    }
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig();
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue).trim();
+    }
+}
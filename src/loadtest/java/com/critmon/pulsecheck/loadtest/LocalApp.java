@@ -0,0 +1,156 @@
+package com.critmon.pulsecheck.loadtest;
+
+import com.critmon.pulsecheck.PulseCheckApiApplication;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import com.critmon.pulsecheck.service.MonitorTransitionEvent;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application started in the load generator's JVM on a random port, against a private
+ * in-memory H2 database and with a mail sender that drops every message. Its expirations are
+ * observed directly, so alert lateness can be measured.
+ *
+ * <p>Sharing the JVM skews latencies under heavy load; point {@code loadtest.url} at a separately
+ * started instance for numbers to compare.
+ */
+public class LocalApp implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private LocalApp(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @param alertLateness receives, for every expiry alert, how long after the deadline it fired
+     * @param dbLatencyMillis delay added to every connection checkout, to simulate a slow database
+     */
+    public static LocalApp start(LatencyRecorder alertLateness, boolean virtualThreads, long dbLatencyMillis) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                PulseCheckApiApplication.class, NoOpMailConfig.class)
+                .listeners(new ExpiryListener(alertLateness))
+                .initializers(ctx -> {
+                    if (dbLatencyMillis > 0) {
+                        ctx.getBeanFactory().addBeanPostProcessor(new DatabaseLatency(dbLatencyMillis));
+                    }
+                })
+                // As command-line arguments, so they override application.yml; default properties would not
+                .run("--server.port=0",
+                        "--spring.profiles.active=h2",
+                        "--spring.datasource.url=jdbc:h2:mem:loadtest-" + UUID.randomUUID()
+                                + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--SMTP_HOST=localhost",
+                        "--SMTP_PORT=25",
+                        "--SMTP_USERNAME=",
+                        "--SMTP_PASSWORD=",
+                        "--logging.level.com.critmon.pulsecheck=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.springframework.cache=WARN",
+                        "--spring.threads.virtual.enabled=" + virtualThreads);
+        return new LocalApp(context);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + context.getEnvironment().getProperty("server.servlet.context-path", "");
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static final class ExpiryListener implements ApplicationListener<ApplicationEvent> {
+
+        private final LatencyRecorder alertLateness;
+
+        ExpiryListener(LatencyRecorder alertLateness) {
+            this.alertLateness = alertLateness;
+        }
+
+        @Override
+        public void onApplicationEvent(ApplicationEvent event) {
+            if (!(event instanceof PayloadApplicationEvent)) {
+                return;
+            }
+            Object payload = ((PayloadApplicationEvent<?>) event).getPayload();
+            if (payload instanceof MonitorTransitionEvent) {
+                MonitorTransitionEvent transition = (MonitorTransitionEvent) payload;
+                if (transition.getTransition() == MonitorTransition.EXPIRED) {
+                    long lateMillis = transition.getOccurredAtMillis() - transition.getMonitor().getExpiresAtMillis();
+                    alertLateness.record(LoadTest.ALERT_LATENESS, TimeUnit.MILLISECONDS.toMicros(lateMillis), false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps the datasource so every connection checkout waits first, like a round trip to a
+     * distant or overloaded database. The caller's thread blocks for the whole delay.
+     */
+    private static final class DatabaseLatency implements BeanPostProcessor {
+
+        private final long latencyMillis;
+
+        DatabaseLatency(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource)) {
+                return bean;
+            }
+            return new DelegatingDataSource((DataSource) bean) {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    delay();
+                    return super.getConnection();
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    delay();
+                    return super.getConnection(username, password);
+                }
+            };
+        }
+
+        private void delay() throws SQLException {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while simulating database latency", e);
+            }
+        }
+    }
+
+    static class NoOpMailConfig {
+
+        @Bean
+        public JavaMailSender javaMailSender() {
+            return new JavaMailSenderImpl() {
+                @Override
+                protected void doSend(MimeMessage[] mimeMessages, Object[] originalMessages) {
+                }
+            };
+        }
+    }
+}
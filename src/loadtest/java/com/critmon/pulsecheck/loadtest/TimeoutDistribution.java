@@ -0,0 +1,69 @@
+package com.critmon.pulsecheck.loadtest;
+
+import java.util.Random;
+
+/**
+ * Weighted choice of monitor timeouts, written as {@code <seconds>:<weight>,...}, e.g.
+ * {@code 30:0.6,60:0.3,300:0.1}. Weights need not add up to one.
+ */
+public class TimeoutDistribution {
+
+    private final int[] timeouts;
+    private final double[] cumulative;
+
+    private TimeoutDistribution(int[] timeouts, double[] cumulative) {
+        this.timeouts = timeouts;
+        this.cumulative = cumulative;
+    }
+
+    public static TimeoutDistribution parse(String spec) {
+        String[] entries = spec.split(",");
+        int[] timeouts = new int[entries.length];
+        double[] cumulative = new double[entries.length];
+        double total = 0;
+        for (int i = 0; i < entries.length; i++) {
+            String[] parts = entries[i].trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected <seconds>:<weight> in timeout distribution: " + entries[i]);
+            }
+            timeouts[i] = Integer.parseInt(parts[0].trim());
+            double weight = Double.parseDouble(parts[1].trim());
+            if (timeouts[i] < 1 || weight < 0) {
+                throw new IllegalArgumentException("Invalid timeout distribution entry: " + entries[i]);
+            }
+            total += weight;
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Timeout distribution has no weight: " + spec);
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= total;
+        }
+        return new TimeoutDistribution(timeouts, cumulative);
+    }
+
+    public int sample(Random random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (r < cumulative[i]) {
+                return timeouts[i];
+            }
+        }
+        return timeouts[timeouts.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder spec = new StringBuilder();
+        double previous = 0;
+        for (int i = 0; i < timeouts.length; i++) {
+            if (i > 0) {
+                spec.append(',');
+            }
+            spec.append(timeouts[i]).append(':').append(String.format("%.3f", cumulative[i] - previous));
+            previous = cumulative[i];
+        }
+        return spec.toString();
+    }
+}
@@ -1,31 +1,35 @@
 package com.critmon.pulsecheck.config;
 
+import com.critmon.pulsecheck.service.MonitorCache;
+import com.critmon.pulsecheck.service.MonitorStateStore;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Collections;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    /**
+     * Registers every cache with its own policy up front, so the actuator binds their statistics
+     * as {@code cache.*} metrics on startup. Unknown cache names fail instead of silently getting
+     * a default policy.
+     */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(MonitorStateStore stateStore,
+                                     @Value("${pulse-check.cache.monitors.spec}") String monitorsSpec) {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.setCaffeine(caffeineCacheBuilder());
+        cacheManager.setCacheNames(Collections.emptyList());
+        // Loads and refreshes read the state store, which already holds the live state
+        cacheManager.registerCustomCache(MonitorCache.NAME, Caffeine.from(monitorsSpec)
+                .recordStats()
+                .build(id -> stateStore.find((String) id).orElse(null)));
         return cacheManager;
     }
-
-    @Bean
-    public Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .initialCapacity(100)
-                .maximumSize(1000)
-                .expireAfterWrite(30, TimeUnit.MINUTES)
-                .recordStats();
-    }
 }
@@ -0,0 +1,35 @@
+package com.critmon.pulsecheck.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class ClockConfig {
+
+    /**
+     * Single source of "now" for timer math, expiry checks and the time parameters bound into
+     * SQL, so the in-memory and database paths agree and tests can supply a fixed or offset clock.
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+
+    /**
+     * Exposes the clock's zone to migrations as {@code ${appTimeZone}}, the zone in which the
+     * older zone-less timestamp columns were written.
+     */
+    @Bean
+    public FlywayConfigurationCustomizer appTimeZonePlaceholder(Clock clock) {
+        return configuration -> {
+            Map<String, String> placeholders = new HashMap<>(configuration.getPlaceholders());
+            placeholders.put("appTimeZone", clock.getZone().getId());
+            configuration.placeholders(placeholders);
+        };
+    }
+}
@@ -1,33 +1,33 @@
 package com.critmon.pulsecheck.config;
 
 import io.github.cdimascio.dotenv.Dotenv;
+import io.github.cdimascio.dotenv.DotenvEntry;
 import io.github.cdimascio.dotenv.DotenvException;
 
 public class DotenvConfig {
 
+    /**
+     * Loads {@code .env} from the working directory (or {@code DOTENV_DIR}) and exposes its
+     * entries as system properties, without overriding real environment variables. A missing
+     * file is fine, so several instances can be started with plain environment variables.
+     */
     public static void loadEnvironmentVariables() {
         try {
+            String directory = System.getenv().getOrDefault("DOTENV_DIR", ".");
             Dotenv dotenv = Dotenv.configure()
-                    .directory("C:\\Users\\LENOVO\\Documents\\Pulse-Check-API")
+                    .directory(directory)
+                    .ignoreIfMissing()
                     .load();
 
-            String dbUrl = dotenv.get("DATABASE_URL");
-            String dbUsername = dotenv.get("DB_USERNAME");
-            String dbPassword = dotenv.get("DB_PASSWORD");
-            String serverPort = dotenv.get("SERVER_PORT");
-            String contextPath = dotenv.get("CONTEXT_PATH");
-            String logLevel = dotenv.get("LOG_LEVEL");
-            String cacheMaxSize = dotenv.get("CACHE_MAX_SIZE");
-            String cacheExpireMinutes = dotenv.get("CACHE_EXPIRE_MINUTES");
-            String cacheLogLevel = dotenv.get("CACHE_LOG_LEVEL");
-            String smtpHost = dotenv.get("SMTP_HOST");
-            String smtpPort = dotenv.get("SMTP_PORT");
-            String smtpUsername = dotenv.get("SMTP_USERNAME");
-            String smtpPassword = dotenv.get("SMTP_PASSWORD");
+            for (DotenvEntry entry : dotenv.entries(Dotenv.Filter.DECLARED_IN_ENV_FILE)) {
+                if (System.getenv(entry.getKey()) == null && System.getProperty(entry.getKey()) == null) {
+                    System.setProperty(entry.getKey(), entry.getValue());
+                }
+            }
 
         } catch (DotenvException e) {
             System.err.println("Error loading .env file: " + e.getMessage());
-            System.err.println("Please ensure .env file exists in the project root directory");
+            System.err.println("Please ensure the .env file in the project root directory is valid");
             throw new RuntimeException("Failed to load environment variables", e);
         }
     }
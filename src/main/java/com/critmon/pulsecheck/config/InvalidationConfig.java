@@ -0,0 +1,46 @@
+package com.critmon.pulsecheck.config;
+
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
+import com.critmon.pulsecheck.service.LocalInvalidationTransport;
+import com.critmon.pulsecheck.service.MonitorInvalidationTransport;
+import com.critmon.pulsecheck.service.PostgresInvalidationTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Locale;
+
+@Configuration
+public class InvalidationConfig {
+
+    /**
+     * Transport for cross-node cache invalidation, chosen by {@code pulse-check.cluster.invalidation}:
+     * {@code postgres} uses LISTEN/NOTIFY, {@code local} only reaches application contexts in the
+     * same JVM and {@code none} disables it. {@code auto} picks postgres in cluster mode on a
+     * PostgreSQL database, and none otherwise.
+     */
+    @Bean(destroyMethod = "close")
+    public MonitorInvalidationTransport monitorInvalidationTransport(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            MonitorJdbcRepository monitorJdbcRepository,
+            @Value("${pulse-check.cluster.enabled:false}") boolean clusterEnabled,
+            @Value("${pulse-check.cluster.invalidation:auto}") String mode) {
+        switch (mode.toLowerCase(Locale.ROOT)) {
+            case "postgres":
+                return new PostgresInvalidationTransport(dataSource, jdbcTemplate);
+            case "local":
+                return new LocalInvalidationTransport();
+            case "none":
+                return MonitorInvalidationTransport.none();
+            case "auto":
+                return clusterEnabled && monitorJdbcRepository.isPostgres()
+                        ? new PostgresInvalidationTransport(dataSource, jdbcTemplate)
+                        : MonitorInvalidationTransport.none();
+            default:
+                throw new IllegalArgumentException("Unknown pulse-check.cluster.invalidation: " + mode);
+        }
+    }
+}
@@ -1,42 +1,91 @@
 package com.critmon.pulsecheck.controller;
 
 import com.critmon.pulsecheck.dto.ApiResponse;
+import com.critmon.pulsecheck.dto.BatchHeartbeatRequest;
+import com.critmon.pulsecheck.dto.BatchHeartbeatResponse;
 import com.critmon.pulsecheck.dto.BatchMonitorCreateRequest;
 import com.critmon.pulsecheck.dto.BatchMonitorResponse;
 import com.critmon.pulsecheck.dto.DashboardResponse;
 import com.critmon.pulsecheck.dto.MonitorCreateRequest;
+import com.critmon.pulsecheck.dto.MonitorFilter;
 import com.critmon.pulsecheck.dto.MonitorResponse;
 import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorStatus;
+import com.critmon.pulsecheck.service.MonitorChanges;
+import com.critmon.pulsecheck.service.MonitorEventBroadcaster;
 import com.critmon.pulsecheck.service.MonitorServiceInterface;
+import com.critmon.pulsecheck.mapper.MonitorJsonWriter;
 import com.critmon.pulsecheck.mapper.MonitorMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
-@RequiredArgsConstructor
 @RequestMapping("/monitors")
 public class MonitorController {
 
     private static final Logger logger = LoggerFactory.getLogger(MonitorController.class);
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String RETURN_MINIMAL = "return=minimal";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_WAIT_SECONDS = 60;
+
     private final MonitorServiceInterface monitorService;
+    private final MonitorEventBroadcaster eventBroadcaster;
+    private final ObjectWriter streamWriter;
+    private final ObjectReader idReader;
+    private final MonitorJsonWriter jsonWriter;
+    private final Clock clock;
+
+    public MonitorController(MonitorServiceInterface monitorService, MonitorEventBroadcaster eventBroadcaster,
+                             ObjectMapper objectMapper, Clock clock) {
+        this.monitorService = monitorService;
+        this.eventBroadcaster = eventBroadcaster;
+        this.clock = clock;
+        // Streamed rows are written one per line, so never pretty-print them
+        this.streamWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.jsonWriter = new MonitorJsonWriter(objectMapper.getFactory(), clock.getZone());
+        this.idReader = objectMapper.readerFor(String.class);
+    }
 
     @PostMapping
     public ResponseEntity<ApiResponse<MonitorResponse>> createMonitor(@Valid @RequestBody MonitorCreateRequest request) {
         logger.info("Creating monitor for device: {}", request.getDeviceId());
         
         Monitor monitor = monitorService.createMonitor(request.getDeviceId(), request.getTimeout(), request.getAlertEmail());
-        MonitorResponse response = MonitorMapper.toResponse(monitor);
+        MonitorResponse response = MonitorMapper.toResponse(monitor, clock.getZone());
         
         return ResponseEntity.status(HttpStatus.CREATED)
-                .body(ApiResponse.success("Monitor created successfully", response));
+                .body(ApiResponse.success("Monitor created successfully", response, clock));
     }
 
     @PostMapping("/batch")
@@ -52,16 +101,77 @@ public class MonitorController {
                                       response.getSuccessful(), response.getFailed());
         
         return ResponseEntity.status(status)
-                .body(ApiResponse.success(message, response));
+                .body(ApiResponse.success(message, response, clock));
     }
 
+    /**
+     * Answers {@code 204 No Content} when the client sends {@code Prefer: return=minimal}, for
+     * devices that only need the status code.
+     */
     @PostMapping("/{id}/heartbeat")
-    public ResponseEntity<ApiResponse<String>> heartbeat(@PathVariable("id") String id) {
+    public ResponseEntity<byte[]> heartbeat(@PathVariable("id") String id,
+                                            @RequestHeader(value = "Prefer", required = false) String prefer) {
         logger.info("Heartbeat received for monitor: {}", id);
         
         Monitor monitor = monitorService.heartbeat(id);
+        if (prefer != null && prefer.contains(RETURN_MINIMAL)) {
+            return ResponseEntity.noContent()
+                    .header("Preference-Applied", RETURN_MINIMAL)
+                    .build();
+        }
         return ResponseEntity.ok()
-                .body(ApiResponse.success("Heartbeat received for device: " + monitor.getDeviceId()));
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonWriter.heartbeat(monitor, LocalDateTime.now(clock)));
+    }
+
+    @PostMapping(value = "/heartbeats", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<BatchHeartbeatResponse>> heartbeatBatch(@Valid @RequestBody BatchHeartbeatRequest request) {
+        return batchHeartbeatResponse(monitorService.heartbeatBatch(request.getIds()));
+    }
+
+    /**
+     * Same as {@link #heartbeatBatch}, with one JSON string per line. The body is parsed as it
+     * arrives and rejected as soon as it exceeds the batch limit.
+     */
+    @PostMapping(value = "/heartbeats", consumes = NDJSON_VALUE)
+    public ResponseEntity<ApiResponse<BatchHeartbeatResponse>> heartbeatBatchNdjson(InputStream body) throws IOException {
+        List<String> ids = readIds(idReader, body, BatchHeartbeatRequest.MAX_IDS);
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("IDs list cannot be empty");
+        }
+        return batchHeartbeatResponse(monitorService.heartbeatBatch(ids));
+    }
+
+    static List<String> readIds(ObjectReader reader, InputStream body, int maxIds) throws IOException {
+        List<String> ids = new ArrayList<>();
+        try (MappingIterator<String> lines = reader.readValues(body)) {
+            while (lines.hasNextValue()) {
+                String id = lines.nextValue();
+                if (id == null || id.isBlank()) {
+                    throw new IllegalArgumentException("IDs cannot be blank");
+                }
+                if (ids.size() == maxIds) {
+                    throw new IllegalArgumentException("At most " + maxIds + " IDs per request");
+                }
+                ids.add(id);
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid NDJSON body: " + e.getOriginalMessage());
+        }
+        return ids;
+    }
+
+    private ResponseEntity<ApiResponse<BatchHeartbeatResponse>> batchHeartbeatResponse(BatchHeartbeatResponse response) {
+        logger.info("Batch heartbeat: {} acknowledged, {} failed", response.getSuccessful(), response.getFailed());
+        HttpStatus status = response.getFailed() > 0 ?
+            (response.getSuccessful() > 0 ? HttpStatus.PARTIAL_CONTENT : HttpStatus.NOT_FOUND) :
+            HttpStatus.OK;
+        
+        String message = String.format("Batch heartbeat completed: %d acknowledged, %d failed",
+                                      response.getSuccessful(), response.getFailed());
+        
+        return ResponseEntity.status(status)
+                .body(ApiResponse.success(message, response, clock));
     }
 
     @PostMapping("/{id}/pause")
@@ -70,7 +180,7 @@ public class MonitorController {
         
         Monitor monitor = monitorService.pauseMonitor(id);
         return ResponseEntity.ok()
-                .body(ApiResponse.success("Monitor paused for device: " + monitor.getDeviceId()));
+                .body(ApiResponse.success("Monitor paused for device: " + monitor.getDeviceId(), clock));
     }
 
     @PostMapping("/{id}/resume")
@@ -79,38 +189,228 @@ public class MonitorController {
         
         Monitor monitor = monitorService.resumeMonitor(id);
         return ResponseEntity.ok()
-                .body(ApiResponse.success("Monitor resumed for device: " + monitor.getDeviceId()));
+                .body(ApiResponse.success("Monitor resumed for device: " + monitor.getDeviceId(), clock));
     }
 
+    /**
+     * Tagged with the monitor's version, so a matching {@code If-None-Match} is answered with
+     * {@code 304 Not Modified} from the held state, without serializing it.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<MonitorResponse>> getMonitor(@PathVariable("id") String id) {
+    public ResponseEntity<byte[]> getMonitor(@PathVariable("id") String id, WebRequest request) {
         Monitor monitor = monitorService.getMonitor(id)
                 .orElseThrow(() -> new com.critmon.pulsecheck.exception.MonitorNotFoundException("Monitor not found: " + id));
         
-        MonitorResponse response = MonitorMapper.toResponse(monitor);
-        return ResponseEntity.ok(ApiResponse.success(response));
+        if (request.checkNotModified(MonitorJsonWriter.entityTag(monitor))) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonWriter.monitor(monitor, LocalDateTime.now(clock)));
     }
 
+    /**
+     * Tagged with the list version: while no monitor was created, deleted or changed status, a
+     * matching {@code If-None-Match} is answered with {@code 304 Not Modified} before any query
+     * runs. Heartbeats that only move deadlines keep the tag; {@code since} lists those.
+     */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<MonitorResponse>>> getAllMonitors() {
-        List<Monitor> monitors = monitorService.getAllMonitors();
-        List<MonitorResponse> responses = monitors.stream()
-                .map(MonitorMapper::toResponse)
-                .collect(Collectors.toList());
+    public ResponseEntity<byte[]> getMonitors(
+            @RequestParam(value = "state", required = false) String state,
+            @RequestParam(value = "devicePrefix", required = false) String devicePrefix,
+            @RequestParam(value = "alertEmail", required = false) String alertEmail,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            WebRequest request) {
+        checkLimit(limit);
+        MonitorFilter filter = buildFilter(state, devicePrefix, alertEmail);
+        
+        if (request.checkNotModified(monitorService.getListVersion())) {
+            return null;
+        }
+        String sequence = monitorService.getChangeSequence();
+        List<Monitor> monitors = monitorService.getMonitorsPage(filter, cursor, limit);
+        String nextCursor = monitors.size() < limit ? null : monitors.get(monitors.size() - 1).getId();
+        
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonWriter.page(monitors, limit, nextCursor, sequence, LocalDateTime.now(clock)));
+    }
+
+    /**
+     * Monitors changed after the {@code since} sequence of an earlier response, read from memory.
+     * With {@code wait}, the request is held until a matching monitor changes or the wait is over,
+     * without holding a request thread.
+     */
+    @GetMapping(params = "since")
+    public DeferredResult<ResponseEntity<byte[]>> getMonitorChanges(
+            @RequestParam(value = "state", required = false) String state,
+            @RequestParam(value = "devicePrefix", required = false) String devicePrefix,
+            @RequestParam(value = "alertEmail", required = false) String alertEmail,
+            @RequestParam("since") String since,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "wait", defaultValue = "0") int waitSeconds) {
+        checkLimit(limit);
+        if (waitSeconds < 0 || waitSeconds > MAX_WAIT_SECONDS) {
+            throw new IllegalArgumentException("wait must be between 0 and " + MAX_WAIT_SECONDS + " seconds");
+        }
+        MonitorFilter filter = buildFilter(state, devicePrefix, alertEmail);
         
-        return ResponseEntity.ok(ApiResponse.success(responses));
+        MonitorChanges changes = monitorService.getChangesSince(filter, since, limit);
+        AtomicReference<String> latest = new AtomicReference<>(changes.getSequence());
+        DeferredResult<ResponseEntity<byte[]>> result = new DeferredResult<>(TimeUnit.SECONDS.toMillis(waitSeconds),
+                () -> changesResponse(new MonitorChanges(List.of(), List.of(), latest.get())));
+        if (waitSeconds == 0 || !isEmpty(changes)) {
+            result.setResult(changesResponse(changes));
+            return result;
+        }
+        AtomicReference<CompletableFuture<Void>> pending = new AtomicReference<>();
+        result.onCompletion(() -> {
+            CompletableFuture<Void> waiting = pending.get();
+            if (waiting != null) {
+                waiting.cancel(false);
+            }
+        });
+        awaitChanges(result, filter, limit, latest, pending);
+        return result;
+    }
+
+    /**
+     * Waits for a change after the latest sequence and reads again, until something matches the
+     * filter. Runs on the change log's notifier threads after the first call.
+     */
+    private void awaitChanges(DeferredResult<ResponseEntity<byte[]>> result, MonitorFilter filter, int limit,
+                              AtomicReference<String> latest, AtomicReference<CompletableFuture<Void>> pending) {
+        CompletableFuture<Void> next = monitorService.awaitChanges(latest.get());
+        pending.set(next);
+        if (result.isSetOrExpired()) {
+            next.cancel(false);
+            return;
+        }
+        next.thenRun(() -> {
+            try {
+                MonitorChanges changes = monitorService.getChangesSince(filter, latest.get(), limit);
+                latest.set(changes.getSequence());
+                if (!isEmpty(changes)) {
+                    result.setResult(changesResponse(changes));
+                } else {
+                    awaitChanges(result, filter, limit, latest, pending);
+                }
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+    }
+
+    private ResponseEntity<byte[]> changesResponse(MonitorChanges changes) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonWriter.changes(changes.getMonitors(), changes.getDeleted(), changes.getSequence(),
+                        LocalDateTime.now(clock)));
+    }
+
+    private static boolean isEmpty(MonitorChanges changes) {
+        return changes.getMonitors().isEmpty() && changes.getDeleted().isEmpty();
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = {NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamMonitors(
+            @RequestParam(value = "state", required = false) String state,
+            @RequestParam(value = "devicePrefix", required = false) String devicePrefix,
+            @RequestParam(value = "alertEmail", required = false) String alertEmail,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MonitorFilter filter = buildFilter(state, devicePrefix, alertEmail);
+        boolean jsonArray = accept != null && accept.contains(MediaType.APPLICATION_JSON_VALUE);
+        
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = streamWriter.getFactory().createGenerator(outputStream)) {
+                if (jsonArray) {
+                    generator.writeStartArray();
+                } else {
+                    generator.setRootValueSeparator(null);
+                }
+                monitorService.streamMonitors(filter, monitor -> {
+                    try {
+                        streamWriter.writeValue(generator, MonitorMapper.toResponse(monitor, clock.getZone()));
+                        if (!jsonArray) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (jsonArray) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(jsonArray ? MediaType.APPLICATION_JSON : MediaType.valueOf(NDJSON_VALUE))
+                .body(body);
+    }
+
+    private static MonitorFilter buildFilter(String state, String devicePrefix, String alertEmail) {
+        return MonitorFilter.builder()
+                .status(parseState(state))
+                .devicePrefix(devicePrefix)
+                .alertEmail(alertEmail)
+                .build();
+    }
+
+    private static MonitorStatus parseState(String state) {
+        if (state == null || state.isEmpty()) {
+            return null;
+        }
+        switch (state.toLowerCase(Locale.ROOT)) {
+            case "active":
+            case "up":
+                return MonitorStatus.UP;
+            case "paused":
+                return MonitorStatus.PAUSED;
+            case "expired":
+            case "down":
+                return MonitorStatus.DOWN;
+            default:
+                throw new IllegalArgumentException("Unknown state: " + state + " (expected active, paused or expired)");
+        }
     }
 
     @GetMapping("/dashboard")
-    public ResponseEntity<ApiResponse<DashboardResponse>> getDashboard() {
+    public ResponseEntity<ApiResponse<DashboardResponse>> getDashboard(WebRequest request) {
+        if (request.checkNotModified(monitorService.getDashboardVersion())) {
+            return null;
+        }
         DashboardResponse dashboard = monitorService.getDashboardStats();
-        return ResponseEntity.ok(ApiResponse.success(dashboard));
+        return ResponseEntity.ok(ApiResponse.success(dashboard, clock));
+    }
+
+    /**
+     * Server-sent events: {@code transition} for every monitor that goes down, recovers, is paused
+     * or resumed, and {@code dashboard} with the counts that changed. Clients reconnecting with
+     * {@code Last-Event-ID} get the events they missed.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> streamEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                // Stops nginx from buffering the stream
+                .header("X-Accel-Buffering", "no")
+                .body(eventBroadcaster.subscribe(lastEventId));
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<ApiResponse<String>> deleteMonitor(@PathVariable("id") String id) {
         logger.info("Deleting monitor: {}", id);
         monitorService.deleteMonitor(id);
-        return ResponseEntity.ok(ApiResponse.success("Monitor deleted successfully"));
+        return ResponseEntity.ok(ApiResponse.success("Monitor deleted successfully", clock));
     }
 }
@@ -1,7 +1,11 @@
 package com.critmon.pulsecheck.dto;
 
+import com.critmon.pulsecheck.mapper.DateTimeSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Builder;
 import lombok.Data;
+
+import java.time.Clock;
 import java.time.LocalDateTime;
 
 
@@ -11,20 +15,22 @@ public class ApiResponse<T> {
     private boolean success;
     private String message;
     private T data;
+    @JsonSerialize(using = DateTimeSerializer.class)
     private LocalDateTime timestamp;
     
     /**
      * Creates a success response.
      * 
      * @param data the response data
+     * @param clock the clock the response is timestamped with
      * @return success ApiResponse
      */
-    public static <T> ApiResponse<T> success(T data) {
+    public static <T> ApiResponse<T> success(T data, Clock clock) {
         return ApiResponse.<T>builder()
                 .success(true)
                 .message("Operation successful")
                 .data(data)
-                .timestamp(LocalDateTime.now())
+                .timestamp(LocalDateTime.now(clock))
                 .build();
     }
     
@@ -33,14 +39,15 @@ public class ApiResponse<T> {
      * 
      * @param message the success message
      * @param data the response data
+     * @param clock the clock the response is timestamped with
      * @return success ApiResponse
      */
-    public static <T> ApiResponse<T> success(String message, T data) {
+    public static <T> ApiResponse<T> success(String message, T data, Clock clock) {
         return ApiResponse.<T>builder()
                 .success(true)
                 .message(message)
                 .data(data)
-                .timestamp(LocalDateTime.now())
+                .timestamp(LocalDateTime.now(clock))
                 .build();
     }
     
@@ -48,14 +55,15 @@ public class ApiResponse<T> {
      * Creates an error response.
      * 
      * @param message the error message
+     * @param clock the clock the response is timestamped with
      * @return error ApiResponse
      */
-    public static <T> ApiResponse<T> error(String message) {
+    public static <T> ApiResponse<T> error(String message, Clock clock) {
         return ApiResponse.<T>builder()
                 .success(false)
                 .message(message)
                 .data(null)
-                .timestamp(LocalDateTime.now())
+                .timestamp(LocalDateTime.now(clock))
                 .build();
     }
 }
@@ -0,0 +1,24 @@
+package com.critmon.pulsecheck.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchHeartbeatRequest {
+
+    public static final int MAX_IDS = 10000;
+
+    /**
+     * Monitor IDs or device IDs; a device ID acknowledges every monitor of that device.
+     */
+    @NotEmpty(message = "IDs list cannot be empty")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " IDs per request")
+    private List<String> ids;
+}
@@ -0,0 +1,42 @@
+package com.critmon.pulsecheck.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchHeartbeatResponse {
+
+    private int totalRequested;
+    private int successful;
+    private int failed;
+    private List<HeartbeatResult> results;
+    private List<BatchError> errors;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HeartbeatResult {
+        private String id;
+        private String monitorId;
+        private String deviceId;
+        private LocalDateTime expiresAt;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchError {
+        private String id;
+        private String error;
+    }
+}
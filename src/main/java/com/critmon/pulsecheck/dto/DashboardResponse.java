@@ -13,6 +13,7 @@ public class DashboardResponse {
     
     private long activeDevices;
     private long downDevices;
+    private long pausedDevices;
     private long alertsToday;
     private double averageUptime;
 
@@ -0,0 +1,28 @@
+package com.critmon.pulsecheck.dto;
+
+import com.critmon.pulsecheck.model.MonitorStatus;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data of a {@code transition} event on {@code GET /monitors/events}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonitorEventResponse {
+
+    private String monitorId;
+    private String deviceId;
+    private MonitorTransition transition;
+    private MonitorStatus status;
+    private LocalDateTime lastHeartbeat;
+    private LocalDateTime expiresAt;
+    private LocalDateTime occurredAt;
+}
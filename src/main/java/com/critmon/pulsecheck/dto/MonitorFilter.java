@@ -0,0 +1,45 @@
+package com.critmon.pulsecheck.dto;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorStatus;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Optional filters for listing monitors; null fields do not filter.
+ */
+@Data
+@Builder
+public class MonitorFilter {
+    private MonitorStatus status;
+    private String devicePrefix;
+    private String alertEmail;
+
+    public Boolean getActive() {
+        return status == null || status == MonitorStatus.PAUSED ? null : status == MonitorStatus.UP;
+    }
+
+    public Boolean getPaused() {
+        return status == null ? null : status == MonitorStatus.PAUSED;
+    }
+
+    /**
+     * Device ID prefix as a LIKE pattern, with LIKE wildcards in the prefix escaped.
+     */
+    public String getDevicePattern() {
+        if (devicePrefix == null || devicePrefix.isEmpty()) {
+            return null;
+        }
+        return devicePrefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * The same check as the queries, for monitors already in memory.
+     */
+    public boolean matches(Monitor monitor) {
+        return (status == null || monitor.getStatus() == status)
+                && (devicePrefix == null || devicePrefix.isEmpty()
+                        || (monitor.getDeviceId() != null && monitor.getDeviceId().startsWith(devicePrefix)))
+                && (alertEmail == null || alertEmail.equals(monitor.getAlertEmail()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.critmon.pulsecheck.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonitorPageResponse {
+
+    private List<MonitorResponse> monitors;
+    private int limit;
+
+    /**
+     * Cursor for the next page, absent on the last page.
+     */
+    private String nextCursor;
+
+    /**
+     * Change sequence taken before the page was read; pass it as {@code since} to receive the
+     * monitors changed afterwards.
+     */
+    private String sequence;
+}
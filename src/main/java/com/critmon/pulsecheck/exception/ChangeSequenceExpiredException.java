@@ -0,0 +1,16 @@
+package com.critmon.pulsecheck.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The change sequence a client asked to continue from is no longer known, so it has to list the
+ * monitors again.
+ */
+@ResponseStatus(HttpStatus.GONE)
+public class ChangeSequenceExpiredException extends RuntimeException {
+    
+    public ChangeSequenceExpiredException(String message) {
+        super(message);
+    }
+}
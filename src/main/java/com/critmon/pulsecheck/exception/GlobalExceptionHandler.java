@@ -10,6 +10,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,11 +19,31 @@ public class GlobalExceptionHandler {
     
     private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    private final Clock clock;
+
+    public GlobalExceptionHandler(Clock clock) {
+        this.clock = clock;
+    }
+
     @ExceptionHandler(MonitorNotFoundException.class)
     public ResponseEntity<ApiResponse<String>> handleMonitorNotFound(MonitorNotFoundException ex) {
         logger.warn("Monitor not found: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(ApiResponse.error(ex.getMessage()));
+                .body(ApiResponse.error(ex.getMessage(), clock));
+    }
+
+    @ExceptionHandler(MonitorAlreadyExistsException.class)
+    public ResponseEntity<ApiResponse<String>> handleMonitorAlreadyExists(MonitorAlreadyExistsException ex) {
+        logger.warn("Monitor already exists: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(ex.getMessage(), clock));
+    }
+
+    @ExceptionHandler(ChangeSequenceExpiredException.class)
+    public ResponseEntity<ApiResponse<String>> handleChangeSequenceExpired(ChangeSequenceExpiredException ex) {
+        logger.debug("Change sequence expired: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.GONE)
+                .body(ApiResponse.error(ex.getMessage(), clock));
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -35,20 +56,20 @@ public class GlobalExceptionHandler {
             errors.put(fieldName, errorMessage);
         });
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(ApiResponse.error("Validation failed"));
+                .body(ApiResponse.error("Validation failed", clock));
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiResponse<String>> handleIllegalArgument(IllegalArgumentException ex) {
         logger.warn("Illegal argument: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .body(ApiResponse.error(ex.getMessage()));
+                .body(ApiResponse.error(ex.getMessage(), clock));
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<String>> handleGenericException(Exception ex) {
         logger.error("Unexpected error occurred", ex);
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error("An unexpected error occurred"));
+                .body(ApiResponse.error("An unexpected error occurred", clock));
     }
 }
@@ -0,0 +1,16 @@
+package com.critmon.pulsecheck.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class MonitorAlreadyExistsException extends RuntimeException {
+    
+    public MonitorAlreadyExistsException(String message) {
+        super(message);
+    }
+    
+    public MonitorAlreadyExistsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
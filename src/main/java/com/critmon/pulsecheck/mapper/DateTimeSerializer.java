@@ -0,0 +1,25 @@
+package com.critmon.pulsecheck.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Writes date-times with {@link MonitorJsonWriter}'s formatting, so responses built by data
+ * binding print them exactly as the hand-written ones do, without the formatter.
+ */
+public class DateTimeSerializer extends StdSerializer<LocalDateTime> {
+
+    public DateTimeSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        char[] text = new char[MonitorJsonWriter.DATE_TIME_MAX_LENGTH];
+        generator.writeString(text, 0, MonitorJsonWriter.formatDateTime(value, text));
+    }
+}
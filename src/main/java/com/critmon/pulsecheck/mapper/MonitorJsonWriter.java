@@ -0,0 +1,265 @@
+package com.critmon.pulsecheck.mapper;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Writes the hot responses (a heartbeat acknowledgement, one monitor, a page of monitors) straight
+ * from {@link Monitor} to compact JSON bytes, without building {@code MonitorResponse} and
+ * {@code ApiResponse} objects or going through data binding. Field names and the constant parts of
+ * the envelope are encoded once.
+ *
+ * <p>The output is what Jackson produces for {@code ApiResponse<MonitorResponse>} and
+ * {@code ApiResponse<MonitorPageResponse>} with the application's settings: the same property names
+ * and order, ISO-8601 local date-times and null values left out.
+ */
+public class MonitorJsonWriter {
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    // "+999999999-12-31T23:59:59.999999999"
+    static final int DATE_TIME_MAX_LENGTH = 36;
+
+    private static final SerializableString SUCCESS_PREFIX =
+            new SerializedString("{\"success\":true,\"message\":\"Operation successful\",\"data\":");
+    private static final SerializableString TIMESTAMP_FIELD = new SerializedString(",\"timestamp\":\"");
+
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString DEVICE_ID = new SerializedString("deviceId");
+    private static final SerializableString TIMEOUT = new SerializedString("timeout");
+    private static final SerializableString ALERT_EMAIL = new SerializedString("alertEmail");
+    private static final SerializableString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializableString LAST_HEARTBEAT = new SerializedString("lastHeartbeat");
+    private static final SerializableString EXPIRES_AT = new SerializedString("expiresAt");
+    private static final SerializableString ACTIVE = new SerializedString("active");
+    private static final SerializableString PAUSED = new SerializedString("paused");
+
+    private static final SerializableString MONITORS = new SerializedString("monitors");
+    private static final SerializableString LIMIT = new SerializedString("limit");
+    private static final SerializableString NEXT_CURSOR = new SerializedString("nextCursor");
+    private static final SerializableString SEQUENCE = new SerializedString("sequence");
+    private static final SerializableString DELETED = new SerializedString("deleted");
+
+    private static final byte[] HEARTBEAT_PREFIX =
+            "{\"success\":true,\"message\":\"Heartbeat received for device: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT_TIMESTAMP = "\",\"timestamp\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEARTBEAT_SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final JsonFactory jsonFactory;
+    private final ZoneId zone;
+
+    /**
+     * @param zone the zone of the application clock, in which deadlines are shown
+     */
+    public MonitorJsonWriter(JsonFactory jsonFactory, ZoneId zone) {
+        this.jsonFactory = jsonFactory;
+        this.zone = zone;
+    }
+
+    /**
+     * The body of a successful heartbeat. The device ID is the only part escaped per call.
+     */
+    public byte[] heartbeat(Monitor monitor, LocalDateTime timestamp) {
+        byte[] deviceId = JsonStringEncoder.getInstance().quoteAsUTF8(monitor.getDeviceId());
+        char[] time = new char[DATE_TIME_MAX_LENGTH];
+        int timeLength = formatDateTime(timestamp, time);
+        byte[] body = new byte[HEARTBEAT_PREFIX.length + deviceId.length + HEARTBEAT_TIMESTAMP.length
+                + timeLength + HEARTBEAT_SUFFIX.length];
+        int offset = append(body, 0, HEARTBEAT_PREFIX);
+        offset = append(body, offset, deviceId);
+        offset = append(body, offset, HEARTBEAT_TIMESTAMP);
+        for (int i = 0; i < timeLength; i++) {
+            body[offset++] = (byte) time[i];
+        }
+        append(body, offset, HEARTBEAT_SUFFIX);
+        return body;
+    }
+
+    public byte[] monitor(Monitor monitor, LocalDateTime timestamp) {
+        ByteArrayBuilder bytes = new ByteArrayBuilder(512);
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            writeEnvelopeStart(generator);
+            writeMonitor(generator, monitor);
+            writeEnvelopeEnd(generator, timestamp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param nextCursor left out when null, on the last page
+     * @param sequence change sequence the page is at least as new as
+     */
+    public byte[] page(List<Monitor> monitors, int limit, String nextCursor, String sequence, LocalDateTime timestamp) {
+        ByteArrayBuilder bytes = new ByteArrayBuilder(256 + monitors.size() * 320);
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            writeEnvelopeStart(generator);
+            generator.writeStartObject();
+            writeMonitors(generator, monitors);
+            generator.writeFieldName(LIMIT);
+            generator.writeNumber(limit);
+            if (nextCursor != null) {
+                generator.writeFieldName(NEXT_CURSOR);
+                generator.writeString(nextCursor);
+            }
+            writeString(generator, SEQUENCE, sequence);
+            generator.writeEndObject();
+            writeEnvelopeEnd(generator, timestamp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Monitors changed after a change sequence, the IDs of deleted ones and the sequence to
+     * continue from.
+     */
+    public byte[] changes(List<Monitor> monitors, List<String> deleted, String sequence, LocalDateTime timestamp) {
+        ByteArrayBuilder bytes = new ByteArrayBuilder(256 + monitors.size() * 320 + deleted.size() * 40);
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            writeEnvelopeStart(generator);
+            generator.writeStartObject();
+            writeMonitors(generator, monitors);
+            generator.writeFieldName(DELETED);
+            generator.writeStartArray();
+            for (String id : deleted) {
+                generator.writeString(id);
+            }
+            generator.writeEndArray();
+            writeString(generator, SEQUENCE, sequence);
+            generator.writeEndObject();
+            writeEnvelopeEnd(generator, timestamp);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * One monitor object, with the fields of {@code MonitorResponse}.
+     */
+    public void writeMonitor(JsonGenerator generator, Monitor monitor) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, ID, monitor.getId());
+        writeString(generator, DEVICE_ID, monitor.getDeviceId());
+        generator.writeFieldName(TIMEOUT);
+        generator.writeNumber(monitor.getTimeout());
+        writeString(generator, ALERT_EMAIL, monitor.getAlertEmail());
+        writeDateTime(generator, CREATED_AT, monitor.getCreatedAt());
+        writeDateTime(generator, LAST_HEARTBEAT, monitor.getLastHeartbeat(zone));
+        writeDateTime(generator, EXPIRES_AT, monitor.getExpiresAt(zone));
+        generator.writeFieldName(ACTIVE);
+        generator.writeBoolean(monitor.isActive());
+        generator.writeFieldName(PAUSED);
+        generator.writeBoolean(monitor.isPaused());
+        generator.writeEndObject();
+    }
+
+    /**
+     * A strong entity tag for the monitor's representation. The version alone could repeat when
+     * two nodes change the same monitor before either flushed, so the timer state is included.
+     */
+    public static String entityTag(Monitor monitor) {
+        return monitor.getVersionOrZero() + "-" + Long.toString(monitor.getLastHeartbeatMillis(), 36)
+                + "-" + monitor.getStatus().ordinal();
+    }
+
+    private void writeMonitors(JsonGenerator generator, List<Monitor> monitors) throws IOException {
+        generator.writeFieldName(MONITORS);
+        generator.writeStartArray();
+        for (Monitor monitor : monitors) {
+            writeMonitor(generator, monitor);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeEnvelopeStart(JsonGenerator generator) throws IOException {
+        // Written raw, so the generator sees the data value as the root
+        generator.writeRaw(SUCCESS_PREFIX);
+    }
+
+    private static void writeEnvelopeEnd(JsonGenerator generator, LocalDateTime timestamp) throws IOException {
+        char[] time = new char[DATE_TIME_MAX_LENGTH];
+        generator.writeRaw(TIMESTAMP_FIELD);
+        generator.writeRaw(time, 0, formatDateTime(timestamp, time));
+        generator.writeRaw("\"}");
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeDateTime(JsonGenerator generator, SerializableString name, LocalDateTime value) throws IOException {
+        if (value != null) {
+            char[] text = new char[DATE_TIME_MAX_LENGTH];
+            generator.writeFieldName(name);
+            generator.writeString(text, 0, formatDateTime(value, text));
+        }
+    }
+
+    /**
+     * Writes {@code value} as {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} prints it (seconds
+     * always, the fraction only when non-zero and without trailing zeros) and returns the length.
+     * Four date-times per monitor made the formatter the largest cost of a response.
+     */
+    static int formatDateTime(LocalDateTime value, char[] text) {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            String formatted = DATE_TIME.format(value);
+            formatted.getChars(0, formatted.length(), text, 0);
+            return formatted.length();
+        }
+        writeDigits(text, 0, year, 4);
+        text[4] = '-';
+        writeDigits(text, 5, value.getMonthValue(), 2);
+        text[7] = '-';
+        writeDigits(text, 8, value.getDayOfMonth(), 2);
+        text[10] = 'T';
+        writeDigits(text, 11, value.getHour(), 2);
+        text[13] = ':';
+        writeDigits(text, 14, value.getMinute(), 2);
+        text[16] = ':';
+        writeDigits(text, 17, value.getSecond(), 2);
+        int nano = value.getNano();
+        if (nano == 0) {
+            return 19;
+        }
+        text[19] = '.';
+        writeDigits(text, 20, nano, 9);
+        int length = 29;
+        while (text[length - 1] == '0') {
+            length--;
+        }
+        return length;
+    }
+
+    private static void writeDigits(char[] text, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int append(byte[] target, int offset, byte[] source) {
+        System.arraycopy(source, 0, target, offset, source.length);
+        return offset + source.length;
+    }
+}
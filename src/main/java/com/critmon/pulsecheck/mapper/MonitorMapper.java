@@ -3,29 +3,31 @@ package com.critmon.pulsecheck.mapper;
 import com.critmon.pulsecheck.dto.MonitorResponse;
 import com.critmon.pulsecheck.model.Monitor;
 
+import java.time.ZoneId;
+
 public class MonitorMapper {
     
-    public static MonitorResponse toResponse(Monitor monitor) {
+    public static MonitorResponse toResponse(Monitor monitor, ZoneId zone) {
         return MonitorResponse.builder()
                 .id(monitor.getId())
                 .deviceId(monitor.getDeviceId())
                 .timeout(monitor.getTimeout())
                 .alertEmail(monitor.getAlertEmail())
                 .createdAt(monitor.getCreatedAt())
-                .lastHeartbeat(monitor.getLastHeartbeat())
+                .lastHeartbeat(monitor.getLastHeartbeat(zone))
                 .isActive(monitor.isActive())
                 .isPaused(monitor.isPaused())
-                .expiresAt(monitor.getExpiresAt())
+                .expiresAt(monitor.getExpiresAt(zone))
                 .build();
     }
     
-    public static MonitorResponse toSimpleResponse(Monitor monitor) {
+    public static MonitorResponse toSimpleResponse(Monitor monitor, ZoneId zone) {
         return MonitorResponse.builder()
                 .id(monitor.getId())
                 .deviceId(monitor.getDeviceId())
                 .isActive(monitor.isActive())
                 .isPaused(monitor.isPaused())
-                .expiresAt(monitor.getExpiresAt())
+                .expiresAt(monitor.getExpiresAt(zone))
                 .build();
     }
 }
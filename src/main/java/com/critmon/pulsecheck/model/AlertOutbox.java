@@ -0,0 +1,84 @@
+package com.critmon.pulsecheck.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+/**
+ * A pending or delivered alert. The row is written before the monitor is marked alerted and
+ * carries everything needed to render the email, so delivery never re-reads the monitor.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "alert_outbox")
+public class AlertOutbox {
+
+    /**
+     * Deterministic alert key, so detecting the same expiry twice never queues a second alert.
+     */
+    @Id
+    private String id;
+
+    private String monitorId;
+
+    private Integer partitionKey;
+
+    private String deviceId;
+
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    private AlertType type;
+
+    private int timeout;
+
+    private LocalDateTime lastHeartbeat;
+
+    private LocalDateTime expiresAt;
+
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private AlertStatus status = AlertStatus.PENDING;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+
+    private String lastError;
+
+    public static String key(String monitorId, AlertType type, long expiresAtMillis) {
+        return monitorId + ":" + type + ":" + expiresAtMillis;
+    }
+
+    /**
+     * @param clock the application clock, which dates the alert and gives the zone of its timestamps
+     */
+    public static AlertOutbox forMonitor(Monitor monitor, AlertType type, Clock clock) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        return AlertOutbox.builder()
+                .id(key(monitor.getId(), type, monitor.getExpiresAtMillis()))
+                .monitorId(monitor.getId())
+                .partitionKey(monitor.getPartitionKey())
+                .deviceId(monitor.getDeviceId())
+                .recipient(monitor.getAlertEmail())
+                .type(type)
+                .timeout(monitor.getTimeout())
+                .lastHeartbeat(monitor.getLastHeartbeat(clock.getZone()))
+                .expiresAt(monitor.getExpiresAt(clock.getZone()))
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.critmon.pulsecheck.model;
+
+public enum AlertStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
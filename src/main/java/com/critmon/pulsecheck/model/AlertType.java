@@ -0,0 +1,6 @@
+package com.critmon.pulsecheck.model;
+
+public enum AlertType {
+    EXPIRED,
+    RECOVERED
+}
@@ -0,0 +1,28 @@
+package com.critmon.pulsecheck.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Liveness record of a running node, used to compute each node's fair share of shards.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "cluster_nodes")
+public class ClusterNode {
+
+    @Id
+    private String nodeId;
+
+    private LocalDateTime expiresAt;
+}
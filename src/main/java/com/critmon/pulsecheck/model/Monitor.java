@@ -5,18 +5,31 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.Builder;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.UUID;
 
 
 
 @Entity
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "monitors")
+@Table(name = "monitors", indexes = {
+        // Mirrors the Flyway migrations for schemas generated by Hibernate; see db/migration
+        @Index(name = "uk_monitors_device_id", columnList = "deviceId", unique = true),
+        @Index(name = "idx_monitors_alert_email", columnList = "alertEmail"),
+        @Index(name = "idx_monitors_armed_expires_at_ms", columnList = "isActive, isPaused, expiresAtMillis")
+})
 public class Monitor {
+
+    /**
+     * Fixed number of hash partitions. Nodes lease shards, and a shard owns every partition
+     * whose key modulo the shard count equals the shard number.
+     */
+    public static final int PARTITIONS = 4096;
     
     @Id
     @Builder.Default
@@ -29,12 +42,14 @@ public class Monitor {
 
     private String alertEmail;
 
-    @Builder.Default
-    private LocalDateTime createdAt = LocalDateTime.now();
+    private LocalDateTime createdAt;
     
 
-    @Builder.Default
-    private LocalDateTime lastHeartbeat = LocalDateTime.now();
+    /**
+     * Timer state in epoch milliseconds, so expiry checks compare plain longs in memory and in SQL.
+     */
+    @Column(name = "last_heartbeat_ms")
+    private long lastHeartbeatMillis;
     
 
     @Builder.Default
@@ -45,11 +60,37 @@ public class Monitor {
     private boolean isPaused = false;
     
 
-    private LocalDateTime expiresAt;
+    /**
+     * Deadline in epoch milliseconds, or 0 if the timer was never started.
+     */
+    @Column(name = "expires_at_ms")
+    private long expiresAtMillis;
+
+    private Integer partitionKey;
+
+    /**
+     * Raised on every state change, by the state store in memory and by expiry claims in SQL. Null
+     * only for a monitor that was never persisted, which makes {@code save} insert it.
+     */
+    @Version
+    private Long version;
 
-    public void resetTimer() {
-        this.lastHeartbeat = LocalDateTime.now();
-        this.expiresAt = LocalDateTime.now().plusSeconds(timeout);
+    public static int partitionOf(String id) {
+        return Math.floorMod(id.hashCode(), PARTITIONS);
+    }
+
+    public Integer getPartitionKey() {
+        return partitionKey != null ? partitionKey : partitionOf(id);
+    }
+
+    @PrePersist
+    void assignPartitionKey() {
+        this.partitionKey = getPartitionKey();
+    }
+
+    public void resetTimer(long nowMillis) {
+        this.lastHeartbeatMillis = nowMillis;
+        this.expiresAtMillis = nowMillis + timeout * 1000L;
         this.isPaused = false;
         this.isActive = true;
     }
@@ -58,14 +99,38 @@ public class Monitor {
         this.isPaused = true;
     }
 
-    public void resume() {
+    public void resume(long nowMillis) {
         this.isPaused = false;
-        this.resetTimer();
+        this.resetTimer(nowMillis);
     }
 
-    public boolean isExpired() {
-        return isActive && !isPaused && expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+    public long getVersionOrZero() {
+        return version != null ? version : 0;
     }
 
+    public MonitorStatus getStatus() {
+        return MonitorStatus.of(isActive, isPaused);
+    }
 
+    public boolean isExpired(long nowMillis) {
+        return isActive && !isPaused && expiresAtMillis != 0 && nowMillis > expiresAtMillis;
+    }
+
+    /**
+     * @param zone the zone of the application clock
+     */
+    public LocalDateTime getLastHeartbeat(ZoneId zone) {
+        return toLocalDateTime(lastHeartbeatMillis, zone);
+    }
+
+    /**
+     * @param zone the zone of the application clock
+     */
+    public LocalDateTime getExpiresAt(ZoneId zone) {
+        return toLocalDateTime(expiresAtMillis, zone);
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis, ZoneId zone) {
+        return epochMillis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+    }
 }
@@ -0,0 +1,17 @@
+package com.critmon.pulsecheck.model;
+
+/**
+ * Coarse monitor state used for dashboard counters and state transitions.
+ */
+public enum MonitorStatus {
+    UP,
+    DOWN,
+    PAUSED;
+
+    public static MonitorStatus of(boolean active, boolean paused) {
+        if (paused) {
+            return PAUSED;
+        }
+        return active ? UP : DOWN;
+    }
+}
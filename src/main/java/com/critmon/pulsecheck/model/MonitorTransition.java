@@ -0,0 +1,29 @@
+package com.critmon.pulsecheck.model;
+
+/**
+ * A change of {@link MonitorStatus} that other components may react to.
+ */
+public enum MonitorTransition {
+    /** UP to DOWN: the monitor missed its deadline and was alerted. */
+    EXPIRED,
+    /** DOWN to UP: a heartbeat arrived for an alerted monitor. */
+    RECOVERED,
+    PAUSED,
+    RESUMED;
+
+    /**
+     * @return the transition between two states, or null if the state did not change
+     */
+    public static MonitorTransition between(MonitorStatus before, MonitorStatus after) {
+        if (before == after) {
+            return null;
+        }
+        if (after == MonitorStatus.PAUSED) {
+            return PAUSED;
+        }
+        if (before == MonitorStatus.PAUSED) {
+            return RESUMED;
+        }
+        return after == MonitorStatus.UP ? RECOVERED : EXPIRED;
+    }
+}
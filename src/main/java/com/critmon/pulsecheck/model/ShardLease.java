@@ -0,0 +1,31 @@
+package com.critmon.pulsecheck.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time-bounded ownership of one expiry shard. A node only sweeps and alerts for monitors in
+ * shards it holds an unexpired lease on.
+ */
+@Entity
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "shard_leases")
+public class ShardLease {
+
+    @Id
+    private Integer shard;
+
+    private String owner;
+
+    private LocalDateTime expiresAt;
+}
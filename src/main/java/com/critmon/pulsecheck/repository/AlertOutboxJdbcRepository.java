@@ -0,0 +1,53 @@
+package com.critmon.pulsecheck.repository;
+
+import com.critmon.pulsecheck.model.AlertOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Batch inserts into the alert outbox, used when a whole batch of expirations is recorded at once.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AlertOutboxJdbcRepository {
+
+    /**
+     * Skips alerts whose deterministic key already exists, so re-recording an expiry is a no-op
+     * even when two threads record it concurrently. Also understood by H2 in PostgreSQL mode.
+     */
+    private static final String INSERT_IF_ABSENT =
+            "INSERT INTO alert_outbox (id, monitor_id, partition_key, device_id, recipient, type, timeout, " +
+            "last_heartbeat, expires_at, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void insertAllIfAbsent(List<AlertOutbox> alerts, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, alerts, batchSize, (ps, alert) -> {
+            ps.setString(1, alert.getId());
+            ps.setString(2, alert.getMonitorId());
+            ps.setInt(3, alert.getPartitionKey());
+            ps.setString(4, alert.getDeviceId());
+            ps.setString(5, alert.getRecipient());
+            ps.setString(6, alert.getType().name());
+            ps.setInt(7, alert.getTimeout());
+            ps.setTimestamp(8, toTimestamp(alert.getLastHeartbeat()));
+            ps.setTimestamp(9, toTimestamp(alert.getExpiresAt()));
+            ps.setString(10, alert.getStatus().name());
+            ps.setInt(11, alert.getAttempts());
+            ps.setTimestamp(12, toTimestamp(alert.getNextAttemptAt()));
+            ps.setTimestamp(13, toTimestamp(alert.getCreatedAt()));
+        });
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.valueOf(dateTime);
+    }
+}
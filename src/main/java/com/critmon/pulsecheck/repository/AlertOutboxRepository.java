@@ -0,0 +1,56 @@
+package com.critmon.pulsecheck.repository;
+
+import com.critmon.pulsecheck.model.AlertOutbox;
+import com.critmon.pulsecheck.model.AlertStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AlertOutboxRepository extends JpaRepository<AlertOutbox, String> {
+
+    @Query("SELECT a FROM AlertOutbox a WHERE a.status = :status AND a.nextAttemptAt <= :now ORDER BY a.nextAttemptAt")
+    List<AlertOutbox> findDue(@Param("status") AlertStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT a FROM AlertOutbox a WHERE a.status = :status AND a.nextAttemptAt <= :now " +
+           "AND MOD(a.partitionKey, :shardCount) IN :shards ORDER BY a.nextAttemptAt")
+    List<AlertOutbox> findDueInShards(@Param("status") AlertStatus status,
+                                      @Param("now") LocalDateTime now,
+                                      @Param("shardCount") int shardCount,
+                                      @Param("shards") Collection<Integer> shards,
+                                      Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AlertOutbox a SET a.status = com.critmon.pulsecheck.model.AlertStatus.SENT, a.sentAt = :sentAt, a.attempts = a.attempts + 1, " +
+           "a.lastError = NULL WHERE a.id IN :ids")
+    int markSent(@Param("ids") Collection<String> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AlertOutbox a SET a.status = :status, a.attempts = :attempts, " +
+           "a.nextAttemptAt = :nextAttemptAt, a.lastError = :lastError WHERE a.id = :id")
+    int reschedule(@Param("id") String id,
+                   @Param("status") AlertStatus status,
+                   @Param("attempts") int attempts,
+                   @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE AlertOutbox a SET a.nextAttemptAt = :nextAttemptAt WHERE a.id IN :ids")
+    int defer(@Param("ids") Collection<String> ids, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AlertOutbox a WHERE a.status = com.critmon.pulsecheck.model.AlertStatus.SENT AND a.sentAt < :before")
+    int deleteSentBefore(@Param("before") LocalDateTime before);
+}
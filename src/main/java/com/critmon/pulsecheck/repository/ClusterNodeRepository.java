@@ -0,0 +1,23 @@
+package com.critmon.pulsecheck.repository;
+
+import com.critmon.pulsecheck.model.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    @Query("SELECT COUNT(n) FROM ClusterNode n WHERE n.expiresAt > :now")
+    long countLive(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ClusterNode n WHERE n.expiresAt <= :before")
+    int deleteExpired(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,11 @@
+package com.critmon.pulsecheck.repository;
+
+/**
+ * Projection used to rebuild the in-memory expiry schedule without loading full entities.
+ */
+public interface MonitorDeadline {
+
+    String getId();
+
+    long getExpiresAtMillis();
+}
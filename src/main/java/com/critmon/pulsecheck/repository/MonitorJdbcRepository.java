@@ -0,0 +1,217 @@
+package com.critmon.pulsecheck.repository;
+
+import com.critmon.pulsecheck.model.Monitor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Set-based writes that bypass the JPA persistence context so they can be sent as JDBC batches.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MonitorJdbcRepository {
+
+    private static final String MONITOR_COLUMNS =
+            "id, device_id, timeout, alert_email, created_at, last_heartbeat_ms, is_active, is_paused, expires_at_ms, partition_key, version";
+
+    private static final String EXPIRED_CONDITION =
+            "is_active = TRUE AND is_paused = FALSE AND expires_at_ms <> 0 AND expires_at_ms < :cutoffMillis";
+
+    private static final String SHARD_CONDITION =
+            " AND MOD(partition_key, :shardCount) IN (:shards)";
+
+    /**
+     * PostgreSQL: lock, flip and return the batch in a single statement. Rows locked by a
+     * concurrent claimer are skipped rather than waited for.
+     */
+    private static final String CLAIM_EXPIRED_POSTGRES =
+            "WITH claimed AS (SELECT id FROM monitors WHERE " + EXPIRED_CONDITION + "%s " +
+            "ORDER BY expires_at_ms LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "UPDATE monitors m SET is_active = FALSE, version = m.version + 1 FROM claimed WHERE m.id = claimed.id " +
+            "RETURNING m.id, m.device_id, m.timeout, m.alert_email, m.created_at, m.last_heartbeat_ms, " +
+            "m.is_active, m.is_paused, m.expires_at_ms, m.partition_key, m.version";
+
+    /**
+     * Fallback for databases without UPDATE ... RETURNING (e.g. H2): lock the batch first, then
+     * flip the locked rows in the same transaction.
+     */
+    private static final String SELECT_EXPIRED_FOR_UPDATE =
+            "SELECT " + MONITOR_COLUMNS + " FROM monitors WHERE " + EXPIRED_CONDITION + "%s " +
+            "ORDER BY expires_at_ms LIMIT :limit FOR UPDATE SKIP LOCKED";
+
+    private static final String MARK_INACTIVE =
+            "UPDATE monitors SET is_active = FALSE, version = version + 1 WHERE id = ?";
+
+    /**
+     * Restores the pre-claim version too: the claim transaction still holds the row lock, so
+     * nothing else can have written the row in between, and the row matches the version the
+     * state store holds for it again.
+     */
+    private static final String MARK_ACTIVE =
+            "UPDATE monitors SET is_active = TRUE, version = version - 1 WHERE id IN (:ids)";
+
+    private static final RowMapper<Monitor> MONITOR_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        int partitionKey = rs.getInt("partition_key");
+        return Monitor.builder()
+                .id(rs.getString("id"))
+                .deviceId(rs.getString("device_id"))
+                .timeout(rs.getInt("timeout"))
+                .alertEmail(rs.getString("alert_email"))
+                .createdAt(createdAt == null ? null : createdAt.toLocalDateTime())
+                .lastHeartbeatMillis(rs.getLong("last_heartbeat_ms"))
+                .isActive(rs.getBoolean("is_active"))
+                .isPaused(rs.getBoolean("is_paused"))
+                .expiresAtMillis(rs.getLong("expires_at_ms"))
+                .partitionKey(rs.wasNull() ? null : partitionKey)
+                .version(rs.getLong("version"))
+                .build();
+    };
+
+    private static final String UPDATE_TIMER_STATE =
+            "UPDATE monitors SET last_heartbeat_ms = ?, expires_at_ms = ?, is_active = ?, is_paused = ?, version = ? WHERE id = ?";
+
+    private static final String INSERT_MONITOR =
+            "INSERT INTO monitors (id, device_id, timeout, alert_email, created_at, last_heartbeat_ms, " +
+            "is_active, is_paused, expires_at_ms, partition_key, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT DO NOTHING";
+
+    private static final String UPDATE_PARTITION_KEY =
+            "UPDATE monitors SET partition_key = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private volatile Boolean postgres;
+
+    /**
+     * Inserts new monitors in JDBC batches of {@code batchSize} within one transaction. Rows that
+     * conflict with the unique device index are skipped rather than failing the whole batch.
+     *
+     * @return the monitors that were not inserted because their device already has a monitor
+     */
+    @Transactional
+    public List<Monitor> insertAll(List<Monitor> monitors, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_MONITOR, monitors, batchSize, (ps, monitor) -> {
+            ps.setString(1, monitor.getId());
+            ps.setString(2, monitor.getDeviceId());
+            ps.setInt(3, monitor.getTimeout());
+            ps.setString(4, monitor.getAlertEmail());
+            ps.setTimestamp(5, toTimestamp(monitor.getCreatedAt()));
+            ps.setLong(6, monitor.getLastHeartbeatMillis());
+            ps.setBoolean(7, monitor.isActive());
+            ps.setBoolean(8, monitor.isPaused());
+            ps.setLong(9, monitor.getExpiresAtMillis());
+            ps.setInt(10, monitor.getPartitionKey());
+            ps.setLong(11, monitor.getVersionOrZero());
+        });
+        List<Monitor> skipped = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // SUCCESS_NO_INFO (-2) only reports that the statement ran, which means it was inserted
+                if (count == 0) {
+                    skipped.add(monitors.get(index));
+                }
+                index++;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Writes the timer state of the given monitors in JDBC batches of {@code batchSize}.
+     */
+    @Transactional
+    public void updateTimerStates(List<Monitor> monitors, int batchSize) {
+        jdbcTemplate.batchUpdate(UPDATE_TIMER_STATE, monitors, batchSize, (ps, monitor) -> {
+            ps.setLong(1, monitor.getLastHeartbeatMillis());
+            ps.setLong(2, monitor.getExpiresAtMillis());
+            ps.setBoolean(3, monitor.isActive());
+            ps.setBoolean(4, monitor.isPaused());
+            ps.setLong(5, monitor.getVersionOrZero());
+            ps.setString(6, monitor.getId());
+        });
+    }
+
+    /**
+     * Backfills the partition key of monitors created before partitioning was introduced.
+     */
+    @Transactional
+    public void assignPartitionKeys(List<String> ids, int batchSize) {
+        jdbcTemplate.batchUpdate(UPDATE_PARTITION_KEY, ids, batchSize, (ps, id) -> {
+            ps.setInt(1, Monitor.partitionOf(id));
+            ps.setString(2, id);
+        });
+    }
+
+    /**
+     * Atomically claims up to {@code limit} monitors that expired before {@code cutoffMillis}, marks
+     * them inactive and returns them as they were claimed (already inactive). Concurrent callers,
+     * on this node or others, receive disjoint batches. Must run inside the caller's transaction,
+     * so the claim commits together with whatever is recorded for the claimed monitors.
+     *
+     * @param shards only claim monitors in these shards, or null for all
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Monitor> claimExpiredBatch(long cutoffMillis, int limit, int shardCount, Collection<Integer> shards) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoffMillis", cutoffMillis)
+                .addValue("limit", limit);
+        String shardCondition = "";
+        if (shards != null) {
+            shardCondition = SHARD_CONDITION;
+            params.addValue("shardCount", shardCount).addValue("shards", shards);
+        }
+        if (isPostgres()) {
+            return namedJdbcTemplate.query(String.format(CLAIM_EXPIRED_POSTGRES, shardCondition), params, MONITOR_ROW_MAPPER);
+        }
+        List<Monitor> claimed = namedJdbcTemplate.query(
+                String.format(SELECT_EXPIRED_FOR_UPDATE, shardCondition), params, MONITOR_ROW_MAPPER);
+        jdbcTemplate.batchUpdate(MARK_INACTIVE, claimed, limit, (ps, monitor) -> ps.setString(1, monitor.getId()));
+        claimed.forEach(monitor -> {
+            monitor.setActive(false);
+            monitor.setVersion(monitor.getVersionOrZero() + 1);
+        });
+        return claimed;
+    }
+
+    /**
+     * Undoes a claim for monitors that turned out to have a newer heartbeat in memory, leaving
+     * the rows exactly as they were before. Must run in the transaction that claimed them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void unclaim(Collection<String> ids) {
+        if (!ids.isEmpty()) {
+            namedJdbcTemplate.update(MARK_ACTIVE, new MapSqlParameterSource("ids", ids));
+        }
+    }
+
+    public boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            result = product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+            postgres = result;
+        }
+        return result;
+    }
+
+    private static Timestamp toTimestamp(LocalDateTime dateTime) {
+        return dateTime == null ? null : Timestamp.valueOf(dateTime);
+    }
+}
@@ -1,29 +1,105 @@
 package com.critmon.pulsecheck.repository;
 
 import com.critmon.pulsecheck.model.Monitor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface MonitorRepository extends JpaRepository<Monitor, String> {
+
+    String FILTERED_MONITORS = "SELECT m FROM Monitor m WHERE " +
+            "(:active IS NULL OR m.isActive = :active) AND " +
+            "(:paused IS NULL OR m.isPaused = :paused) AND " +
+            "(:devicePattern IS NULL OR m.deviceId LIKE :devicePattern ESCAPE '\\') AND " +
+            "(:alertEmail IS NULL OR m.alertEmail = :alertEmail)";
+
     List<Monitor> findByDeviceId(String deviceId);
+
+    @Query("SELECT DISTINCT m.deviceId FROM Monitor m WHERE m.deviceId IN :deviceIds")
+    Set<String> findExistingDeviceIds(@Param("deviceIds") Collection<String> deviceIds);
+
+    @Query("SELECT m FROM Monitor m WHERE m.id IN :keys OR m.deviceId IN :keys")
+    List<Monitor> findByIdOrDeviceIdIn(@Param("keys") Collection<String> keys);
     @Query("SELECT m FROM Monitor m WHERE m.isActive = true")
     List<Monitor> findActiveMonitors();
 
     @Query("SELECT COUNT(m) FROM Monitor m WHERE m.isActive = true")
     long countActiveMonitors();
 
+    @Query("SELECT m.isActive, m.isPaused, COUNT(m) FROM Monitor m GROUP BY m.isActive, m.isPaused")
+    List<Object[]> countGroupedByState();
+
+    @Query("SELECT COUNT(m) FROM Monitor m WHERE m.isActive = false AND m.expiresAtMillis >= :sinceMillis")
+    long countAlertedSince(@Param("sinceMillis") long sinceMillis);
+
     List<Monitor> findByAlertEmail(String alertEmail);
 
+    /**
+     * Deletes without loading the row first. {@code deleteById} would check the loaded
+     * {@code version}, which a concurrent write-behind flush may just have raised.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Monitor m WHERE m.id = :id")
+    int deleteMonitor(@Param("id") String id);
+
+    /**
+     * One keyset page of monitors ordered by ID, starting after the given ID.
+     */
+    @Query(FILTERED_MONITORS + " AND (:after IS NULL OR m.id > :after) ORDER BY m.id")
+    List<Monitor> findPage(@Param("active") Boolean active,
+                           @Param("paused") Boolean paused,
+                           @Param("devicePattern") String devicePattern,
+                           @Param("alertEmail") String alertEmail,
+                           @Param("after") String after,
+                           Pageable pageable);
+
+    /**
+     * Streams matching monitors from a server-side cursor; must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(FILTERED_MONITORS + " ORDER BY m.id")
+    Stream<Monitor> streamFiltered(@Param("active") Boolean active,
+                                   @Param("paused") Boolean paused,
+                                   @Param("devicePattern") String devicePattern,
+                                   @Param("alertEmail") String alertEmail);
+
+    /**
+     * Time parameters are epoch milliseconds from the application {@link java.time.Clock}, never
+     * the database clock, so SQL and in-memory checks agree.
+     */
     @Query("SELECT m FROM Monitor m WHERE m.isActive = true AND " +
-           "m.lastHeartbeat <= CURRENT_TIMESTAMP - (:minutes * 60) SECOND")
-    List<Monitor> findMonitorsExpiringWithin(@Param("minutes") int minutes);
+           "m.lastHeartbeatMillis <= :nowMillis - :minutes * 60000")
+    List<Monitor> findMonitorsExpiringWithin(@Param("nowMillis") long nowMillis, @Param("minutes") int minutes);
+
+    @Query("SELECT m FROM Monitor m WHERE m.isActive = true AND m.isPaused = false AND " +
+           "m.expiresAtMillis <> 0 AND m.expiresAtMillis < :nowMillis")
+    List<Monitor> findExpiredMonitors(@Param("nowMillis") long nowMillis);
+
+    @Query("SELECT m.id AS id, m.expiresAtMillis AS expiresAtMillis FROM Monitor m " +
+           "WHERE m.isActive = true AND m.isPaused = false AND m.expiresAtMillis <> 0")
+    List<MonitorDeadline> findArmedDeadlines();
+
+    @Query("SELECT m.id AS id, m.expiresAtMillis AS expiresAtMillis FROM Monitor m " +
+           "WHERE m.isActive = true AND m.isPaused = false AND m.expiresAtMillis <> 0 " +
+           "AND MOD(m.partitionKey, :shardCount) IN :shards")
+    List<MonitorDeadline> findArmedDeadlinesInShards(@Param("shardCount") int shardCount,
+                                                     @Param("shards") Collection<Integer> shards);
 
-    @Query("SELECT m FROM Monitor m WHERE m.isActive = true AND m.isPaused = false AND m.expiresAt < CURRENT_TIMESTAMP")
-    List<Monitor> findExpiredMonitors();
+    @Query("SELECT m.id FROM Monitor m WHERE m.partitionKey IS NULL")
+    List<String> findIdsWithoutPartitionKey(Pageable pageable);
 }
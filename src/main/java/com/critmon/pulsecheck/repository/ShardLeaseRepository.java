@@ -0,0 +1,59 @@
+package com.critmon.pulsecheck.repository;
+
+import com.critmon.pulsecheck.model.ShardLease;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public interface ShardLeaseRepository extends JpaRepository<ShardLease, Integer> {
+
+    @Query("SELECT l.shard FROM ShardLease l")
+    Set<Integer> findAllShards();
+
+    @Query("SELECT l.shard FROM ShardLease l WHERE l.owner = :owner AND l.expiresAt > :now ORDER BY l.shard")
+    List<Integer> findOwned(@Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Query("SELECT l.shard FROM ShardLease l WHERE l.shard < :shardCount AND " +
+           "(l.owner IS NULL OR l.expiresAt <= :now) ORDER BY l.shard")
+    List<Integer> findClaimable(@Param("shardCount") int shardCount, @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Extends every lease the owner still holds. Leases that already expired are not renewed,
+     * since another node may have claimed them in the meantime.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLease l SET l.expiresAt = :expiresAt WHERE l.owner = :owner AND l.expiresAt > :now")
+    int renew(@Param("owner") String owner, @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Claims a free or expired lease. The condition is re-checked by the update itself, so two
+     * nodes racing for the same shard cannot both win.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLease l SET l.owner = :owner, l.expiresAt = :expiresAt " +
+           "WHERE l.shard = :shard AND (l.owner IS NULL OR l.expiresAt <= :now)")
+    int claim(@Param("shard") int shard, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLease l SET l.owner = NULL, l.expiresAt = :now WHERE l.owner = :owner AND l.shard IN :shards")
+    int release(@Param("owner") String owner, @Param("shards") Collection<Integer> shards, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ShardLease l SET l.owner = NULL, l.expiresAt = :now WHERE l.owner = :owner")
+    int releaseAll(@Param("owner") String owner, @Param("now") LocalDateTime now);
+}
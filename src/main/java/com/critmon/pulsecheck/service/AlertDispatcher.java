@@ -0,0 +1,472 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.AlertOutbox;
+import com.critmon.pulsecheck.model.AlertStatus;
+import com.critmon.pulsecheck.model.AlertType;
+import com.critmon.pulsecheck.repository.AlertOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailSendException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers alerts from the {@code alert_outbox} table.
+ *
+ * <p>New alerts are first collected per recipient and alert type for {@code digest-window-ms},
+ * so a mass outage (or recovery) produces one digest email per recipient instead of one email
+ * per device. Closed
+ * digests are queued on a bounded queue drained by a fixed worker pool. Each worker sends
+ * whatever it can drain (up to {@code smtp-batch-size} emails) over one SMTP connection,
+ * applies the per-recipient rate limit and retries failures with exponential backoff. A poller
+ * re-queues due rows, which covers retries, queue overflow and rows left pending by a crash.
+ */
+@Service
+public class AlertDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertDispatcher.class);
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final EmailTemplate DEFAULT_TEMPLATE = EmailTemplate.parse("<html><body>" +
+        "<h2>🚨 CRITICAL MONITOR ALERT</h2>" +
+        "<p>Device <strong>{{deviceId}}</strong> has expired.</p>" +
+        "<p>Monitor ID: {{monitorId}}</p>" +
+        "<p>Last Heartbeat: {{lastHeartbeat}}</p>" +
+        "<p>Expected Before: {{expiresAt}}</p>" +
+        "<p>Timeout: {{timeout}} seconds</p>" +
+        "<hr>" +
+        "<p><small>This alert was generated by CritMon Pulse Check System</small></p>" +
+        "</body></html>");
+
+    private static final EmailTemplate DEFAULT_DIGEST_TEMPLATE = EmailTemplate.parse("<html><body>" +
+        "<h2>🚨 CRITICAL MONITOR ALERT</h2>" +
+        "<p><strong>{{count}}</strong> devices have expired.</p>" +
+        "<table><tr><th>Device ID</th><th>Last Heartbeat</th><th>Expected Before</th></tr>{{{rows}}}</table>" +
+        "<hr>" +
+        "<p><small>This alert was generated by CritMon Pulse Check System at {{alertTime}}</small></p>" +
+        "</body></html>");
+
+    private static final EmailTemplate DEFAULT_DIGEST_ROW_TEMPLATE = EmailTemplate.parse(
+        "<tr><td>{{deviceId}}</td><td>{{lastHeartbeat}}</td><td>{{expiresAt}}</td></tr>\n");
+
+    private static final EmailTemplate DEFAULT_RECOVERED_TEMPLATE = EmailTemplate.parse("<html><body>" +
+        "<h2>✅ MONITOR RECOVERED</h2>" +
+        "<p>Device <strong>{{deviceId}}</strong> has checked in again.</p>" +
+        "<p>Monitor ID: {{monitorId}}</p>" +
+        "<p>Recovery Time: {{heartbeatTime}}</p>" +
+        "<hr>" +
+        "<p><small>This notification was generated by CritMon Pulse Check System</small></p>" +
+        "</body></html>");
+
+    private static final EmailTemplate DEFAULT_RECOVERED_DIGEST_TEMPLATE = EmailTemplate.parse("<html><body>" +
+        "<h2>✅ MONITORS RECOVERED</h2>" +
+        "<p><strong>{{count}}</strong> devices have checked in again.</p>" +
+        "<table><tr><th>Device ID</th><th>Recovery Time</th></tr>{{{rows}}}</table>" +
+        "<hr>" +
+        "<p><small>This notification was generated by CritMon Pulse Check System at {{alertTime}}</small></p>" +
+        "</body></html>");
+
+    private static final EmailTemplate DEFAULT_RECOVERED_DIGEST_ROW_TEMPLATE = EmailTemplate.parse(
+        "<tr><td>{{deviceId}}</td><td>{{heartbeatTime}}</td></tr>\n");
+
+    private final AlertOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final EmailTemplateRenderer templateRenderer;
+    private final RecipientRateLimiter rateLimiter;
+    private final ShardLeaseManager shardLeaseManager;
+    private final PulseCheckMetrics metrics;
+    private final Clock clock;
+    private final BlockingQueue<List<String>> queue;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<String>> openDigests = new HashMap<>();
+    private final ScheduledExecutorService digestTimer;
+    private final ExecutorService workers;
+    private final int workerCount;
+    private final int smtpBatchSize;
+    private final long digestWindowMillis;
+    private final int maxDigestSize;
+    private final int maxAttempts;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final int outboxRetentionHours;
+    private volatile boolean running = true;
+
+    public AlertDispatcher(AlertOutboxRepository outboxRepository,
+                           EmailService emailService,
+                           EmailTemplateRenderer templateRenderer,
+                           ShardLeaseManager shardLeaseManager,
+                           PulseCheckMetrics metrics,
+                           Clock clock,
+                           @Value("${pulse-check.alerts.queue-capacity:10000}") int queueCapacity,
+                           @Value("${pulse-check.alerts.workers:4}") int workerCount,
+                           @Value("${pulse-check.alerts.smtp-batch-size:20}") int smtpBatchSize,
+                           @Value("${pulse-check.alerts.digest-window-ms:10000}") long digestWindowMillis,
+                           @Value("${pulse-check.alerts.max-digest-size:500}") int maxDigestSize,
+                           @Value("${pulse-check.alerts.max-attempts:8}") int maxAttempts,
+                           @Value("${pulse-check.alerts.retry-base-ms:5000}") long retryBaseMillis,
+                           @Value("${pulse-check.alerts.retry-max-ms:900000}") long retryMaxMillis,
+                           @Value("${pulse-check.alerts.rate-limit-per-minute:30}") int rateLimitPerMinute,
+                           @Value("${pulse-check.alerts.outbox-retention-hours:168}") int outboxRetentionHours,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.templateRenderer = templateRenderer;
+        this.shardLeaseManager = shardLeaseManager;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.rateLimiter = new RecipientRateLimiter(rateLimitPerMinute, clock);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        metrics.gauge("pulsecheck.alerts.queue", "Alert digests waiting for a worker", queue, BlockingQueue::size);
+        this.workerCount = workerCount;
+        this.smtpBatchSize = smtpBatchSize;
+        this.digestWindowMillis = digestWindowMillis;
+        this.maxDigestSize = Math.max(1, maxDigestSize);
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMillis = retryBaseMillis;
+        this.retryMaxMillis = retryMaxMillis;
+        this.outboxRetentionHours = outboxRetentionHours;
+        // Workers mostly wait on SMTP and the database, so they need no carrier thread meanwhile
+        ThreadFactory workerFactory = virtualThreads
+                ? Thread.ofVirtual().name("alert-worker-", 1).factory()
+                : Thread.ofPlatform().name("alert-worker-", 1).daemon().factory();
+        this.workers = Executors.newFixedThreadPool(workerCount, workerFactory);
+        this.digestTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "alert-digest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::workLoop);
+        }
+        // Picks up anything left pending by a previous run
+        requeueDue();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        digestTimer.shutdownNow();
+        workers.shutdownNow();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds a persisted outbox row to its recipient's open digest. The digest is queued when its
+     * window closes or it reaches {@code max-digest-size}. Rows that cannot be queued stay
+     * pending and are picked up by the next poll.
+     */
+    public void enqueue(AlertOutbox alert) {
+        if (!queued.add(alert.getId())) {
+            return;
+        }
+        if (digestWindowMillis <= 0) {
+            submit(Collections.singletonList(alert.getId()));
+            return;
+        }
+        String digestKey = digestKey(alert);
+        List<String> full = null;
+        synchronized (openDigests) {
+            List<String> digest = openDigests.get(digestKey);
+            if (digest == null) {
+                List<String> opened = new ArrayList<>();
+                openDigests.put(digestKey, opened);
+                digestTimer.schedule(() -> closeDigest(digestKey, opened), digestWindowMillis, TimeUnit.MILLISECONDS);
+                digest = opened;
+            }
+            digest.add(alert.getId());
+            if (digest.size() >= maxDigestSize) {
+                openDigests.remove(digestKey);
+                full = digest;
+            }
+        }
+        if (full != null) {
+            submit(full);
+        }
+    }
+
+    public int queueDepth() {
+        return queue.size();
+    }
+
+    @Scheduled(fixedDelayString = "${pulse-check.alerts.poll-interval-ms:5000}")
+    public void requeueDue() {
+        int capacity = queue.remainingCapacity();
+        if (!running || capacity == 0) {
+            return;
+        }
+        // Overdue rows skip the digest window but are still grouped per recipient
+        List<AlertOutbox> due = findDue(capacity);
+        Map<String, List<String>> byDigest = due.stream()
+                .filter(alert -> queued.add(alert.getId()))
+                .collect(Collectors.groupingBy(AlertDispatcher::digestKey,
+                        LinkedHashMap::new, Collectors.mapping(AlertOutbox::getId, Collectors.toList())));
+        for (List<String> ids : byDigest.values()) {
+            for (int from = 0; from < ids.size(); from += maxDigestSize) {
+                submit(new ArrayList<>(ids.subList(from, Math.min(from + maxDigestSize, ids.size()))));
+            }
+        }
+    }
+
+    /**
+     * In cluster mode each node only polls the alerts of monitors in shards it owns, so a row is
+     * never picked up by two nodes.
+     */
+    private List<AlertOutbox> findDue(int limit) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        if (!shardLeaseManager.isEnabled()) {
+            return outboxRepository.findDue(AlertStatus.PENDING, now, PageRequest.ofSize(limit));
+        }
+        Set<Integer> shards = shardLeaseManager.ownedShards();
+        if (shards.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return outboxRepository.findDueInShards(AlertStatus.PENDING, now, shardLeaseManager.getShardCount(),
+                shards, PageRequest.ofSize(limit));
+    }
+
+    @Scheduled(cron = "0 0 * * * *")
+    public void purgeDelivered() {
+        int purged = outboxRepository.deleteSentBefore(LocalDateTime.now(clock).minusHours(outboxRetentionHours));
+        if (purged > 0) {
+            logger.info("Purged {} delivered alerts from the outbox", purged);
+        }
+    }
+
+    /**
+     * Alerts are digested per recipient and alert type, so expiries and recoveries are never
+     * mixed in one email.
+     */
+    private static String digestKey(AlertOutbox alert) {
+        return alert.getType() + ":" + alert.getRecipient().toLowerCase(Locale.ROOT);
+    }
+
+    private void closeDigest(String digestKey, List<String> digest) {
+        boolean closed;
+        synchronized (openDigests) {
+            closed = openDigests.remove(digestKey, digest);
+        }
+        if (closed) {
+            submit(digest);
+        }
+    }
+
+    private void submit(List<String> ids) {
+        if (!queue.offer(ids)) {
+            queued.removeAll(ids);
+            logger.warn("Alert queue full, {} alerts deferred to the next poll", ids.size());
+        }
+    }
+
+    private void workLoop() {
+        List<List<String>> batch = new ArrayList<>(smtpBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, smtpBatchSize - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Alert delivery batch failed", e);
+            } finally {
+                batch.forEach(queued::removeAll);
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<List<String>> groups) {
+        Map<String, AlertOutbox> alertsById = outboxRepository
+                .findAllById(groups.stream().flatMap(List::stream).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(AlertOutbox::getId, alert -> alert));
+
+        Map<MimeMessage, List<AlertOutbox>> messages = new IdentityHashMap<>();
+        for (List<String> group : groups) {
+            List<AlertOutbox> alerts = group.stream()
+                    .map(alertsById::get)
+                    .filter(alert -> alert != null && alert.getStatus() == AlertStatus.PENDING)
+                    .collect(Collectors.toList());
+            if (alerts.isEmpty()) {
+                continue;
+            }
+            AlertOutbox first = alerts.get(0);
+            long waitMillis = rateLimiter.tryAcquire(first.getRecipient());
+            if (waitMillis > 0) {
+                logger.debug("Rate limit reached for {}, deferring {} alerts by {}ms",
+                            first.getRecipient(), alerts.size(), waitMillis);
+                outboxRepository.defer(ids(alerts), LocalDateTime.now(clock).plusNanos(waitMillis * 1_000_000));
+                continue;
+            }
+            messages.put(compose(alerts), alerts);
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        logger.info("📧 SENDING {} HTML EMAIL ALERTS", messages.size());
+        List<AlertOutbox> sent = new ArrayList<>();
+        try {
+            emailService.sendAll(new ArrayList<>(messages.keySet()));
+            messages.values().forEach(sent::addAll);
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (Map.Entry<MimeMessage, List<AlertOutbox>> entry : messages.entrySet()) {
+                Exception failure = failed.get(entry.getKey());
+                if (failure == null && !failed.isEmpty()) {
+                    sent.addAll(entry.getValue());
+                } else {
+                    Exception cause = failure != null ? failure : e;
+                    entry.getValue().forEach(alert -> retryLater(alert, cause));
+                }
+            }
+        } catch (RuntimeException e) {
+            messages.values().forEach(alerts -> alerts.forEach(alert -> retryLater(alert, e)));
+        }
+        if (!sent.isEmpty()) {
+            outboxRepository.markSent(ids(sent), LocalDateTime.now(clock));
+            logger.info("✅ HTML EMAIL SENT: {} alerts delivered", sent.size());
+            recordExpiryLag(sent);
+        }
+    }
+
+    private void recordExpiryLag(List<AlertOutbox> sent) {
+        long now = clock.millis();
+        for (AlertOutbox alert : sent) {
+            if (alert.getType() == AlertType.EXPIRED && alert.getExpiresAt() != null) {
+                metrics.expiryLag(now - alert.getExpiresAt().atZone(clock.getZone()).toInstant().toEpochMilli());
+            }
+        }
+    }
+
+    private static List<String> ids(List<AlertOutbox> alerts) {
+        return alerts.stream().map(AlertOutbox::getId).collect(Collectors.toList());
+    }
+
+    private void retryLater(AlertOutbox alert, Exception cause) {
+        int attempts = alert.getAttempts() + 1;
+        String error = String.valueOf(cause.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        if (attempts >= maxAttempts) {
+            logger.error("Giving up on alert {} to {} after {} attempts", alert.getId(), alert.getRecipient(), attempts, cause);
+            outboxRepository.reschedule(alert.getId(), AlertStatus.FAILED, attempts, alert.getNextAttemptAt(), error);
+            return;
+        }
+        long backoff = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+        logger.warn("Alert {} to {} failed (attempt {}), retrying in {}ms: {}",
+                   alert.getId(), alert.getRecipient(), attempts, backoff, error);
+        outboxRepository.reschedule(alert.getId(), AlertStatus.PENDING, attempts,
+                LocalDateTime.now(clock).plusNanos(backoff * 1_000_000), error);
+    }
+
+    /**
+     * Builds one email for a group of alerts of the same type to the same recipient.
+     */
+    private MimeMessage compose(List<AlertOutbox> alerts) {
+        AlertOutbox first = alerts.get(0);
+        boolean recovered = first.getType() == AlertType.RECOVERED;
+        String subject;
+        String html;
+        if (alerts.size() == 1) {
+            subject = recovered
+                    ? "✅ RECOVERED: Monitor Back Online - " + first.getDeviceId()
+                    : "🚨 CRITICAL: Monitor Expired - " + first.getDeviceId();
+            html = recovered
+                    ? render("monitor-recovered.html", DEFAULT_RECOVERED_TEMPLATE, first)
+                    : render("monitor-expired.html", DEFAULT_TEMPLATE, first);
+        } else {
+            subject = recovered
+                    ? "✅ RECOVERED: " + alerts.size() + " Monitors Back Online"
+                    : "🚨 CRITICAL: " + alerts.size() + " Monitors Expired";
+            html = recovered
+                    ? renderDigest("monitor-recovered-digest.html", DEFAULT_RECOVERED_DIGEST_TEMPLATE,
+                            "monitor-recovered-digest-row.html", DEFAULT_RECOVERED_DIGEST_ROW_TEMPLATE, alerts)
+                    : renderDigest("monitor-digest.html", DEFAULT_DIGEST_TEMPLATE,
+                            "monitor-digest-row.html", DEFAULT_DIGEST_ROW_TEMPLATE, alerts);
+        }
+        return emailService.createHtmlMessage(first.getRecipient(), subject, html, first.getId());
+    }
+
+    private String render(String templateName, EmailTemplate fallback, AlertOutbox alert) {
+        String alertTime = LocalDateTime.now(clock).format(formatter);
+        return templateRenderer.render(templateName, fallback, name -> alertValue(alert, name, alertTime));
+    }
+
+    private String renderDigest(String templateName, EmailTemplate fallback,
+                                String rowTemplateName, EmailTemplate rowFallback, List<AlertOutbox> alerts) {
+        String alertTime = LocalDateTime.now(clock).format(formatter);
+        EmailTemplate rowTemplate = templateRenderer.template(rowTemplateName, rowFallback);
+        StringBuilder rows = new StringBuilder(alerts.size() * rowTemplate.estimatedLength());
+        for (AlertOutbox alert : alerts) {
+            rowTemplate.renderTo(rows, name -> alertValue(alert, name, alertTime));
+        }
+        return templateRenderer.render(templateName, fallback, name -> {
+            switch (name) {
+                case "count":
+                    return alerts.size();
+                case "rows":
+                    return rows;
+                case "alertTime":
+                    return alertTime;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static Object alertValue(AlertOutbox alert, String name, String alertTime) {
+        switch (name) {
+            case "deviceId":
+                return alert.getDeviceId();
+            case "monitorId":
+                return alert.getMonitorId();
+            case "lastHeartbeat":
+            case "heartbeatTime":
+                return alert.getLastHeartbeat().format(formatter);
+            case "expiresAt":
+                return alert.getExpiresAt().format(formatter);
+            case "timeout":
+                return alert.getTimeout();
+            case "alertTime":
+                return alertTime;
+            default:
+                return null;
+        }
+    }
+}
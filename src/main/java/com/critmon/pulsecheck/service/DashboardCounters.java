@@ -0,0 +1,157 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.dto.DashboardResponse;
+import com.critmon.pulsecheck.model.MonitorStatus;
+import com.critmon.pulsecheck.repository.MonitorRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monitor counts per {@link MonitorStatus}, maintained incrementally on every state transition
+ * so the dashboard never has to scan the monitors table. A version is raised whenever a count
+ * changes, so unchanged dashboards can be recognised without building them.
+ */
+@Component
+@RequiredArgsConstructor
+public class DashboardCounters implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardCounters.class);
+
+    private final MonitorRepository monitorRepository;
+    private final Clock clock;
+
+    private final LongAdder up = new LongAdder();
+    private final LongAdder down = new LongAdder();
+    private final LongAdder paused = new LongAdder();
+    private final AtomicLong alertsToday = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    // End of the day alertsToday counts, in epoch millis; 0 until the first reconcile
+    private volatile long alertsDayEndMillis;
+
+    /**
+     * Seeds the counters once every bean exists but before any lifecycle starts, i.e. before the
+     * web server or the heartbeat listener accept traffic. Transitions counted from then on are
+     * therefore never overwritten by the snapshot.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        reconcile();
+    }
+
+    /**
+     * Seeds the counters from a single grouped count of the monitors table.
+     */
+    public void reconcile() {
+        Map<MonitorStatus, Long> persisted = new EnumMap<>(MonitorStatus.class);
+        List<Object[]> rows = monitorRepository.countGroupedByState();
+        for (Object[] row : rows) {
+            MonitorStatus status = MonitorStatus.of((Boolean) row[0], (Boolean) row[1]);
+            persisted.merge(status, (Long) row[2], Long::sum);
+        }
+        for (MonitorStatus status : MonitorStatus.values()) {
+            LongAdder counter = counter(status);
+            counter.reset();
+            counter.add(persisted.getOrDefault(status, 0L));
+        }
+        synchronized (this) {
+            alertsToday.set(monitorRepository.countAlertedSince(startNewDay()));
+        }
+        version.incrementAndGet();
+        logger.info("Dashboard counters reconciled: {}", persisted);
+    }
+
+    public void created(MonitorStatus status) {
+        counter(status).increment();
+        version.incrementAndGet();
+    }
+
+    public void deleted(MonitorStatus status) {
+        counter(status).decrement();
+        version.incrementAndGet();
+    }
+
+    public void transition(MonitorStatus from, MonitorStatus to) {
+        if (from == to) {
+            return;
+        }
+        counter(from).decrement();
+        counter(to).increment();
+        version.incrementAndGet();
+    }
+
+    public void alertFired() {
+        rollDay();
+        alertsToday.incrementAndGet();
+        version.incrementAndGet();
+    }
+
+    /**
+     * Read it before {@link #snapshot()}: a change in between then only makes the version look
+     * older than the counts, never newer.
+     */
+    public long version() {
+        rollDay();
+        return version.get();
+    }
+
+    public DashboardResponse snapshot() {
+        rollDay();
+        long upCount = up.sum();
+        long downCount = down.sum();
+        long pausedCount = paused.sum();
+        long total = upCount + downCount + pausedCount;
+
+        double averageUptime = total == 0 ? 0.0 : (double) upCount / total * 100.0;
+
+        return DashboardResponse.builder()
+                .activeDevices(upCount)
+                .downDevices(downCount)
+                .pausedDevices(pausedCount)
+                .alertsToday(alertsToday.get())
+                .averageUptime(Math.round(averageUptime * 10.0) / 10.0) // Round to 1 decimal place
+                .build();
+    }
+
+    private LongAdder counter(MonitorStatus status) {
+        switch (status) {
+            case UP:
+                return up;
+            case DOWN:
+                return down;
+            default:
+                return paused;
+        }
+    }
+
+    private void rollDay() {
+        if (clock.millis() >= alertsDayEndMillis) {
+            synchronized (this) {
+                if (clock.millis() >= alertsDayEndMillis) {
+                    alertsToday.set(0);
+                    startNewDay();
+                    version.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the start of the current day in the clock's zone, in epoch millis
+     */
+    private long startNewDay() {
+        LocalDate today = LocalDate.now(clock);
+        alertsDayEndMillis = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        return today.atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+    }
+}
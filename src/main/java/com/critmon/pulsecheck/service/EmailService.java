@@ -1,32 +1,72 @@
 package com.critmon.pulsecheck.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
+    private static final String FROM_ADDRESS = "noreply@critmon.com";
+
     private final JavaMailSender mailSender;
+    private final PulseCheckMetrics metrics;
 
     public void sendHtmlAlert(String to, String subject, String htmlContent) {
+        send(createHtmlMessage(to, subject, htmlContent, null));
+    }
+
+    /**
+     * Builds an HTML message without sending it.
+     *
+     * @param alertId optional alert key, sent as {@code X-Alert-Id} so duplicates can be recognised downstream
+     */
+    public MimeMessage createHtmlMessage(String to, String subject, String htmlContent, String alertId) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true);
             
-            helper.setFrom("noreply@critmon.com");
+            helper.setFrom(FROM_ADDRESS);
             helper.setTo(to);
             helper.setSubject(subject);
             helper.setText(htmlContent, true);
-            
-            mailSender.send(message);
+            if (alertId != null) {
+                message.setHeader("X-Alert-Id", alertId);
+            }
+            return message;
         } catch (MessagingException e) {
-            throw new RuntimeException("Failed to send HTML email to " + to, e);
+            throw new RuntimeException("Failed to build HTML email to " + to, e);
+        }
+    }
+
+    /**
+     * Sends several messages over a single SMTP transport connection.
+     *
+     * @throws org.springframework.mail.MailSendException listing the messages that failed
+     */
+    public void sendAll(List<MimeMessage> messages) {
+        send(messages.toArray(new MimeMessage[0]));
+    }
+
+    private void send(MimeMessage... messages) {
+        long start = System.nanoTime();
+        try {
+            mailSender.send(messages);
+        } catch (MailSendException e) {
+            int failed = e.getFailedMessages().isEmpty() ? messages.length : e.getFailedMessages().size();
+            metrics.emailSend(messages.length - failed, failed, start);
+            throw e;
+        } catch (RuntimeException e) {
+            metrics.emailSend(0, messages.length, start);
+            throw e;
         }
+        metrics.emailSend(messages.length, 0, start);
     }
 }
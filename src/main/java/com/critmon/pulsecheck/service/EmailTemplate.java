@@ -0,0 +1,107 @@
+package com.critmon.pulsecheck.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * An email template parsed once into alternating literal and placeholder segments.
+ *
+ * <p>{@code {{name}}} placeholders are HTML-escaped, {@code {{{name}}}} placeholders are inserted
+ * raw (for pre-rendered fragments). Rendering is a single pass that appends into the caller's
+ * builder, so no intermediate copies of the document are made.
+ */
+public final class EmailTemplate {
+
+    private final String[] literals;
+    private final String[] placeholders;
+    private final boolean[] raw;
+    private final int estimatedLength;
+
+    private EmailTemplate(List<String> literals, List<String> placeholders, List<Boolean> raw, int sourceLength) {
+        this.literals = literals.toArray(new String[0]);
+        this.placeholders = placeholders.toArray(new String[0]);
+        this.raw = new boolean[raw.size()];
+        for (int i = 0; i < this.raw.length; i++) {
+            this.raw[i] = raw.get(i);
+        }
+        this.estimatedLength = sourceLength + placeholders.size() * 16;
+    }
+
+    public static EmailTemplate parse(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            boolean triple = source.startsWith("{{{", open);
+            String closeToken = triple ? "}}}" : "}}";
+            int nameStart = open + (triple ? 3 : 2);
+            int close = source.indexOf(closeToken, nameStart);
+            if (close < 0) {
+                break;
+            }
+            literals.add(source.substring(position, open));
+            placeholders.add(source.substring(nameStart, close).trim());
+            raw.add(triple);
+            position = close + closeToken.length();
+        }
+        literals.add(source.substring(position));
+        return new EmailTemplate(literals, placeholders, raw, source.length());
+    }
+
+    /**
+     * Rough output size, useful for presizing a builder.
+     */
+    public int estimatedLength() {
+        return estimatedLength;
+    }
+
+    /**
+     * Appends the rendered template to {@code out}. Placeholders without a value render empty.
+     */
+    public void renderTo(StringBuilder out, Function<String, ?> values) {
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            Object value = values.apply(placeholders[i]);
+            if (value == null) {
+                continue;
+            }
+            if (raw[i]) {
+                out.append(value);
+            } else {
+                appendEscaped(out, value.toString());
+            }
+        }
+        out.append(literals[literals.length - 1]);
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    out.append("&amp;");
+                    break;
+                case '<':
+                    out.append("&lt;");
+                    break;
+                case '>':
+                    out.append("&gt;");
+                    break;
+                case '"':
+                    out.append("&quot;");
+                    break;
+                case '\'':
+                    out.append("&#39;");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
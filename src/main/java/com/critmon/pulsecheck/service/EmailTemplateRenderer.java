@@ -0,0 +1,127 @@
+package com.critmon.pulsecheck.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Loads and parses the templates under {@code templates/email} once and renders them into a
+ * per-thread reusable builder.
+ *
+ * <p>With {@code pulse-check.templates.hot-reload} enabled, a template whose file changed on
+ * disk (i.e. when running from an exploded classpath in development) is re-parsed on its next use.
+ */
+@Component
+public class EmailTemplateRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplateRenderer.class);
+    private static final String TEMPLATE_DIRECTORY = "templates/email/";
+    private static final List<String> PRELOADED = Arrays.asList(
+            "monitor-expired.html", "monitor-digest.html", "monitor-digest-row.html",
+            "monitor-recovered.html", "monitor-recovered-digest.html", "monitor-recovered-digest-row.html");
+    private static final long RELOAD_CHECK_INTERVAL_MS = 1000;
+    private static final int MAX_RETAINED_BUILDER = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(8192));
+
+    private final Clock clock;
+    private final boolean hotReload;
+    private final Map<String, CachedTemplate> templates = new ConcurrentHashMap<>();
+
+    public EmailTemplateRenderer(Clock clock,
+                                 @Value("${pulse-check.templates.hot-reload:false}") boolean hotReload) {
+        this.clock = clock;
+        this.hotReload = hotReload;
+    }
+
+    @PostConstruct
+    public void preload() {
+        for (String name : PRELOADED) {
+            CachedTemplate cached = load(name);
+            if (cached != null) {
+                templates.put(name, cached);
+            }
+        }
+        logger.info("Precompiled {} email templates (hot reload {})", templates.size(), hotReload ? "on" : "off");
+    }
+
+    /**
+     * Renders the named template, or {@code fallback} if the template cannot be loaded.
+     */
+    public String render(String name, EmailTemplate fallback, Function<String, ?> values) {
+        EmailTemplate template = template(name, fallback);
+        StringBuilder out = BUILDER.get();
+        out.setLength(0);
+        template.renderTo(out, values);
+        String rendered = out.toString();
+        if (out.capacity() > MAX_RETAINED_BUILDER) {
+            BUILDER.remove();
+        }
+        return rendered;
+    }
+
+    public EmailTemplate template(String name, EmailTemplate fallback) {
+        CachedTemplate cached = templates.get(name);
+        if (cached == null || (hotReload && cached.isStale(clock.millis()))) {
+            CachedTemplate loaded = load(name);
+            if (loaded != null) {
+                templates.put(name, loaded);
+                cached = loaded;
+            }
+        }
+        return cached != null ? cached.template : fallback;
+    }
+
+    private CachedTemplate load(String name) {
+        ClassPathResource resource = new ClassPathResource(TEMPLATE_DIRECTORY + name);
+        try {
+            long lastModified = resource.isFile() ? resource.lastModified() : 0L;
+            byte[] bytes = FileCopyUtils.copyToByteArray(resource.getInputStream());
+            logger.debug("Parsed email template {}", name);
+            return new CachedTemplate(resource, EmailTemplate.parse(new String(bytes, StandardCharsets.UTF_8)),
+                    lastModified, clock.millis());
+        } catch (IOException e) {
+            logger.error("Failed to load email template {}", name, e);
+            return null;
+        }
+    }
+
+    private static final class CachedTemplate {
+        private final ClassPathResource resource;
+        private final EmailTemplate template;
+        private final long lastModified;
+        private volatile long lastChecked;
+
+        private CachedTemplate(ClassPathResource resource, EmailTemplate template, long lastModified, long loadedAt) {
+            this.resource = resource;
+            this.template = template;
+            this.lastModified = lastModified;
+            this.lastChecked = loadedAt;
+        }
+
+        boolean isStale(long now) {
+            if (now - lastChecked < RELOAD_CHECK_INTERVAL_MS || !resource.isFile()) {
+                return false;
+            }
+            lastChecked = now;
+            try {
+                return resource.lastModified() != lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.critmon.pulsecheck.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel keyed by monitor ID.
+ *
+ * <p>Arming and cancelling are O(1) and lock-free for callers: requests are queued and
+ * applied by the single worker thread at the start of every tick. Re-arming an ID
+ * replaces its previous deadline, so a monitor is never fired twice for the same arm.
+ */
+public class ExpiryTimerWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryTimerWheel.class);
+
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final Clock clock;
+    private final Consumer<String> onExpired;
+
+    private final Map<String, Timeout> timeouts = new ConcurrentHashMap<>();
+    private final Queue<Timeout> pendingArms = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> pendingCancels = new ConcurrentLinkedQueue<>();
+
+    private final Thread worker;
+    private volatile boolean running;
+    private long startMillis;
+    private long tick;
+
+    /**
+     * @param tickMillis resolution of the wheel in milliseconds
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param clock source of the epoch-millis time deadlines are compared against
+     * @param onExpired callback invoked on the worker thread with the expired ID
+     */
+    public ExpiryTimerWheel(long tickMillis, int wheelSize, Clock clock, Consumer<String> onExpired) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.clock = clock;
+        this.onExpired = onExpired;
+        this.worker = new Thread(this::run, "expiry-wheel");
+        this.worker.setDaemon(true);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startMillis = clock.millis();
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Arms (or re-arms) the given ID to fire at the given epoch-millis deadline.
+     */
+    public void schedule(String id, long deadlineMillis) {
+        Timeout timeout = new Timeout(id, deadlineMillis);
+        Timeout previous = timeouts.put(id, timeout);
+        if (previous != null) {
+            previous.cancelled = true;
+            pendingCancels.add(previous);
+        }
+        pendingArms.add(timeout);
+    }
+
+    public void cancel(String id) {
+        Timeout previous = timeouts.remove(id);
+        if (previous != null) {
+            previous.cancelled = true;
+            pendingCancels.add(previous);
+        }
+    }
+
+    public int size() {
+        return timeouts.size();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startMillis + (tick + 1) * tickMillis;
+            long sleep = deadline - clock.millis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            processCancels();
+            processArms();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private void processCancels() {
+        Timeout timeout;
+        while ((timeout = pendingCancels.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void processArms() {
+        Timeout timeout;
+        while ((timeout = pendingArms.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long calculated = Math.max(0, timeout.deadlineMillis - startMillis) / tickMillis;
+            long ticks = Math.max(calculated, tick);
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void fire(Timeout timeout) {
+        if (!timeouts.remove(timeout.id, timeout)) {
+            return;
+        }
+        try {
+            onExpired.accept(timeout.id);
+        } catch (RuntimeException e) {
+            logger.error("Expiry callback failed for {}", timeout.id, e);
+        }
+    }
+
+    private static final class Timeout {
+        private final String id;
+        private final long deadlineMillis;
+        private volatile boolean cancelled;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(String id, long deadlineMillis) {
+            this.id = id;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, only ever touched by the worker thread.
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long tickDeadline) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0 && timeout.deadlineMillis <= tickDeadline) {
+                    remove(timeout);
+                    if (!timeout.cancelled) {
+                        fire(timeout);
+                    }
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.exception.MonitorNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heartbeat listener for constrained devices, without TLS, HTTP or JSON. One selector thread
+ * serves a UDP port and a TCP port; each heartbeat goes through
+ * {@link MonitorServiceInterface#heartbeat} like one sent over HTTP. Nothing is sent back, so a
+ * heartbeat costs a single small packet; outcomes are only counted, as
+ * {@code pulsecheck.listener.heartbeats}.
+ *
+ * <p>Two frame formats are accepted:
+ * <ul>
+ *   <li>Text: one heartbeat per line, {@code <monitor-id>[ <hex token>]\n}. A UDP datagram may
+ *       carry several lines, and a TCP connection may stay open for any number of them.</li>
+ *   <li>Binary (UDP only): the byte {@code 0x01}, the monitor UUID as 16 big-endian bytes and,
+ *       if tokens are required, the 16-byte token. That is 17 or 33 bytes per heartbeat.</li>
+ * </ul>
+ *
+ * <p>With a {@code secret} configured, every heartbeat needs the monitor's
+ * {@link HeartbeatTokens token}. Each source address is rate limited. The selector thread only
+ * parses and checks frames; heartbeats are applied on a small bounded worker pool, so neither a
+ * database load nor the work behind a transition ever stalls the listener.
+ *
+ * <p>The ports are opened as a {@link SmartLifecycle}, i.e. only once the application context is
+ * initialized, like the web server.
+ */
+@Service
+@ConditionalOnProperty(name = "pulse-check.listener.enabled", havingValue = "true")
+public class HeartbeatListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatListener.class);
+
+    private static final byte BINARY_FRAME = 0x01;
+    private static final int UUID_LENGTH = 16;
+    private static final int MAX_LINE_LENGTH = 128;
+    private static final int MAX_DATAGRAM_LENGTH = 1500;
+
+    enum Outcome {
+        ACCEPTED, NOT_FOUND, UNAUTHORIZED, RATE_LIMITED, MALFORMED, OVERLOADED, FAILED
+    }
+
+    enum Transport {
+        UDP, TCP
+    }
+
+    private final MonitorServiceInterface monitorService;
+    private final HeartbeatTokens tokens;
+    private final SourceRateLimiter rateLimiter;
+    private final int udpPort;
+    private final int tcpPort;
+    private final int maxConnections;
+    private final ThreadPoolExecutor loaders;
+    private final Counter[][] counters = new Counter[Transport.values().length][Outcome.values().length];
+
+    private Selector selector;
+    private DatagramChannel udpChannel;
+    private ServerSocketChannel tcpChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+    private int connections;
+
+    public HeartbeatListener(MonitorServiceInterface monitorService,
+                             PulseCheckMetrics metrics,
+                             @Value("${pulse-check.listener.udp-port:7070}") int udpPort,
+                             @Value("${pulse-check.listener.tcp-port:7070}") int tcpPort,
+                             @Value("${pulse-check.listener.secret:}") String secret,
+                             @Value("${pulse-check.listener.rate-per-second:10}") double ratePerSecond,
+                             @Value("${pulse-check.listener.burst:20}") int burst,
+                             @Value("${pulse-check.listener.max-connections:10000}") int maxConnections,
+                             @Value("${pulse-check.listener.loader-threads:4}") int loaderThreads,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.monitorService = monitorService;
+        this.tokens = secret.isEmpty() ? null : new HeartbeatTokens(secret);
+        this.rateLimiter = new SourceRateLimiter(ratePerSecond, burst);
+        this.udpPort = udpPort;
+        this.tcpPort = tcpPort;
+        this.maxConnections = maxConnections;
+        ThreadFactory loaderFactory = virtualThreads
+                ? Thread.ofVirtual().name("heartbeat-loader-", 1).factory()
+                : Thread.ofPlatform().name("heartbeat-loader-", 1).daemon().factory();
+        // Bounded, so a flood of heartbeats is shed and counted instead of queued without limit
+        this.loaders = new ThreadPoolExecutor(loaderThreads, loaderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(10_000), loaderFactory, new ThreadPoolExecutor.AbortPolicy());
+        for (Transport transport : Transport.values()) {
+            for (Outcome outcome : Outcome.values()) {
+                counters[transport.ordinal()][outcome.ordinal()] = metrics.counter("pulsecheck.listener.heartbeats",
+                        "Heartbeats received by the UDP/TCP listener",
+                        "transport", transport.name().toLowerCase(Locale.ROOT),
+                        "outcome", outcome.name().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the heartbeat listener ports", e);
+        }
+        running = true;
+    }
+
+    private void open() throws IOException {
+        selector = Selector.open();
+        if (udpPort > 0) {
+            udpChannel = DatagramChannel.open();
+            udpChannel.bind(new InetSocketAddress(udpPort));
+            udpChannel.configureBlocking(false);
+            udpChannel.register(selector, SelectionKey.OP_READ);
+        }
+        if (tcpPort > 0) {
+            tcpChannel = ServerSocketChannel.open();
+            tcpChannel.bind(new InetSocketAddress(tcpPort), 1024);
+            tcpChannel.configureBlocking(false);
+            tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        selectorThread = new Thread(this::run, "heartbeat-listener");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("Heartbeat listener started (udp {}, tcp {}, tokens {})",
+                udpPort > 0 ? udpPort : "off", tcpPort > 0 ? tcpPort : "off", tokens != null ? "required" : "off");
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            selector.close();
+            selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+            if (udpChannel != null) {
+                udpChannel.close();
+            }
+            if (tcpChannel != null) {
+                tcpChannel.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close the heartbeat listener ports", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        loaders.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void pruneRateLimits() {
+        rateLimiter.prune();
+    }
+
+    private void run() {
+        ByteBuffer datagram = ByteBuffer.allocateDirect(MAX_DATAGRAM_LENGTH);
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.channel() == udpChannel) {
+                            receiveDatagrams(datagram);
+                        } else if (key.isAcceptable()) {
+                            accept();
+                        } else if (key.isReadable()) {
+                            read(key);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("Heartbeat listener channel error", e);
+                        if (key.channel() instanceof SocketChannel) {
+                            close(key);
+                        }
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // Stopped
+        } catch (Exception e) {
+            logger.error("Heartbeat listener stopped unexpectedly", e);
+        }
+    }
+
+    private void receiveDatagrams(ByteBuffer buffer) throws IOException {
+        InetSocketAddress source;
+        buffer.clear();
+        while ((source = (InetSocketAddress) udpChannel.receive(buffer)) != null) {
+            buffer.flip();
+            if (buffer.hasRemaining() && buffer.get(buffer.position()) == BINARY_FRAME) {
+                handleBinary(buffer, source.getAddress());
+            } else {
+                handleLines(buffer, source.getAddress(), Transport.UDP, true);
+            }
+            buffer.clear();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = tcpChannel.accept()) != null) {
+            if (connections >= maxConnections) {
+                channel.close();
+                continue;
+            }
+            channel.configureBlocking(false);
+            InetAddress source = ((InetSocketAddress) channel.getRemoteAddress()).getAddress();
+            channel.register(selector, SelectionKey.OP_READ, new Connection(source));
+            connections++;
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        int read = channel.read(connection.buffer);
+        if (read < 0) {
+            close(key);
+            return;
+        }
+        connection.buffer.flip();
+        handleLines(connection.buffer, connection.source, Transport.TCP, false);
+        if (connection.buffer.position() == 0 && connection.buffer.limit() == connection.buffer.capacity()) {
+            // A full buffer without a line break is not a heartbeat
+            count(Transport.TCP, Outcome.MALFORMED);
+            close(key);
+            return;
+        }
+        connection.buffer.compact();
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.debug("Failed to close heartbeat connection", e);
+        }
+        connections--;
+    }
+
+    /**
+     * Handles every complete line in the buffer and leaves a trailing partial line in it.
+     *
+     * @param lastLineComplete whether the buffer ends a message, so its last line needs no break
+     */
+    void handleLines(ByteBuffer buffer, InetAddress source, Transport transport, boolean lastLineComplete) {
+        int start = buffer.position();
+        for (int i = start; i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                handleLine(buffer, start, i, source, transport);
+                start = i + 1;
+            }
+        }
+        if (lastLineComplete && start < buffer.limit()) {
+            handleLine(buffer, start, buffer.limit(), source, transport);
+            start = buffer.limit();
+        }
+        buffer.position(start);
+    }
+
+    private void handleLine(ByteBuffer buffer, int from, int to, InetAddress source, Transport transport) {
+        if (to > from && buffer.get(to - 1) == '\r') {
+            to--;
+        }
+        if (to == from) {
+            return;
+        }
+        if (to - from > MAX_LINE_LENGTH) {
+            count(transport, Outcome.MALFORMED);
+            return;
+        }
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        String line = new String(bytes, StandardCharsets.US_ASCII);
+        int space = line.indexOf(' ');
+        String id = space < 0 ? line : line.substring(0, space);
+        byte[] token = null;
+        if (space >= 0) {
+            try {
+                token = HexFormat.of().parseHex(line.substring(space + 1).trim());
+            } catch (IllegalArgumentException e) {
+                count(transport, Outcome.MALFORMED);
+                return;
+            }
+        }
+        heartbeat(id, token, source, transport);
+    }
+
+    void handleBinary(ByteBuffer buffer, InetAddress source) {
+        int length = buffer.remaining();
+        if (length != 1 + UUID_LENGTH && length != 1 + UUID_LENGTH + HeartbeatTokens.LENGTH) {
+            count(Transport.UDP, Outcome.MALFORMED);
+            return;
+        }
+        buffer.get();
+        String id = new UUID(buffer.getLong(), buffer.getLong()).toString();
+        byte[] token = null;
+        if (buffer.hasRemaining()) {
+            token = new byte[HeartbeatTokens.LENGTH];
+            buffer.get(token);
+        }
+        heartbeat(id, token, source, Transport.UDP);
+    }
+
+    private void heartbeat(String id, byte[] token, InetAddress source, Transport transport) {
+        if (!rateLimiter.tryAcquire(source)) {
+            count(transport, Outcome.RATE_LIMITED);
+            return;
+        }
+        if (tokens != null && !tokens.verify(id, token)) {
+            count(transport, Outcome.UNAUTHORIZED);
+            return;
+        }
+        try {
+            loaders.execute(() -> apply(id, transport));
+        } catch (RejectedExecutionException e) {
+            count(transport, Outcome.OVERLOADED);
+        }
+    }
+
+    private void apply(String id, Transport transport) {
+        try {
+            monitorService.heartbeat(id);
+            count(transport, Outcome.ACCEPTED);
+        } catch (MonitorNotFoundException e) {
+            count(transport, Outcome.NOT_FOUND);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to apply heartbeat for {} from the listener", id, e);
+            count(transport, Outcome.FAILED);
+        }
+    }
+
+    private void count(Transport transport, Outcome outcome) {
+        counters[transport.ordinal()][outcome.ordinal()].increment();
+    }
+
+    private static final class Connection {
+        private final InetAddress source;
+        private final ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE_LENGTH * 4);
+
+        private Connection(InetAddress source) {
+            this.source = source;
+        }
+    }
+}
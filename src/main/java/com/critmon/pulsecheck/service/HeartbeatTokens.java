@@ -0,0 +1,55 @@
+package com.critmon.pulsecheck.service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Per-monitor tokens for the heartbeat listener: the first 16 bytes of
+ * {@code HMAC-SHA256(secret, monitorId)}. A token proves the sender was given the monitor's token,
+ * not that the message is fresh, so it keeps guessed or enumerated IDs out but does not stop a
+ * replayed heartbeat.
+ */
+public class HeartbeatTokens {
+
+    public static final int LENGTH = 16;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public HeartbeatTokens(String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    public byte[] token(String monitorId) {
+        byte[] digest = macs.get().doFinal(monitorId.getBytes(StandardCharsets.US_ASCII));
+        return Arrays.copyOf(digest, LENGTH);
+    }
+
+    public String hexToken(String monitorId) {
+        return HexFormat.of().formatHex(token(monitorId));
+    }
+
+    /**
+     * Compares in constant time, so the check does not reveal how much of a token was right.
+     */
+    public boolean verify(String monitorId, byte[] token) {
+        return token != null && token.length == LENGTH && MessageDigest.isEqual(token(monitorId), token);
+    }
+}
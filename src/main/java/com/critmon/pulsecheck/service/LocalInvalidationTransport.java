@@ -0,0 +1,39 @@
+package com.critmon.pulsecheck.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for a real transport: delivers every message synchronously to all local
+ * transports in the same JVM, e.g. to several application contexts started by one test.
+ */
+public class LocalInvalidationTransport implements MonitorInvalidationTransport {
+
+    private static final Set<LocalInvalidationTransport> members = ConcurrentHashMap.newKeySet();
+
+    private final List<Consumer<MonitorInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    public LocalInvalidationTransport() {
+        members.add(this);
+    }
+
+    @Override
+    public void publish(MonitorInvalidation invalidation) {
+        for (LocalInvalidationTransport member : members) {
+            member.listeners.forEach(listener -> listener.accept(invalidation));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<MonitorInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        members.remove(this);
+    }
+}
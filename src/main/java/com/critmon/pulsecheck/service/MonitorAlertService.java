@@ -1,90 +1,366 @@
 package com.critmon.pulsecheck.service;
 
+import com.critmon.pulsecheck.model.AlertOutbox;
+import com.critmon.pulsecheck.model.AlertType;
 import com.critmon.pulsecheck.model.Monitor;
-import com.critmon.pulsecheck.repository.MonitorRepository;
-import lombok.RequiredArgsConstructor;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import com.critmon.pulsecheck.repository.AlertOutboxJdbcRepository;
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.util.FileCopyUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.time.format.DateTimeFormatter;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class MonitorAlertService {
 
     private static final Logger logger = LoggerFactory.getLogger(MonitorAlertService.class);
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-
-    private final MonitorRepository monitorRepository;
-    private final EmailService emailService;
-
-    private String loadEmailTemplate() {
-        try {
-            ClassPathResource resource = new ClassPathResource("templates/email/monitor-expired.html");
-            byte[] bytes = FileCopyUtils.copyToByteArray(resource.getInputStream());
-            return new String(bytes, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            logger.error("Failed to load email template", e);
-            return getDefaultHtmlTemplate();
-        }
-    }
 
-    private String getDefaultHtmlTemplate() {
-        return "<html><body>" +
-            "<h2>🚨 CRITICAL MONITOR ALERT</h2>" +
-            "<p>Device <strong>{{deviceId}}</strong> has expired.</p>" +
-            "<p>Monitor ID: {{monitorId}}</p>" +
-            "<p>Last Heartbeat: {{lastHeartbeat}}</p>" +
-            "<p>Expected Before: {{expiresAt}}</p>" +
-            "<p>Timeout: {{timeout}} seconds</p>" +
-            "<hr>" +
-            "<p><small>This alert was generated by CritMon Pulse Check System</small></p>" +
-            "</body></html>";
+    private static final long RECOVERY_RETRY_MILLIS = 1000;
+
+    private final MonitorJdbcRepository monitorJdbcRepository;
+    private final MonitorStateStore stateStore;
+    private final AlertOutboxJdbcRepository outboxJdbcRepository;
+    private final AlertDispatcher alertDispatcher;
+    private final DashboardCounters dashboardCounters;
+    private final MonitorCache monitorCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ShardLeaseManager shardLeaseManager;
+    private final PulseCheckMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final boolean recoveryAlertsEnabled;
+    private final int claimBatchSize;
+    private final int sweepWorkers;
+    private final long maxFlushLagMillis;
+    private final ExecutorService sweepExecutor;
+    // Recovery notices, recorded in batches off the heartbeat threads
+    private final BlockingQueue<AlertOutbox> recoveries = new LinkedBlockingQueue<>();
+    private final ExecutorService recoveryRecorder;
+
+    public MonitorAlertService(MonitorJdbcRepository monitorJdbcRepository,
+                               MonitorStateStore stateStore,
+                               AlertOutboxJdbcRepository outboxJdbcRepository,
+                               AlertDispatcher alertDispatcher,
+                               DashboardCounters dashboardCounters,
+                               MonitorCache monitorCache,
+                               ApplicationEventPublisher eventPublisher,
+                               ShardLeaseManager shardLeaseManager,
+                               PulseCheckMetrics metrics,
+                               TransactionTemplate transactionTemplate,
+                               Clock clock,
+                               @Value("${pulse-check.alerts.recovery-enabled:true}") boolean recoveryAlertsEnabled,
+                               @Value("${pulse-check.expiry.claim-batch-size:500}") int claimBatchSize,
+                               @Value("${pulse-check.expiry.sweep-workers:2}") int sweepWorkers,
+                               @Value("${pulse-check.heartbeat.max-flush-lag-ms:1000}") long maxFlushLagMillis) {
+        this.monitorJdbcRepository = monitorJdbcRepository;
+        this.stateStore = stateStore;
+        this.outboxJdbcRepository = outboxJdbcRepository;
+        this.alertDispatcher = alertDispatcher;
+        this.dashboardCounters = dashboardCounters;
+        this.monitorCache = monitorCache;
+        this.eventPublisher = eventPublisher;
+        this.shardLeaseManager = shardLeaseManager;
+        this.metrics = metrics;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.recoveryAlertsEnabled = recoveryAlertsEnabled;
+        this.claimBatchSize = claimBatchSize;
+        this.sweepWorkers = Math.max(1, sweepWorkers);
+        this.maxFlushLagMillis = maxFlushLagMillis;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.sweepExecutor = Executors.newFixedThreadPool(this.sweepWorkers, r -> {
+            Thread thread = new Thread(r, "expiry-sweeper-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.recoveryRecorder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "recovery-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        recoveryRecorder.execute(this::recordRecoveries);
     }
 
+    /**
+     * Records the recoveries still queued, once, before the datasource goes away.
+     */
+    @PreDestroy
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+        recoveryRecorder.shutdownNow();
+        List<AlertOutbox> remaining = new ArrayList<>();
+        recoveries.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            try {
+                outboxJdbcRepository.insertAllIfAbsent(remaining, claimBatchSize);
+            } catch (RuntimeException e) {
+                logger.error("Failed to record {} recovery notices on shutdown", remaining.size(), e);
+            }
+        }
+    }
 
-    @Scheduled(fixedRate = 30000) // 30 seconds
-    public void checkExpiredMonitors() {
+    /**
+     * Slow reconciliation sweep. Expirations are normally fired by {@link MonitorExpiryScheduler};
+     * this catches anything the in-memory schedule missed, e.g. rows changed outside the API.
+     *
+     * <p>Expired rows are claimed in bounded batches by {@code sweep-workers} parallel workers.
+     * Each claim locks, marks and returns its batch in one statement and records the alerts in
+     * the same transaction; rows locked by another worker or node are skipped, so a large burst
+     * is split into disjoint chunks instead of being read whole.
+     */
+    @Scheduled(fixedRateString = "${pulse-check.expiry.reconcile-interval-ms:300000}")
+    public void checkExpiredMonitors() throws InterruptedException {
         logger.debug("Checking for expired monitors...");
-        List<Monitor> expiredMonitors = monitorRepository.findExpiredMonitors();
-        
-        if (expiredMonitors.isEmpty()) {
+        Set<Integer> shards = shardLeaseManager.isEnabled() ? shardLeaseManager.ownedShards() : null;
+        if (shards != null && shards.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        // Rows only count as expired once any heartbeat that preceded the deadline has been flushed
+        long cutoffMillis = clock.millis() - maxFlushLagMillis;
+
+        List<Callable<Integer>> workers = new ArrayList<>(sweepWorkers);
+        for (int i = 0; i < sweepWorkers; i++) {
+            workers.add(() -> {
+                int claimed = 0;
+                int batch;
+                do {
+                    batch = claimExpiredBatch(cutoffMillis, shards);
+                    claimed += batch;
+                } while (batch == claimBatchSize);
+                return claimed;
+            });
+        }
+        int total = 0;
+        for (Future<Integer> result : sweepExecutor.invokeAll(workers)) {
+            try {
+                total += result.get();
+            } catch (ExecutionException e) {
+                logger.error("Expiry sweep worker failed", e.getCause());
+            }
+        }
+        metrics.sweep(start);
+        if (total == 0) {
             logger.debug("📧 EMAIL CHECK: No expired monitors found");
+        } else {
+            logger.info("Expiry sweep claimed {} expired monitors", total);
+        }
+    }
+
+    /**
+     * @return the number of rows claimed, so the caller knows whether more are waiting
+     */
+    private int claimExpiredBatch(long cutoffMillis, Set<Integer> shards) {
+        return transactionTemplate.execute(status -> {
+            List<Monitor> claimed = monitorJdbcRepository.claimExpiredBatch(
+                    cutoffMillis, claimBatchSize, shardLeaseManager.getShardCount(), shards);
+            List<Monitor> expired = new ArrayList<>(claimed.size());
+            List<String> superseded = new ArrayList<>();
+            for (Monitor row : claimed) {
+                Monitor held = stateStore.overlay(row);
+                if (held == row || (held.isActive() && isExpired(held))) {
+                    expired.add(held);
+                } else if (held.isPaused() || held.isActive()) {
+                    // A pause or heartbeat that is not flushed yet supersedes the stored deadline
+                    superseded.add(row.getId());
+                }
+                // Otherwise the expiry was already handled from memory and only awaits its flush
+            }
+            monitorJdbcRepository.unclaim(superseded);
+            outboxJdbcRepository.insertAllIfAbsent(toAlerts(expired), claimBatchSize);
+            if (!expired.isEmpty()) {
+                // Memory only follows a committed claim; after a rollback the rows are still
+                // active and expired, and the next sweep claims them again
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        claimCommitted(expired);
+                    }
+                });
+            }
+            return claimed.size();
+        });
+    }
+
+    private void claimCommitted(List<Monitor> expired) {
+        metrics.expiredBatch("sweep", expired.size());
+        for (Monitor monitor : expired) {
+            boolean down = stateStore.markAlerted(monitor);
+            alerted(monitor);
+            if (!down) {
+                // A heartbeat got in between the claim and its commit. Its flush re-activates the
+                // row, and the alert already recorded is followed by a recovery notice
+                stateStore.find(monitor.getId())
+                        .filter(Monitor::isActive)
+                        .ifPresent(current -> eventPublisher.publishEvent(
+                                new MonitorTransitionEvent(current, MonitorTransition.RECOVERED, clock.millis())));
+            }
+        }
+    }
+
+    /**
+     * Handles expirations fired by the timing wheel, in one batch. The state is read from the
+     * state store, which also reflects heartbeats that are not yet flushed. In cluster mode
+     * monitors are skipped unless this node owns their shard, and their state is refreshed from
+     * the database since heartbeats may have been received by another node.
+     *
+     * @return the handled monitors that turned out not to be expired, to be re-armed
+     */
+    public synchronized List<Monitor> handleExpiredMonitors(List<String> ids) {
+        List<String> owned = ids.stream()
+                .filter(shardLeaseManager::owns)
+                .collect(Collectors.toList());
+        if (owned.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Monitor> current;
+        if (shardLeaseManager.isEnabled()) {
+            current = stateStore.refreshAll(owned);
+        } else {
+            current = new ArrayList<>(owned.size());
+            for (String id : owned) {
+                stateStore.find(id).ifPresent(current::add);
+            }
+        }
+
+        List<Monitor> expired = new ArrayList<>();
+        List<Monitor> pending = new ArrayList<>();
+        for (Monitor monitor : current) {
+            (isExpired(monitor) ? expired : pending).add(monitor);
+        }
+        // Only monitors still at the deadline that was checked go down; a heartbeat received since
+        // moved it, and such a monitor gets no alert. They go down in memory only until their
+        // alerts are recorded, so a row is never written inactive without its alert
+        List<Monitor> alerted = new ArrayList<>(expired.size());
+        for (Monitor monitor : expired) {
+            if (stateStore.holdAlerted(monitor.getId(), monitor.getExpiresAtMillis())) {
+                alerted.add(monitor);
+            }
         }
-        
-        for (Monitor monitor : expiredMonitors) {
-            logger.warn("Monitor expired: {} (Device: {})", monitor.getId(), monitor.getDeviceId());
-            logger.warn("Expiration details - Last heartbeat: {}, Expires at: {}, Current time: {}, Timeout: {}s", 
-                       monitor.getLastHeartbeat(), monitor.getExpiresAt(), java.time.LocalDateTime.now(), monitor.getTimeout());
-            
-            // Load and customize HTML template
-            String template = loadEmailTemplate();
-            String htmlContent = template
-                .replace("{{deviceId}}", monitor.getDeviceId())
-                .replace("{{monitorId}}", monitor.getId())
-                .replace("{{lastHeartbeat}}", monitor.getLastHeartbeat().format(formatter))
-                .replace("{{expiresAt}}", monitor.getExpiresAt().format(formatter))
-                .replace("{{timeout}}", String.valueOf(monitor.getTimeout()))
-                .replace("{{alertTime}}", java.time.LocalDateTime.now().format(formatter));
-            
-            // Send HTML email alert
-            String subject = "🚨 CRITICAL: Monitor Expired - " + monitor.getDeviceId();
-            
-            logger.info("📧 SENDING HTML EMAIL ALERT to {} for device {}", 
-                       monitor.getAlertEmail(), monitor.getDeviceId());
-            emailService.sendHtmlAlert(monitor.getAlertEmail(), subject, htmlContent);
-            logger.info("✅ HTML EMAIL SENT: Alert sent for device {}", monitor.getDeviceId());
-            
-            // Mark monitor as inactive to prevent duplicate alerts
-            monitor.setActive(false);
-            monitorRepository.save(monitor);
+        if (!alerted.isEmpty()) {
+            // Recorded durably in one batch before delivery; the deterministic key makes a
+            // re-detection after a crash a no-op instead of a second email
+            try {
+                outboxJdbcRepository.insertAllIfAbsent(toAlerts(alerted), claimBatchSize);
+            } catch (RuntimeException e) {
+                // Still active and expired in the database, so the reconciliation sweep retries them
+                stateStore.releaseAlerted(alerted);
+                logger.error("Failed to record alerts for expired monitors {}, left to the expiry sweep",
+                        alerted.stream().map(Monitor::getId).collect(Collectors.toList()), e);
+                return pending;
+            }
+            stateStore.confirmAlerted(alerted);
+            metrics.expiredBatch("timer", alerted.size());
+            for (Monitor monitor : alerted) {
+                alerted(monitor);
+            }
+        }
+        return pending;
+    }
+
+    private boolean isExpired(Monitor monitor) {
+        long now = clock.millis();
+        return monitor.isExpired(now)
+                && now > monitor.getExpiresAtMillis() + shardLeaseManager.getExpiryGraceMillis();
+    }
+
+    private List<AlertOutbox> toAlerts(List<Monitor> monitors) {
+        return monitors.stream()
+                .map(monitor -> AlertOutbox.forMonitor(monitor, AlertType.EXPIRED, clock))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Announces a monitor that went from UP to DOWN and hands its recorded alert to the dispatcher.
+     */
+    private void alerted(Monitor monitor) {
+        logger.warn("Monitor expired: {} (Device: {}) - Last heartbeat: {}, Expires at: {}, Timeout: {}s",
+                   monitor.getId(), monitor.getDeviceId(), monitor.getLastHeartbeat(clock.getZone()),
+                   monitor.getExpiresAt(clock.getZone()), monitor.getTimeout());
+        monitorCache.evict(monitor.getId());
+        dashboardCounters.alertFired();
+        eventPublisher.publishEvent(new MonitorTransitionEvent(
+                monitor.toBuilder().isActive(false).build(), MonitorTransition.EXPIRED, clock.millis()));
+        // The dispatcher ignores alerts that were already delivered
+        alertDispatcher.enqueue(AlertOutbox.forMonitor(monitor, AlertType.EXPIRED, clock));
+        logger.info("📧 ALERT QUEUED for {} (device {})", monitor.getAlertEmail(), monitor.getDeviceId());
+    }
+
+    /**
+     * Queues a recovery notification when a heartbeat brings an alerted monitor back up. It goes
+     * through the same outbox and digest path as expiry alerts, but is recorded on a background
+     * thread, so the heartbeat that caused it does not wait for the database.
+     */
+    @EventListener
+    public void onTransition(MonitorTransitionEvent event) {
+        if (event.getTransition() != MonitorTransition.RECOVERED || !recoveryAlertsEnabled) {
+            return;
+        }
+        Monitor monitor = event.getMonitor();
+        logger.info("Monitor recovered: {} (Device: {})", monitor.getId(), monitor.getDeviceId());
+        recoveries.add(AlertOutbox.forMonitor(monitor, AlertType.RECOVERED, clock));
+    }
+
+    /**
+     * Writes queued recovery notices in batches. The deterministic key makes a notice recorded
+     * twice, e.g. by two nodes receiving the same recovery, a single row. A failed batch is
+     * retried until it is written.
+     */
+    private void recordRecoveries() {
+        List<AlertOutbox> batch = new ArrayList<>(claimBatchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (batch.isEmpty()) {
+                    batch.add(recoveries.take());
+                }
+                recoveries.drainTo(batch, claimBatchSize - batch.size());
+                outboxJdbcRepository.insertAllIfAbsent(batch, claimBatchSize);
+            } catch (InterruptedException e) {
+                recoveries.addAll(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Failed to record {} recovery notices, retrying", batch.size(), e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RECOVERY_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    recoveries.addAll(batch);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            for (AlertOutbox alert : batch) {
+                logger.info("📧 RECOVERY QUEUED for {} (device {})", alert.getRecipient(), alert.getDeviceId());
+                // In cluster mode the shard owner's poller delivers it if the heartbeat landed elsewhere
+                if (shardLeaseManager.owns(alert.getMonitorId())) {
+                    alertDispatcher.enqueue(alert);
+                }
+            }
+            batch.clear();
         }
     }
 }
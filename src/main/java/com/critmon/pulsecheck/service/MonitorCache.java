@@ -0,0 +1,34 @@
+package com.critmon.pulsecheck.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keyed evictions from the {@code monitors} cache for changes that no single cache annotation
+ * covers, such as batch heartbeats, expirations detected in the background and changes made by
+ * other nodes.
+ */
+@Component
+@RequiredArgsConstructor
+public class MonitorCache {
+
+    public static final String NAME = "monitors";
+
+    private final CacheManager cacheManager;
+
+    public void evict(String id) {
+        Cache cache = cacheManager.getCache(NAME);
+        if (cache != null) {
+            cache.evict(id);
+        }
+    }
+
+    public void clear() {
+        Cache cache = cacheManager.getCache(NAME);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.exception.ChangeSequenceExpiredException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Global change sequence behind the list and dashboard views. Every change to a monitor on this
+ * node, and every change another node broadcasts, takes the next sequence number and is kept in a
+ * fixed-size ring of the most recent {@code retained} changes. That answers "which monitors changed
+ * after sequence N" from memory, and lets callers wait for the next change.
+ *
+ * <p>Sequences only count within one process, so clients see them as tokens prefixed with a
+ * random epoch. A token from an earlier start or another node, or one older than the ring, is
+ * rejected with {@link ChangeSequenceExpiredException}, and the client lists the monitors again.
+ *
+ * <p>Appending is lock-free. A slot is marked invalid before its ID is replaced, so a reader that
+ * sees the same sequence before and after reading the ID has read a consistent entry.
+ */
+@Component
+public class MonitorChangeLog {
+
+    private static final long WRITING = -1;
+
+    private final String epoch = Integer.toHexString(ThreadLocalRandom.current().nextInt() | 0x10000000);
+    private final int capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<String> ids;
+    // Changes up to this sequence are unknown, e.g. after held state was dropped wholesale
+    private volatile long resetSequence;
+    // Last change other than a moved deadline, behind the list tag
+    private final AtomicLong listSequence = new AtomicLong();
+
+    private final Queue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeScheduled = new AtomicBoolean();
+    private final ExecutorService notifier;
+
+    public MonitorChangeLog(@Value("${pulse-check.changes.retained:100000}") int capacity,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.capacity = capacity;
+        this.sequences = new AtomicLongArray(capacity);
+        this.ids = new AtomicReferenceArray<>(capacity);
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("change-notifier-", 1).factory()
+                : Thread.ofPlatform().name("change-notifier-", 1).daemon().factory();
+        this.notifier = Executors.newFixedThreadPool(2, threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    /**
+     * Records a change of the monitor, or its deletion.
+     *
+     * @return the change's sequence
+     */
+    public long append(String id) {
+        long seq = appendMoved(id);
+        listSequence.accumulateAndGet(seq, Math::max);
+        return seq;
+    }
+
+    /**
+     * Records a change that only moved the monitor's deadline, e.g. a heartbeat of a monitor that
+     * was up already. It is read like any other change but leaves {@link #listTag()} as it is.
+     *
+     * @return the change's sequence
+     */
+    public long appendMoved(String id) {
+        long seq = sequence.incrementAndGet();
+        int i = index(seq);
+        sequences.set(i, WRITING);
+        ids.set(i, id);
+        sequences.set(i, seq);
+        if (!waiters.isEmpty() && wakeScheduled.compareAndSet(false, true)) {
+            notifier.execute(this::wakeWaiters);
+        }
+        return seq;
+    }
+
+    /**
+     * Forgets which monitors changed so far, for when changes happened that cannot be listed.
+     * Clients continuing from an earlier token have to list the monitors again.
+     */
+    public void reset() {
+        resetSequence = append("");
+    }
+
+    public long currentSequence() {
+        return sequence.get();
+    }
+
+    public String token(long seq) {
+        return epoch + "-" + seq;
+    }
+
+    /**
+     * Tag of the monitor list, which only changes when a monitor is created, deleted or changes
+     * status, so heartbeats alone do not invalidate it. It also changes each time the ring wraps
+     * around, so a list revalidated with this tag still carries a token {@link #read} accepts.
+     */
+    public String listTag() {
+        return token(listSequence.get()) + "." + sequence.get() / capacity;
+    }
+
+    /**
+     * @return the sequence of a token issued by {@link #token(long)} in this process
+     * @throws ChangeSequenceExpiredException if the token was issued by another process
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public long parse(String token) {
+        int dash = token.indexOf('-');
+        long seq;
+        try {
+            seq = Long.parseLong(token.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed change sequence: " + token);
+        }
+        if (dash < 0 || seq < 0) {
+            throw new IllegalArgumentException("Malformed change sequence: " + token);
+        }
+        if (!token.substring(0, dash).equals(epoch) || seq > sequence.get()) {
+            throw new ChangeSequenceExpiredException("Change sequence " + token + " was issued by another instance");
+        }
+        return seq;
+    }
+
+    /**
+     * Lists the monitors changed after {@code after}, in the order they first changed since then.
+     *
+     * @param limit at most this many distinct monitors; later changes are left for the next read
+     * @throws ChangeSequenceExpiredException if changes after {@code after} are no longer retained
+     */
+    public Changes read(long after, int limit) {
+        Set<String> changed = new LinkedHashSet<>();
+        long last = after;
+        long head = sequence.get();
+        for (long seq = after + 1; seq <= head && changed.size() < limit; seq++) {
+            checkRetained(after, seq);
+            int i = index(seq);
+            long before = sequences.get(i);
+            String id = ids.get(i);
+            if (before != seq || sequences.get(i) != seq) {
+                checkRetained(after, seq);
+                // Not written yet; stop here so the caller continues from this change next time
+                break;
+            }
+            if (!id.isEmpty()) {
+                changed.add(id);
+            }
+            last = seq;
+        }
+        return new Changes(new ArrayList<>(changed), last);
+    }
+
+    /**
+     * Completes once a change after {@code after} is recorded, on a notifier thread. Cancel the
+     * future to stop waiting.
+     */
+    public CompletableFuture<Void> awaitAfter(long after) {
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiter.whenComplete((result, error) -> {
+            if (waiter.isCancelled()) {
+                waiters.remove(waiter);
+            }
+        });
+        waiters.add(waiter);
+        // A change appended before the waiter was queued would not wake it
+        if (sequence.get() > after) {
+            waiters.remove(waiter);
+            waiter.complete(null);
+        }
+        return waiter;
+    }
+
+    private void checkRetained(long after, long seq) {
+        if (after < resetSequence || seq <= sequence.get() - capacity) {
+            throw new ChangeSequenceExpiredException("Changes after " + token(after) + " are no longer retained");
+        }
+    }
+
+    private void wakeWaiters() {
+        wakeScheduled.set(false);
+        CompletableFuture<Void> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            CompletableFuture<Void> woken = waiter;
+            notifier.execute(() -> woken.complete(null));
+        }
+    }
+
+    private int index(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    /**
+     * IDs of the monitors changed in a range of the sequence, and the last sequence read.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Changes {
+        private final List<String> ids;
+        private final long sequence;
+    }
+}
@@ -0,0 +1,20 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Monitors changed after a change sequence: the current state of those still present and
+ * matching the filter, the IDs of those deleted, and the sequence to continue from.
+ */
+@Getter
+@RequiredArgsConstructor
+public class MonitorChanges {
+
+    private final List<Monitor> monitors;
+    private final List<String> deleted;
+    private final String sequence;
+}
@@ -0,0 +1,355 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.dto.DashboardResponse;
+import com.critmon.pulsecheck.dto.MonitorEventResponse;
+import com.critmon.pulsecheck.model.Monitor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans monitor transitions and dashboard changes out to the {@code GET /monitors/events} streams.
+ *
+ * <p>Transitions are handed to a single dispatcher thread, which numbers them, encodes each one
+ * once as a complete server-sent event and appends it to a ring of the last {@code retained}
+ * events. It then offers the same bytes to every subscriber's bounded buffer without blocking;
+ * sender threads drain the buffers to the connections. A subscriber whose buffer is full is
+ * disconnected instead of slowing the others down, and resumes from the ring when its client
+ * reconnects with {@code Last-Event-ID}. A client whose ID is older than the ring, or from
+ * another process, gets a {@code reset} event and a fresh dashboard instead.
+ *
+ * <p>The dashboard is published as a {@code dashboard} event holding only the counts that changed,
+ * checked every {@code dashboard-interval-ms}. New subscribers start with the full dashboard.
+ *
+ * <p>Only transitions applied on this node are streamed.
+ */
+@Service
+public class MonitorEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitorEventBroadcaster.class);
+
+    private static final String TRANSITION = "transition";
+    private static final String DASHBOARD = "dashboard";
+    private static final String RESET = "reset";
+    private static final byte[] KEEPALIVE = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    private final DashboardCounters dashboardCounters;
+    private final Clock clock;
+    private final int retained;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final String epoch = Integer.toHexString(ThreadLocalRandom.current().nextInt() | 0x10000000);
+
+    // Guarded by this: the event ring and the next event ID
+    private final byte[][] ring;
+    private long nextId = 1;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean missed = new AtomicBoolean();
+    private final ExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final Counter overflowed;
+    private final Counter slowConsumers;
+
+    // Dispatcher thread only: the dashboard as last published
+    private DashboardResponse dashboard;
+    private long dashboardVersion = -1;
+
+    public MonitorEventBroadcaster(ObjectMapper objectMapper,
+                                   DashboardCounters dashboardCounters,
+                                   PulseCheckMetrics metrics,
+                                   Clock clock,
+                                   @Value("${pulse-check.events.retained:10000}") int retained,
+                                   @Value("${pulse-check.events.buffer-size:256}") int bufferSize,
+                                   @Value("${pulse-check.events.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${pulse-check.events.sender-threads:8}") int senderThreads,
+                                   @Value("${pulse-check.events.timeout-ms:1800000}") long timeoutMillis,
+                                   @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.objectMapper = objectMapper;
+        this.dashboardCounters = dashboardCounters;
+        this.clock = clock;
+        this.retained = retained;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+        this.ring = new byte[retained][];
+        this.overflowed = metrics.counter("pulsecheck.events.dropped",
+                "Events dropped because the broadcaster queue was full");
+        this.slowConsumers = metrics.counter("pulsecheck.events.slow.consumers",
+                "Event subscribers disconnected because their buffer was full");
+        ThreadFactory dispatcherFactory = virtualThreads
+                ? Thread.ofVirtual().name("event-dispatcher").factory()
+                : Thread.ofPlatform().name("event-dispatcher").daemon().factory();
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), dispatcherFactory, (task, executor) -> {
+                    missed.set(true);
+                    overflowed.increment();
+                });
+        // A client that stops reading holds its sender until the write times out, which costs
+        // a virtual thread nothing but ties up one of a fixed pool of platform threads
+        this.senders = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-sender-", 1).factory())
+                : Executors.newFixedThreadPool(senderThreads, Thread.ofPlatform().name("event-sender-", 1).daemon().factory());
+        metrics.gauge("pulsecheck.events.subscribers", "Open event streams", subscribers, Set::size);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.disconnect();
+        }
+        senders.shutdown();
+    }
+
+    /**
+     * Opens an event stream.
+     *
+     * @param lastEventId the ID of the last event the client received, to resume after it
+     */
+    public ResponseBodyEmitter subscribe(String lastEventId) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMillis);
+        Subscriber subscriber;
+        synchronized (this) {
+            List<byte[]> backlog = lastEventId == null ? null : backlog(lastEventId);
+            if (backlog == null) {
+                backlog = new ArrayList<>();
+                if (lastEventId != null) {
+                    backlog.add(frame(null, RESET, Map.of()));
+                }
+                backlog.add(frame(null, DASHBOARD, dashboardCounters.snapshot()));
+            } else if (backlog.isEmpty()) {
+                // Sends the response headers right away
+                backlog.add(KEEPALIVE);
+            }
+            subscriber = new Subscriber(emitter, bufferSize + backlog.size());
+            for (byte[] frame : backlog) {
+                subscriber.enqueue(frame);
+            }
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.close());
+        return emitter;
+    }
+
+    @EventListener
+    public void onTransition(MonitorTransitionEvent event) {
+        dispatcher.execute(() -> publishTransition(event));
+    }
+
+    @Scheduled(fixedDelayString = "${pulse-check.events.dashboard-interval-ms:2000}")
+    public void publishDashboard() {
+        dispatcher.execute(this::publishDashboardDelta);
+    }
+
+    /**
+     * Comments keep idle streams open through proxies, and find subscribers that stopped reading.
+     */
+    @Scheduled(fixedDelayString = "${pulse-check.events.keepalive-ms:15000}")
+    public void keepAlive() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueue(KEEPALIVE);
+        }
+    }
+
+    private void publishTransition(MonitorTransitionEvent event) {
+        Monitor monitor = event.getMonitor();
+        publish(TRANSITION, MonitorEventResponse.builder()
+                .monitorId(monitor.getId())
+                .deviceId(monitor.getDeviceId())
+                .transition(event.getTransition())
+                .status(monitor.getStatus())
+                .lastHeartbeat(monitor.getLastHeartbeat(clock.getZone()))
+                .expiresAt(monitor.getExpiresAt(clock.getZone()))
+                .occurredAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getOccurredAtMillis()), clock.getZone()))
+                .build());
+    }
+
+    private void publishDashboardDelta() {
+        long version = dashboardCounters.version();
+        if (version == dashboardVersion) {
+            return;
+        }
+        DashboardResponse current = dashboardCounters.snapshot();
+        Map<String, Object> changed = new LinkedHashMap<>();
+        if (dashboard == null || dashboard.getActiveDevices() != current.getActiveDevices()) {
+            changed.put("activeDevices", current.getActiveDevices());
+        }
+        if (dashboard == null || dashboard.getDownDevices() != current.getDownDevices()) {
+            changed.put("downDevices", current.getDownDevices());
+        }
+        if (dashboard == null || dashboard.getPausedDevices() != current.getPausedDevices()) {
+            changed.put("pausedDevices", current.getPausedDevices());
+        }
+        if (dashboard == null || dashboard.getAlertsToday() != current.getAlertsToday()) {
+            changed.put("alertsToday", current.getAlertsToday());
+        }
+        if (dashboard == null || dashboard.getAverageUptime() != current.getAverageUptime()) {
+            changed.put("averageUptime", current.getAverageUptime());
+        }
+        dashboardVersion = version;
+        dashboard = current;
+        if (!changed.isEmpty()) {
+            publish(DASHBOARD, changed);
+        }
+    }
+
+    /**
+     * Numbers, encodes and retains an event, then offers it to every subscriber. Runs on the
+     * dispatcher thread, so events reach all subscribers in ID order.
+     */
+    private void publish(String event, Object data) {
+        if (missed.getAndSet(false)) {
+            // Events were dropped before they were numbered, so clients cannot resume past them
+            publish(RESET, Map.of());
+        }
+        synchronized (this) {
+            long id = nextId++;
+            byte[] frame = frame(epoch + "-" + id, event, data);
+            ring[(int) (id % retained)] = frame;
+            for (Subscriber subscriber : subscribers) {
+                subscriber.enqueue(frame);
+            }
+        }
+    }
+
+    /**
+     * @return the retained events after {@code lastEventId}, or null if some of them are no longer
+     *         retained or the ID was not issued by this process
+     */
+    private List<byte[]> backlog(String lastEventId) {
+        int dash = lastEventId.indexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return null;
+        }
+        long after;
+        try {
+            after = Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (after < 0 || after >= nextId || after + 1 < nextId - retained) {
+            return null;
+        }
+        List<byte[]> backlog = new ArrayList<>((int) (nextId - after - 1));
+        for (long id = after + 1; id < nextId; id++) {
+            backlog.add(ring[(int) (id % retained)]);
+        }
+        return backlog;
+    }
+
+    /**
+     * One complete server-sent event. The data is compact JSON, so it fits on a single line.
+     */
+    private byte[] frame(String id, String event, Object data) {
+        StringBuilder frame = new StringBuilder(256);
+        if (id != null) {
+            frame.append("id: ").append(id).append('\n');
+        }
+        frame.append("event: ").append(event).append('\n');
+        try {
+            frame.append("data: ").append(objectMapper.writeValueAsString(data)).append("\n\n");
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frame.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One open stream. Frames are queued by the dispatcher and written by at most one sender task
+     * at a time, so they reach the client in order.
+     */
+    private final class Subscriber {
+
+        private final ResponseBodyEmitter emitter;
+        private final BlockingQueue<byte[]> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(ResponseBodyEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void enqueue(byte[] frame) {
+            if (closed) {
+                return;
+            }
+            if (!buffer.offer(frame)) {
+                slowConsumers.increment();
+                logger.debug("Disconnecting event subscriber that fell {} events behind", buffer.size());
+                disconnect();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                byte[] frame;
+                while (!closed && (frame = buffer.poll()) != null) {
+                    emitter.send(frame, MediaType.TEXT_EVENT_STREAM);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away, or the stream completed or timed out
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // A frame queued after the loop found the buffer empty, but before draining was cleared
+            if (!closed && !buffer.isEmpty() && draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        /**
+         * Ends the stream. Completing waits for a write in progress, so it never runs on the
+         * dispatcher thread.
+         */
+        private void disconnect() {
+            close();
+            buffer.clear();
+            senders.execute(emitter::complete);
+        }
+
+        private void close() {
+            closed = true;
+            subscribers.remove(this);
+        }
+    }
+}
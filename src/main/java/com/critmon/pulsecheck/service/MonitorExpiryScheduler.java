@@ -0,0 +1,149 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.repository.MonitorDeadline;
+import com.critmon.pulsecheck.repository.MonitorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fires monitor expirations from an in-memory timing wheel instead of waiting for the
+ * database sweep. The schedule is rebuilt from the monitors table on startup and kept
+ * current by the service layer on every timer change.
+ */
+@Service
+public class MonitorExpiryScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitorExpiryScheduler.class);
+
+    private final MonitorRepository monitorRepository;
+    private final MonitorAlertService alertService;
+    private final ShardLeaseManager shardLeaseManager;
+    private final ExpiryTimerWheel wheel;
+    private final ExecutorService expiryExecutor;
+    private final Queue<String> fired = new ConcurrentLinkedQueue<>();
+    private final int batchSize;
+
+    public MonitorExpiryScheduler(MonitorRepository monitorRepository,
+                                  MonitorAlertService alertService,
+                                  ShardLeaseManager shardLeaseManager,
+                                  Clock clock,
+                                  @Value("${pulse-check.expiry.tick-ms:100}") long tickMillis,
+                                  @Value("${pulse-check.expiry.wheel-size:512}") int wheelSize,
+                                  @Value("${pulse-check.expiry.claim-batch-size:500}") int batchSize) {
+        this.monitorRepository = monitorRepository;
+        this.alertService = alertService;
+        this.shardLeaseManager = shardLeaseManager;
+        this.batchSize = batchSize;
+        this.expiryExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "expiry-handler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new ExpiryTimerWheel(tickMillis, wheelSize, clock, this::onExpired);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (shardLeaseManager.isEnabled()) {
+            // Deadlines are loaded per shard as leases are acquired
+            wheel.start();
+            logger.info("Expiry schedule started with {} armed monitors from owned shards", wheel.size());
+            return;
+        }
+        List<MonitorDeadline> deadlines = monitorRepository.findArmedDeadlines();
+        schedule(deadlines);
+        wheel.start();
+        logger.info("Expiry schedule rebuilt with {} armed monitors", deadlines.size());
+    }
+
+    /**
+     * Arms every monitor in newly acquired shards. Monitors in lost shards stay in the wheel
+     * but are dropped when they fire, since the alert service checks ownership.
+     */
+    @EventListener
+    public void onShardOwnershipChanged(ShardOwnershipChangedEvent event) {
+        if (event.getGained().isEmpty()) {
+            return;
+        }
+        List<MonitorDeadline> deadlines = monitorRepository.findArmedDeadlinesInShards(
+                shardLeaseManager.getShardCount(), event.getGained());
+        schedule(deadlines);
+        logger.info("Armed {} monitors from {} acquired shards", deadlines.size(), event.getGained().size());
+    }
+
+    /**
+     * Arms the monitor at its current deadline, or disarms it if it is paused or already alerted.
+     */
+    public void arm(Monitor monitor) {
+        if (monitor.isActive() && !monitor.isPaused() && monitor.getExpiresAtMillis() != 0
+                && shardLeaseManager.owns(monitor.getId())) {
+            wheel.schedule(monitor.getId(), deadlineOf(monitor.getExpiresAtMillis()));
+        } else {
+            wheel.cancel(monitor.getId());
+        }
+    }
+
+    public void disarm(String id) {
+        wheel.cancel(id);
+    }
+
+    public int armedCount() {
+        return wheel.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+        expiryExecutor.shutdown();
+    }
+
+    /**
+     * Queues the fired monitor and lets the handler thread drain the queue in batches, so a burst
+     * of expirations in the same tick is recorded with one batched outbox insert.
+     */
+    private void onExpired(String id) {
+        fired.add(id);
+        expiryExecutor.execute(this::drainFired);
+    }
+
+    private void drainFired() {
+        List<String> batch = new ArrayList<>(batchSize);
+        String id;
+        while (batch.size() < batchSize && (id = fired.poll()) != null) {
+            batch.add(id);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            // Another node may have received a heartbeat in the meantime; follow its new deadline
+            alertService.handleExpiredMonitors(batch).forEach(this::arm);
+        } catch (Exception e) {
+            logger.error("Failed to handle expiry for monitors: {}", batch, e);
+        }
+    }
+
+    private void schedule(List<MonitorDeadline> deadlines) {
+        for (MonitorDeadline deadline : deadlines) {
+            wheel.schedule(deadline.getId(), deadlineOf(deadline.getExpiresAtMillis()));
+        }
+    }
+
+    private long deadlineOf(long expiresAtMillis) {
+        return expiresAtMillis + shardLeaseManager.getExpiryGraceMillis();
+    }
+}
@@ -0,0 +1,79 @@
+package com.critmon.pulsecheck.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Monitors changed or deleted by one node, broadcast so the other nodes drop their copies.
+ * Encoded as {@code <node>\n<kind>\n<id>\n<id>...}.
+ */
+@Getter
+@ToString
+public class MonitorInvalidation {
+
+    public enum Kind {
+        CHANGED,
+        /** Only deadlines moved by heartbeats; receivers drop their copies without re-reading. */
+        MOVED,
+        DELETED,
+        /** Messages may have been lost; every copy is suspect. Raised locally by a transport. */
+        RESYNC
+    }
+
+    private final String nodeId;
+    private final Kind kind;
+    private final List<String> ids;
+
+    public MonitorInvalidation(String nodeId, Kind kind, Collection<String> ids) {
+        this.nodeId = nodeId;
+        this.kind = kind;
+        this.ids = Collections.unmodifiableList(new ArrayList<>(ids));
+    }
+
+    static MonitorInvalidation resync() {
+        return new MonitorInvalidation("", Kind.RESYNC, Collections.emptyList());
+    }
+
+    /**
+     * Encodes the invalidation into as many payloads as needed to keep each under the given size.
+     */
+    public List<String> encode(int maxPayloadBytes) {
+        String header = nodeId + '\n' + kind.name();
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(header);
+        int bytes = utf8Length(header);
+        for (String id : ids) {
+            int idBytes = utf8Length(id) + 1;
+            if (payload.length() > header.length() && bytes + idBytes > maxPayloadBytes) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payload.append(header);
+                bytes = utf8Length(header);
+            }
+            payload.append('\n').append(id);
+            bytes += idBytes;
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    public static MonitorInvalidation decode(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines.length < 2) {
+            throw new IllegalArgumentException("Malformed invalidation payload: " + payload);
+        }
+        return new MonitorInvalidation(lines[0], Kind.valueOf(lines[1]),
+                Arrays.asList(lines).subList(2, lines.length));
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
@@ -0,0 +1,112 @@
+package com.critmon.pulsecheck.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the monitors cached and held by several nodes coherent. A change is broadcast once it is
+ * durable, so receivers never re-read the old row: every flushed monitor after its write-behind
+ * flush, in one message per kind and flush, creations and deletions right away.
+ *
+ * <p>Receivers evict the monitor from the cache and drop their clean copy, so the next read goes
+ * to the database. Monitors whose status changed and that are in shards the receiver owns are
+ * re-read at once and re-armed instead, because a heartbeat or resume on another node may have
+ * re-armed a monitor the owner had disarmed after alerting or pausing it. A heartbeat that only
+ * moved a deadline is not re-read by the owner: its timer still fires at the earlier deadline,
+ * and the owner confirms the deadline from the database then. Either way the change is recorded
+ * in the {@link MonitorChangeLog}, so list views on every node see it.
+ */
+@Service
+@RequiredArgsConstructor
+public class MonitorInvalidationBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitorInvalidationBroadcaster.class);
+
+    private final MonitorInvalidationTransport transport;
+    private final MonitorStateStore stateStore;
+    private final MonitorCache monitorCache;
+    private final MonitorExpiryScheduler expiryScheduler;
+    private final ShardLeaseManager shardLeaseManager;
+    private final MonitorChangeLog changeLog;
+
+    @PostConstruct
+    public void subscribe() {
+        transport.subscribe(this::onInvalidation);
+    }
+
+    @EventListener
+    public void onFlushed(MonitorStatesFlushedEvent event) {
+        publish(MonitorInvalidation.Kind.CHANGED, event.getIds());
+        publish(MonitorInvalidation.Kind.MOVED, event.getMoved());
+    }
+
+    public void deleted(String id) {
+        publish(MonitorInvalidation.Kind.DELETED, Collections.singletonList(id));
+    }
+
+    private void publish(MonitorInvalidation.Kind kind, List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            transport.publish(new MonitorInvalidation(shardLeaseManager.getNodeId(), kind, ids));
+        } catch (RuntimeException e) {
+            // Other nodes still converge through cache refresh and their own expiry refreshes
+            logger.warn("Failed to broadcast invalidation of {} monitors", ids.size(), e);
+        }
+    }
+
+    void onInvalidation(MonitorInvalidation invalidation) {
+        if (invalidation.getNodeId().equals(shardLeaseManager.getNodeId())) {
+            return;
+        }
+        switch (invalidation.getKind()) {
+            case RESYNC:
+                monitorCache.clear();
+                changeLog.reset();
+                logger.info("Dropped {} held monitors after missing invalidations", stateStore.invalidateAll());
+                break;
+            case MOVED:
+                for (String id : invalidation.getIds()) {
+                    monitorCache.evict(id);
+                    stateStore.invalidate(id);
+                    changeLog.appendMoved(id);
+                }
+                break;
+            case DELETED:
+                for (String id : invalidation.getIds()) {
+                    monitorCache.evict(id);
+                    stateStore.evict(id);
+                    expiryScheduler.disarm(id);
+                }
+                break;
+            default:
+                changed(invalidation.getIds());
+        }
+    }
+
+    private void changed(List<String> ids) {
+        List<String> owned = new ArrayList<>();
+        for (String id : ids) {
+            monitorCache.evict(id);
+            if (shardLeaseManager.owns(id)) {
+                owned.add(id);
+            } else {
+                stateStore.invalidate(id);
+            }
+        }
+        if (!owned.isEmpty()) {
+            stateStore.refreshAll(owned).forEach(expiryScheduler::arm);
+        }
+        ids.forEach(changeLog::append);
+        logger.debug("Applied invalidation of {} monitors ({} owned)", ids.size(), owned.size());
+    }
+}
@@ -0,0 +1,32 @@
+package com.critmon.pulsecheck.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Channel over which nodes exchange {@link MonitorInvalidation}s. Delivery is best effort and
+ * every subscriber, including the publishing node's own, receives each message.
+ */
+public interface MonitorInvalidationTransport {
+
+    void publish(MonitorInvalidation invalidation);
+
+    void subscribe(Consumer<MonitorInvalidation> listener);
+
+    default void close() {
+    }
+
+    /**
+     * Transport for a single node, which has nobody to tell.
+     */
+    static MonitorInvalidationTransport none() {
+        return new MonitorInvalidationTransport() {
+            @Override
+            public void publish(MonitorInvalidation invalidation) {
+            }
+
+            @Override
+            public void subscribe(Consumer<MonitorInvalidation> listener) {
+            }
+        };
+    }
+}
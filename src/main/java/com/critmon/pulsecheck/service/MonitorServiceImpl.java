@@ -1,27 +1,47 @@
 package com.critmon.pulsecheck.service;
 
+import com.critmon.pulsecheck.dto.BatchHeartbeatResponse;
 import com.critmon.pulsecheck.dto.BatchMonitorCreateRequest;
 import com.critmon.pulsecheck.dto.BatchMonitorResponse;
 import com.critmon.pulsecheck.dto.DashboardResponse;
+import com.critmon.pulsecheck.dto.MonitorFilter;
 import com.critmon.pulsecheck.dto.MonitorResponse;
+import com.critmon.pulsecheck.exception.MonitorAlreadyExistsException;
 import com.critmon.pulsecheck.exception.MonitorNotFoundException;
 import com.critmon.pulsecheck.mapper.MonitorMapper;
 import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
 import com.critmon.pulsecheck.repository.MonitorRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import java.time.Clock;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -30,15 +50,23 @@ public class MonitorServiceImpl implements MonitorServiceInterface {
     private static final Logger logger = LoggerFactory.getLogger(MonitorServiceImpl.class);
     
     private final MonitorRepository monitorRepository;
-    private ScheduledExecutorService scheduler;
+    private final MonitorJdbcRepository monitorJdbcRepository;
+    private final MonitorExpiryScheduler expiryScheduler;
+    private final MonitorStateStore stateStore;
+    private final DashboardCounters dashboardCounters;
+    private final MonitorChangeLog changeLog;
+    private final MonitorCache monitorCache;
+    private final MonitorInvalidationBroadcaster invalidationBroadcaster;
+    private final PulseCheckMetrics metrics;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
     
-    @PostConstruct
-    public void init() {
-        this.scheduler = Executors.newScheduledThreadPool(10);
-    }
+    @Value("${pulse-check.batch.chunk-size:500}")
+    private int batchChunkSize;
     
     @Override
-    @CachePut(value = "monitors", key = "#result.id")
+    @CachePut(value = MonitorCache.NAME, key = "#result.id")
     public Monitor createMonitor(String deviceId, int timeout, String alertEmail) {
         logger.info("Creating monitor for device: {} with timeout: {}s", deviceId, timeout);
         
@@ -46,51 +74,96 @@ public class MonitorServiceImpl implements MonitorServiceInterface {
                 .deviceId(deviceId)
                 .timeout(timeout)
                 .alertEmail(alertEmail)
+                .createdAt(LocalDateTime.now(clock))
                 .build();
-        monitor = monitorRepository.save(monitor);
         
-        // Initialize timer for new monitor
-        monitor.resetTimer();
-        monitorRepository.save(monitor);
+        // Initialize timer before the insert so the row is written once
+        monitor.resetTimer(clock.millis());
+        try {
+            monitor = monitorRepository.save(monitor);
+        } catch (DataIntegrityViolationException e) {
+            throw new MonitorAlreadyExistsException("Monitor already exists for device: " + deviceId, e);
+        }
+        stateStore.register(monitor);
+        dashboardCounters.created(monitor.getStatus());
+        expiryScheduler.arm(monitor);
         return monitor;
     }
     
     @Override
-    @CacheEvict(value = "allMonitors", allEntries = true)
     public BatchMonitorResponse createMonitorsBatch(BatchMonitorCreateRequest request) {
         logger.info("Creating batch monitors for {} devices", request.getDevices().size());
         
         List<MonitorResponse> createdMonitors = new ArrayList<>();
         List<BatchMonitorResponse.BatchError> errors = new ArrayList<>();
         
-        for (BatchMonitorCreateRequest.DeviceRequest deviceRequest : request.getDevices()) {
-            try {
-                // Check if monitor already exists for this device
-                List<Monitor> existingMonitors = monitorRepository.findByDeviceId(deviceRequest.getId());
-                if (!existingMonitors.isEmpty()) {
-                    errors.add(BatchMonitorResponse.BatchError.builder()
-                            .deviceId(deviceRequest.getId())
-                            .error("Monitor already exists for device: " + deviceRequest.getId())
-                            .build());
+        List<BatchMonitorCreateRequest.DeviceRequest> devices = request.getDevices();
+        Set<String> seenDeviceIds = new HashSet<>();
+        for (int from = 0; from < devices.size(); from += batchChunkSize) {
+            List<BatchMonitorCreateRequest.DeviceRequest> chunk =
+                    devices.subList(from, Math.min(from + batchChunkSize, devices.size()));
+            
+            // Check which devices already have a monitor with one set query per chunk
+            Set<String> chunkDeviceIds = chunk.stream()
+                    .map(BatchMonitorCreateRequest.DeviceRequest::getId)
+                    .collect(Collectors.toSet());
+            Set<String> existingDeviceIds = monitorRepository.findExistingDeviceIds(chunkDeviceIds);
+            
+            List<Monitor> monitors = new ArrayList<>(chunk.size());
+            for (BatchMonitorCreateRequest.DeviceRequest deviceRequest : chunk) {
+                String deviceId = deviceRequest.getId();
+                if (existingDeviceIds.contains(deviceId)) {
+                    errors.add(batchError(deviceId, "Monitor already exists for device: " + deviceId));
+                    continue;
+                }
+                if (!seenDeviceIds.add(deviceId)) {
+                    errors.add(batchError(deviceId, "Duplicate device in request: " + deviceId));
                     continue;
                 }
-                
-                Monitor monitor = createMonitor(
-                    deviceRequest.getId(),
-                    deviceRequest.getTimeout(),
-                    deviceRequest.getAlert_email()
-                );
-                
-                createdMonitors.add(MonitorMapper.toResponse(monitor));
-                logger.debug("Successfully created monitor for device: {}", deviceRequest.getId());
-                
+                Monitor monitor = Monitor.builder()
+                        .deviceId(deviceId)
+                        .timeout(deviceRequest.getTimeout())
+                        .alertEmail(deviceRequest.getAlert_email())
+                        .createdAt(LocalDateTime.now(clock))
+                        .build();
+                monitor.resetTimer(clock.millis());
+                monitors.add(monitor);
+            }
+            if (monitors.isEmpty()) {
+                continue;
+            }
+            
+            try {
+                // Each chunk is one JDBC batch in its own transaction. The unique device index catches
+                // monitors created concurrently since the existence check above.
+                long start = System.nanoTime();
+                List<Monitor> conflicting;
+                try {
+                    conflicting = monitorJdbcRepository.insertAll(monitors, batchChunkSize);
+                } catch (RuntimeException e) {
+                    metrics.databaseWrite("insert", monitors.size(), start, false);
+                    throw e;
+                }
+                metrics.databaseWrite("insert", monitors.size(), start, true);
+                for (Monitor monitor : conflicting) {
+                    errors.add(batchError(monitor.getDeviceId(), "Monitor already exists for device: " + monitor.getDeviceId()));
+                }
+                monitors.removeAll(conflicting);
             } catch (Exception e) {
-                logger.error("Failed to create monitor for device: {}", deviceRequest.getId(), e);
-                errors.add(BatchMonitorResponse.BatchError.builder()
-                        .deviceId(deviceRequest.getId())
-                        .error("Failed to create monitor: " + e.getMessage())
-                        .build());
+                logger.error("Failed to create monitor chunk of {} devices", monitors.size(), e);
+                for (Monitor monitor : monitors) {
+                    errors.add(batchError(monitor.getDeviceId(), "Failed to create monitor: " + e.getMessage()));
+                }
+                continue;
             }
+            
+            stateStore.registerCreated(monitors);
+            for (Monitor monitor : monitors) {
+                dashboardCounters.created(monitor.getStatus());
+                expiryScheduler.arm(monitor);
+                createdMonitors.add(MonitorMapper.toResponse(monitor, clock.getZone()));
+            }
+            logger.debug("Created chunk of {} monitors", monitors.size());
         }
         
         BatchMonitorResponse response = BatchMonitorResponse.builder()
@@ -107,104 +180,228 @@ public class MonitorServiceImpl implements MonitorServiceInterface {
         return response;
     }
     
+    private static BatchMonitorResponse.BatchError batchError(String deviceId, String error) {
+        return BatchMonitorResponse.BatchError.builder()
+                .deviceId(deviceId)
+                .error(error)
+                .build();
+    }
+    
     @Override
-    @Cacheable(value = "monitors", key = "#p0")
+    @Cacheable(value = MonitorCache.NAME, key = "#p0")
     public Optional<Monitor> getMonitor(String id) {
-        logger.debug("Fetching monitor from database: {}", id);
-        return monitorRepository.findById(id);
+        logger.debug("Fetching monitor state: {}", id);
+        return stateStore.find(id);
     }
     
     @Override
-    @CachePut(value = "monitors", key = "#p0")
+    @CachePut(value = MonitorCache.NAME, key = "#p0")
     public Monitor heartbeat(String id) {
         logger.debug("Heartbeat received for monitor: {}", id);
         
-        Monitor monitor = monitorRepository.findById(id)
-                .orElseThrow(() -> new MonitorNotFoundException("Monitor not found: " + id));
-        
-        logger.debug("Before reset - Last heartbeat: {}, Expires at: {}, Timeout: {}s", 
-                    monitor.getLastHeartbeat(), monitor.getExpiresAt(), monitor.getTimeout());
+        // Applied in memory; the row update is coalesced and flushed write-behind
+        long start = System.nanoTime();
+        MonitorStateStore.StateChange change;
+        try {
+            change = stateStore.heartbeat(id);
+        } catch (MonitorNotFoundException e) {
+            metrics.heartbeat(start, false);
+            throw e;
+        }
+        Monitor monitor = change.getMonitor();
+        expiryScheduler.arm(monitor);
+        publishTransition(change);
         
-        monitor.resetTimer();
-        monitorRepository.save(monitor);
+        metrics.heartbeat(start, true);
         
         logger.debug("After reset - Last heartbeat: {}, Expires at: {}, Timeout: {}s", 
-                    monitor.getLastHeartbeat(), monitor.getExpiresAt(), monitor.getTimeout());
+                    monitor.getLastHeartbeat(clock.getZone()), monitor.getExpiresAt(clock.getZone()), monitor.getTimeout());
         
         return monitor;
     }
     
     @Override
-    @CachePut(value = "monitors", key = "#p0")
+    public BatchHeartbeatResponse heartbeatBatch(List<String> ids) {
+        Set<String> keys = new LinkedHashSet<>(ids);
+        logger.debug("Batch heartbeat received for {} IDs", keys.size());
+        
+        // Resolve everything the state store does not know yet with a single IN query
+        Set<String> unresolved = keys.stream()
+                .filter(key -> !stateStore.contains(key))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, List<String>> monitorIdsByDevice = new HashMap<>();
+        if (!unresolved.isEmpty()) {
+            List<Monitor> loaded = monitorRepository.findByIdOrDeviceIdIn(unresolved);
+            stateStore.registerIfAbsent(loaded);
+            for (Monitor monitor : loaded) {
+                monitorIdsByDevice.computeIfAbsent(monitor.getDeviceId(), key -> new ArrayList<>())
+                        .add(monitor.getId());
+            }
+        }
+        
+        List<BatchHeartbeatResponse.HeartbeatResult> results = new ArrayList<>();
+        List<BatchHeartbeatResponse.BatchError> errors = new ArrayList<>();
+        
+        for (String key : keys) {
+            List<String> monitorIds = stateStore.contains(key)
+                    ? Collections.singletonList(key)
+                    : monitorIdsByDevice.getOrDefault(key, Collections.emptyList());
+            if (monitorIds.isEmpty()) {
+                errors.add(BatchHeartbeatResponse.BatchError.builder()
+                        .id(key)
+                        .error("Monitor not found: " + key)
+                        .build());
+                continue;
+            }
+            for (String monitorId : monitorIds) {
+                // Row updates are coalesced by the state store and flushed as one JDBC batch
+                MonitorStateStore.StateChange change;
+                try {
+                    change = stateStore.heartbeat(monitorId);
+                } catch (MonitorNotFoundException e) {
+                    // Deleted since it was resolved; the rest of the batch still counts
+                    errors.add(BatchHeartbeatResponse.BatchError.builder()
+                            .id(key)
+                            .error(e.getMessage())
+                            .build());
+                    continue;
+                }
+                Monitor monitor = change.getMonitor();
+                monitorCache.evict(monitor.getId());
+                expiryScheduler.arm(monitor);
+                publishTransition(change);
+                results.add(BatchHeartbeatResponse.HeartbeatResult.builder()
+                        .id(key)
+                        .monitorId(monitor.getId())
+                        .deviceId(monitor.getDeviceId())
+                        .expiresAt(monitor.getExpiresAt(clock.getZone()))
+                        .build());
+            }
+        }
+        
+        return BatchHeartbeatResponse.builder()
+                .totalRequested(keys.size())
+                .successful(results.size())
+                .failed(errors.size())
+                .results(results)
+                .errors(errors)
+                .build();
+    }
+    
+    @Override
+    @CachePut(value = MonitorCache.NAME, key = "#p0")
     public Monitor pauseMonitor(String id) {
         logger.info("Pausing monitor: {}", id);
         
-        Monitor monitor = monitorRepository.findById(id)
-                .orElseThrow(() -> new MonitorNotFoundException("Monitor not found: " + id));
-        
-        monitor.pause();
-        monitorRepository.save(monitor);
+        MonitorStateStore.StateChange change = stateStore.pause(id);
+        expiryScheduler.disarm(id);
+        publishTransition(change);
         
         logger.info("Monitor paused: {}", id);
-        return monitor;
+        return change.getMonitor();
     }
     
     @Override
-    @CachePut(value = "monitors", key = "#p0")
+    @CachePut(value = MonitorCache.NAME, key = "#p0")
     public Monitor resumeMonitor(String id) {
         logger.info("Resuming monitor: {}", id);
         
-        Monitor monitor = monitorRepository.findById(id)
-                .orElseThrow(() -> new MonitorNotFoundException("Monitor not found: " + id));
-        
-        monitor.resume();
-        monitorRepository.save(monitor);
+        MonitorStateStore.StateChange change = stateStore.resume(id);
+        Monitor monitor = change.getMonitor();
+        expiryScheduler.arm(monitor);
+        publishTransition(change);
         
         logger.info("Monitor resumed: {}", id);
         return monitor;
     }
     
+    /**
+     * Publishes the transition detected by the state store, if the mutation caused one. The
+     * status before and after is compared in memory, so heartbeats cost no extra read.
+     */
+    private void publishTransition(MonitorStateStore.StateChange change) {
+        MonitorTransition transition = change.getTransition();
+        if (transition != null) {
+            logger.debug("Monitor {} transition: {}", change.getMonitor().getId(), transition);
+            eventPublisher.publishEvent(new MonitorTransitionEvent(change.getMonitor(), transition, clock.millis()));
+        }
+    }
+    
+    @Override
+    public List<Monitor> getMonitorsPage(MonitorFilter filter, String after, int limit) {
+        logger.debug("Fetching monitor page after {} (limit {})", after, limit);
+        List<Monitor> page = monitorRepository.findPage(filter.getActive(), filter.getPaused(),
+                filter.getDevicePattern(), filter.getAlertEmail(), after, PageRequest.ofSize(limit));
+        return page.stream()
+                .map(stateStore::overlay)
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void streamMonitors(MonitorFilter filter, Consumer<Monitor> consumer) {
+        try (Stream<Monitor> monitors = monitorRepository.streamFiltered(filter.getActive(), filter.getPaused(),
+                filter.getDevicePattern(), filter.getAlertEmail())) {
+            monitors.forEach(monitor -> {
+                // Detach each row so the persistence context stays flat however many rows stream by
+                entityManager.detach(monitor);
+                consumer.accept(stateStore.overlay(monitor));
+            });
+        }
+    }
+    
+    @Override
+    public String getChangeSequence() {
+        return changeLog.token(changeLog.currentSequence());
+    }
+    
+    @Override
+    public String getListVersion() {
+        return changeLog.listTag();
+    }
+    
+    @Override
+    public MonitorChanges getChangesSince(MonitorFilter filter, String since, int limit) {
+        MonitorChangeLog.Changes changes = changeLog.read(changeLog.parse(since), limit);
+        List<Monitor> monitors = new ArrayList<>(changes.getIds().size());
+        List<String> deleted = new ArrayList<>();
+        for (String id : changes.getIds()) {
+            Optional<Monitor> monitor = stateStore.find(id);
+            if (monitor.isEmpty()) {
+                deleted.add(id);
+            } else if (filter.matches(monitor.get())) {
+                monitors.add(monitor.get());
+            }
+        }
+        return new MonitorChanges(monitors, deleted, changeLog.token(changes.getSequence()));
+    }
+    
     @Override
-    @Cacheable(value = "allMonitors")
-    public List<Monitor> getAllMonitors() {
-        logger.debug("Fetching all monitors from database");
-        return monitorRepository.findAll();
+    public CompletableFuture<Void> awaitChanges(String since) {
+        return changeLog.awaitAfter(changeLog.parse(since));
     }
     
     @Override
-    @Cacheable(value = "dashboardStats")
     public DashboardResponse getDashboardStats() {
-        logger.debug("Calculating dashboard statistics");
-        
-        List<Monitor> allMonitors = monitorRepository.findAll();
-        
-        long activeDevices = allMonitors.stream()
-                .filter(m -> m.isActive() && !m.isPaused())
-                .count();
-        
-        long downDevices = allMonitors.stream()
-                .filter(m -> m.isActive() && m.isExpired())
-                .count();
-        long alertsToday = downDevices;
-
-        double averageUptime = allMonitors.isEmpty() ? 0.0 : 
-            (double) activeDevices / allMonitors.size() * 100.0;
-        
-        return DashboardResponse.builder()
-                .activeDevices(activeDevices)
-                .downDevices(downDevices)
-                .alertsToday(alertsToday)
-                .averageUptime(Math.round(averageUptime * 10.0) / 10.0) // Round to 1 decimal place
-                .build();
+        return dashboardCounters.snapshot();
     }
     
     @Override
-    @CacheEvict(value = {"monitors", "allMonitors"}, key = "#p0")
+    public String getDashboardVersion() {
+        // Prefixed with the change log's epoch, so versions from before a restart never match
+        return changeLog.token(dashboardCounters.version());
+    }
+    
+    @Override
+    @CacheEvict(value = MonitorCache.NAME, key = "#p0")
     public void deleteMonitor(String id) {
-        if (!monitorRepository.existsById(id)) {
-            throw new MonitorNotFoundException("Monitor not found: " + id);
-        }
-        monitorRepository.deleteById(id);
+        Monitor monitor = stateStore.find(id)
+                .orElseThrow(() -> new MonitorNotFoundException("Monitor not found: " + id));
+        monitorRepository.deleteMonitor(id);
+        stateStore.evict(id);
+        invalidationBroadcaster.deleted(id);
+        dashboardCounters.deleted(monitor.getStatus());
+        expiryScheduler.disarm(id);
         logger.info("Monitor deleted: {}", id);
     }
 
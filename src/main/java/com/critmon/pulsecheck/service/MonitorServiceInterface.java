@@ -1,12 +1,16 @@
 package com.critmon.pulsecheck.service;
 
+import com.critmon.pulsecheck.dto.BatchHeartbeatResponse;
 import com.critmon.pulsecheck.dto.BatchMonitorCreateRequest;
 import com.critmon.pulsecheck.dto.BatchMonitorResponse;
 import com.critmon.pulsecheck.dto.DashboardResponse;
+import com.critmon.pulsecheck.dto.MonitorFilter;
 import com.critmon.pulsecheck.model.Monitor;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface MonitorServiceInterface {
     
@@ -18,13 +22,40 @@ public interface MonitorServiceInterface {
     
     Monitor heartbeat(String id);
     
+    BatchHeartbeatResponse heartbeatBatch(List<String> ids);
+    
     Monitor pauseMonitor(String id);
     
     Monitor resumeMonitor(String id);
     
-    List<Monitor> getAllMonitors();
+    List<Monitor> getMonitorsPage(MonitorFilter filter, String after, int limit);
+    
+    void streamMonitors(MonitorFilter filter, Consumer<Monitor> consumer);
+    
+    /**
+     * Token of the latest monitor change, the starting point for {@link #getChangesSince}.
+     */
+    String getChangeSequence();
+    
+    /**
+     * Changes whenever a monitor is created, deleted or changes status, but not on heartbeats
+     * that only move a deadline.
+     */
+    String getListVersion();
+    
+    MonitorChanges getChangesSince(MonitorFilter filter, String since, int limit);
+    
+    /**
+     * Completes once a monitor changes after the given sequence token.
+     */
+    CompletableFuture<Void> awaitChanges(String since);
     
     DashboardResponse getDashboardStats();
     
+    /**
+     * Changes whenever the dashboard counts change, including across restarts.
+     */
+    String getDashboardVersion();
+    
     void deleteMonitor(String id);
 }
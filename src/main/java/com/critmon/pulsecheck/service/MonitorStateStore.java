@@ -0,0 +1,481 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.exception.MonitorNotFoundException;
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorStatus;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
+import com.critmon.pulsecheck.repository.MonitorRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Authoritative in-memory timer state for monitors, persisted write-behind.
+ *
+ * <p>Mutations are applied to the in-memory copy immediately and the monitor is marked dirty.
+ * Repeated mutations of the same monitor between flushes collapse into a single row update,
+ * and dirty rows are written in JDBC batches at most {@code max-flush-lag-ms} later. Callers
+ * only ever receive detached snapshots.
+ *
+ * <p>State is held in a {@link MonitorStateTable}, a few primitive array cells per monitor, so
+ * millions of monitors fit in memory without one entity object graph each.
+ */
+@Service
+public class MonitorStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonitorStateStore.class);
+
+    // Timer mutations, passed as ints so the hot path does not allocate a lambda per call
+    private static final int HEARTBEAT = 0;
+    private static final int PAUSE = 1;
+    private static final int RESUME = 2;
+
+    private final MonitorRepository monitorRepository;
+    private final MonitorJdbcRepository monitorJdbcRepository;
+    private final DashboardCounters dashboardCounters;
+    private final MonitorChangeLog changeLog;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PulseCheckMetrics metrics;
+    private final Clock clock;
+    private final long maxFlushLagMillis;
+    private final int flushBatchSize;
+
+    private final MonitorStateTable table;
+    private ScheduledExecutorService flusher;
+
+    public MonitorStateStore(MonitorRepository monitorRepository,
+                             MonitorJdbcRepository monitorJdbcRepository,
+                             DashboardCounters dashboardCounters,
+                             MonitorChangeLog changeLog,
+                             ApplicationEventPublisher eventPublisher,
+                             PulseCheckMetrics metrics,
+                             Clock clock,
+                             @Value("${pulse-check.heartbeat.max-flush-lag-ms:1000}") long maxFlushLagMillis,
+                             @Value("${pulse-check.heartbeat.flush-batch-size:500}") int flushBatchSize) {
+        this.monitorRepository = monitorRepository;
+        this.monitorJdbcRepository = monitorJdbcRepository;
+        this.dashboardCounters = dashboardCounters;
+        this.changeLog = changeLog;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.clock = clock;
+        this.table = new MonitorStateTable(clock.getZone());
+        this.maxFlushLagMillis = maxFlushLagMillis;
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "state-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, maxFlushLagMillis, maxFlushLagMillis, TimeUnit.MILLISECONDS);
+        metrics.gauge("pulsecheck.state.monitors", "Monitors held in memory", table, MonitorStateTable::size);
+        metrics.gauge("pulsecheck.state.pending.writes", "Monitor changes not flushed yet", table, MonitorStateTable::dirtyCount);
+    }
+
+    /**
+     * Drains every pending write before the datasource goes away, so no acknowledged
+     * heartbeat is lost on a graceful shutdown.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(maxFlushLagMillis * 2, TimeUnit.MILLISECONDS);
+        flush();
+        logger.info("Monitor state store drained ({} monitors held in ~{} KB)", table.size(), table.footprintBytes() / 1024);
+    }
+
+    /**
+     * Registers a freshly persisted monitor so later heartbeats skip the database read.
+     */
+    public void register(Monitor monitor) {
+        registerCreated(Collections.singletonList(monitor));
+    }
+
+    /**
+     * Registers monitors just inserted and records them as changes. The rows are durable already,
+     * so they are announced like flushed ones.
+     */
+    public void registerCreated(Collection<Monitor> monitors) {
+        List<String> ids = new ArrayList<>(monitors.size());
+        for (Monitor monitor : monitors) {
+            table.put(monitor);
+            changeLog.append(monitor.getId());
+            ids.add(monitor.getId());
+        }
+        eventPublisher.publishEvent(new MonitorStatesFlushedEvent(ids));
+    }
+
+    /**
+     * Registers monitors loaded in bulk, keeping any state that is already held for them.
+     */
+    public void registerIfAbsent(Collection<Monitor> monitors) {
+        for (Monitor monitor : monitors) {
+            table.add(monitor);
+        }
+    }
+
+    public boolean contains(String id) {
+        return table.slotOf(id) >= 0;
+    }
+
+    /**
+     * Forgets a deleted monitor, and records the deletion as a change.
+     */
+    public void evict(String id) {
+        table.remove(id);
+        changeLog.append(id);
+    }
+
+    /**
+     * Drops the held copy of a monitor changed by another node, so the next access reads the
+     * database. Unflushed local changes are kept; they win once flushed, as before.
+     */
+    public void invalidate(String id) {
+        table.removeIfClean(id);
+    }
+
+    /**
+     * Drops every held copy without unflushed changes.
+     */
+    public int invalidateAll() {
+        return table.removeAllClean();
+    }
+
+    public Optional<Monitor> find(String id) {
+        while (true) {
+            int slot = load(id);
+            if (slot < 0) {
+                return Optional.empty();
+            }
+            synchronized (table.lockFor(slot)) {
+                if (table.holds(slot, id)) {
+                    return Optional.of(table.snapshot(slot, id));
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-reads a monitor from the database and adopts its persisted timer state, unless this node
+     * holds unflushed changes for it. Used in cluster mode, where heartbeats for a monitor may be
+     * received by any node.
+     */
+    public Optional<Monitor> refresh(String id) {
+        return monitorRepository.findById(id).map(this::adopt);
+    }
+
+    /**
+     * Batch variant of {@link #refresh(String)}, reading all monitors with one query.
+     */
+    public List<Monitor> refreshAll(Collection<String> ids) {
+        List<Monitor> refreshed = new ArrayList<>(ids.size());
+        for (Monitor row : monitorRepository.findAllById(ids)) {
+            refreshed.add(adopt(row));
+        }
+        return refreshed;
+    }
+
+    private Monitor adopt(Monitor row) {
+        String id = row.getId();
+        while (true) {
+            int slot = table.add(row);
+            if (slot < 0) {
+                slot = ~slot;
+            }
+            MonitorStatus before;
+            Monitor snapshot;
+            synchronized (table.lockFor(slot)) {
+                if (!table.holds(slot, id)) {
+                    continue;
+                }
+                before = table.status(slot);
+                if (!table.isDirty(slot)) {
+                    table.setTimerState(slot, row);
+                }
+                snapshot = table.snapshot(slot, id);
+            }
+            dashboardCounters.transition(before, snapshot.getStatus());
+            return snapshot;
+        }
+    }
+
+    /**
+     * Returns the held state for a monitor read from the database, or the row itself if the
+     * store does not hold it. Does not load missing monitors.
+     */
+    public Monitor overlay(Monitor persisted) {
+        String id = persisted.getId();
+        int slot = table.slotOf(id);
+        if (slot < 0) {
+            return persisted;
+        }
+        synchronized (table.lockFor(slot)) {
+            return table.holds(slot, id) ? table.snapshot(slot, id) : persisted;
+        }
+    }
+
+    public StateChange heartbeat(String id) {
+        return update(id, HEARTBEAT);
+    }
+
+    public StateChange pause(String id) {
+        return update(id, PAUSE);
+    }
+
+    public StateChange resume(String id) {
+        return update(id, RESUME);
+    }
+
+    /**
+     * Marks the monitor as alerted, unless a heartbeat moved its deadline after the alert
+     * decision was taken.
+     *
+     * @return true if the monitor was marked inactive
+     */
+    public boolean markAlerted(String id, long alertedExpiresAtMillis) {
+        return markAlerted(id, alertedExpiresAtMillis, true);
+    }
+
+    /**
+     * Like {@link #markAlerted(String, long)}, but the inactive state is not written until
+     * {@link #confirmAlerted} is called once the alert is recorded. {@link #releaseAlerted} brings
+     * the monitor back up if recording failed, so its row never goes inactive without an alert.
+     */
+    public boolean holdAlerted(String id, long alertedExpiresAtMillis) {
+        return markAlerted(id, alertedExpiresAtMillis, false);
+    }
+
+    /**
+     * Schedules the write of monitors taken down by {@link #holdAlerted}.
+     */
+    public void confirmAlerted(Collection<Monitor> alerted) {
+        for (Monitor monitor : alerted) {
+            withAlertedSlot(monitor, slot -> {
+                table.markDirty(slot);
+                table.markTransitioned(slot);
+            });
+        }
+    }
+
+    /**
+     * Brings monitors taken down by {@link #holdAlerted} back up with the state they were alerted
+     * in, unless something changed them since.
+     */
+    public void releaseAlerted(Collection<Monitor> alerted) {
+        for (Monitor monitor : alerted) {
+            if (withAlertedSlot(monitor, slot -> table.setTimerState(slot, monitor))) {
+                changeLog.append(monitor.getId());
+                dashboardCounters.transition(MonitorStatus.DOWN, MonitorStatus.UP);
+            }
+        }
+    }
+
+    /**
+     * Runs the action under the slot lock if the store still holds the monitor down at the
+     * deadline it was alerted for.
+     */
+    private boolean withAlertedSlot(Monitor alerted, IntConsumer action) {
+        String id = alerted.getId();
+        int slot = table.slotOf(id);
+        if (slot < 0) {
+            return false;
+        }
+        synchronized (table.lockFor(slot)) {
+            if (!table.holds(slot, id) || table.status(slot) != MonitorStatus.DOWN
+                    || table.expiresAtMillis(slot) != alerted.getExpiresAtMillis()) {
+                return false;
+            }
+            action.accept(slot);
+            return true;
+        }
+    }
+
+    private boolean markAlerted(String id, long alertedExpiresAtMillis, boolean write) {
+        while (true) {
+            int slot = load(id);
+            if (slot < 0) {
+                return false;
+            }
+            synchronized (table.lockFor(slot)) {
+                if (!table.holds(slot, id)) {
+                    continue;
+                }
+                if (table.status(slot) != MonitorStatus.UP || alertedExpiresAtMillis != table.expiresAtMillis(slot)) {
+                    return false;
+                }
+                table.deactivate(slot);
+                if (write) {
+                    table.markDirty(slot);
+                    table.markTransitioned(slot);
+                }
+            }
+            changeLog.append(id);
+            dashboardCounters.transition(MonitorStatus.UP, MonitorStatus.DOWN);
+            return true;
+        }
+    }
+
+    /**
+     * Applies an alert claimed in the database. A monitor the store does not hold yet is
+     * registered in its claimed, already inactive state.
+     *
+     * @return true if the monitor went from UP to DOWN
+     */
+    public boolean markAlerted(Monitor claimed) {
+        if (table.slotOf(claimed.getId()) < 0 && table.add(claimed.toBuilder().isActive(false).build()) >= 0) {
+            changeLog.append(claimed.getId());
+            dashboardCounters.transition(MonitorStatus.UP, MonitorStatus.DOWN);
+            // The claim already wrote this state, so there is no flush to announce it
+            eventPublisher.publishEvent(new MonitorStatesFlushedEvent(Collections.singletonList(claimed.getId())));
+            return true;
+        }
+        return markAlerted(claimed.getId(), claimed.getExpiresAtMillis());
+    }
+
+    public int pendingWrites() {
+        return table.dirtyCount();
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Approximate heap held for the monitors in the store.
+     */
+    public long footprintBytes() {
+        return table.footprintBytes();
+    }
+
+    /**
+     * Writes every dirty monitor to the database in JDBC batches, then announces them in one
+     * event, telling the monitors whose status changed from those whose deadline only moved.
+     */
+    public void flush() {
+        if (table.dirtyCount() == 0) {
+            return;
+        }
+        Set<String> transitioned = new HashSet<>();
+        List<Monitor> snapshots = table.drainDirty(transitioned);
+        long start = System.nanoTime();
+        try {
+            monitorJdbcRepository.updateTimerStates(snapshots, flushBatchSize);
+            logger.debug("Flushed {} monitor states ({} transitions)", snapshots.size(), transitioned.size());
+        } catch (RuntimeException e) {
+            metrics.databaseWrite("flush", snapshots.size(), start, false);
+            table.flushFailed(snapshots, transitioned);
+            throw e;
+        }
+        table.flushed(snapshots);
+        metrics.databaseWrite("flush", snapshots.size(), start, true);
+        List<String> moved = new ArrayList<>(snapshots.size() - transitioned.size());
+        for (Monitor snapshot : snapshots) {
+            if (!transitioned.contains(snapshot.getId())) {
+                moved.add(snapshot.getId());
+            }
+        }
+        eventPublisher.publishEvent(new MonitorStatesFlushedEvent(new ArrayList<>(transitioned), moved));
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Failed to flush monitor states, {} pending writes will be retried", pendingWrites(), e);
+        }
+    }
+
+    private StateChange update(String id, int mutation) {
+        while (true) {
+            int slot = load(id);
+            if (slot < 0) {
+                throw new MonitorNotFoundException("Monitor not found: " + id);
+            }
+            MonitorStatus before;
+            Monitor snapshot;
+            synchronized (table.lockFor(slot)) {
+                if (!table.holds(slot, id)) {
+                    continue;
+                }
+                before = table.status(slot);
+                if (mutation == PAUSE) {
+                    table.pause(slot);
+                } else {
+                    // Resuming restarts the timer exactly like a heartbeat
+                    table.resetTimer(slot, clock.millis());
+                }
+                table.markDirty(slot);
+                if (table.status(slot) != before) {
+                    table.markTransitioned(slot);
+                }
+                snapshot = table.snapshot(slot, id);
+            }
+            if (snapshot.getStatus() != before) {
+                changeLog.append(id);
+            } else {
+                changeLog.appendMoved(id);
+            }
+            dashboardCounters.transition(before, snapshot.getStatus());
+            return new StateChange(before, snapshot);
+        }
+    }
+
+    /**
+     * @return the slot holding the monitor, loading it from the database if needed, or -1 if it
+     *         does not exist
+     */
+    private int load(String id) {
+        int slot = table.slotOf(id);
+        if (slot >= 0) {
+            return slot;
+        }
+        return monitorRepository.findById(id)
+                .map(monitor -> {
+                    int added = table.add(monitor);
+                    return added >= 0 ? added : ~added;
+                })
+                .orElse(-1);
+    }
+
+    /**
+     * Snapshot taken right after a mutation, with the status it replaced, so callers can detect
+     * transitions without reading the monitor again.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class StateChange {
+        private final MonitorStatus previous;
+        private final Monitor monitor;
+
+        /**
+         * @return the transition caused by the mutation, or null if the status did not change
+         */
+        public MonitorTransition getTransition() {
+            return MonitorTransition.between(previous, monitor.getStatus());
+        }
+    }
+}
@@ -0,0 +1,818 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact storage behind {@link MonitorStateStore}.
+ *
+ * <p>Every held monitor is interned to a dense int slot, and its state lives in primitive
+ * columns split into fixed-size segments instead of one entity object per monitor. Canonical
+ * UUID IDs, which is what the API assigns, are stored as two longs and looked up through an
+ * open-addressing index; any other ID is kept on the side as a String. Device IDs of up to 16
+ * ASCII characters are packed into two longs as well, so most monitors need no object of their
+ * own, and alert addresses are shared between monitors.
+ *
+ * <p>The index is guarded by a {@link StampedLock}: lookups are optimistic, and only adding and
+ * removing monitors takes the write lock. The columns of a slot are guarded by
+ * {@link #lockFor(int)}. Removed slots are reused, so callers must check
+ * {@link #holds(int, String)} under that lock before touching a slot they looked up.
+ *
+ * <p>A drained monitor stays marked as in flight until its write is confirmed with
+ * {@link #flushed(Collection)} or handed back with {@link #flushFailed(Collection, Set)}, and
+ * counts as dirty until then, so it cannot be dropped or overwritten from the database while the
+ * write runs.
+ */
+public class MonitorStateTable {
+
+    private static final int SEGMENT_BITS = 14;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int STRIPES = 1024;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+    private static final int NOT_FOUND = -1;
+    private static final int INCONSISTENT = -2;
+
+    private static final byte PRESENT = 1;
+    private static final byte ACTIVE = 2;
+    private static final byte PAUSED = 4;
+    private static final byte IRREGULAR_ID = 8;
+    private static final byte PACKED_DEVICE_ID = 16;
+    // The status changed since the last drain, so the flush has to announce it to other nodes
+    private static final byte TRANSITIONED = 32;
+    private static final int PACKED_DEVICE_ID_LENGTH = 16;
+
+    /**
+     * Heap taken by one segment: eight long, three int-sized and one byte column, the dirty and
+     * in-flight bitmaps and the array headers, assuming compressed references.
+     */
+    private static final long SEGMENT_BYTES = SEGMENT_SIZE * (8L * 8 + 3 * 4 + 1) + SEGMENT_SIZE / 4 + 14 * 16;
+
+    private final StampedLock indexLock = new StampedLock();
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<String, Integer> irregularSlots = new ConcurrentHashMap<>();
+    private final Map<Integer, String> irregularIds = new ConcurrentHashMap<>();
+    // Alert addresses repeat across many monitors, so each distinct one is held once
+    private final Map<String, String> alertEmails = new ConcurrentHashMap<>();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private final LongAdder unpackedDeviceIdBytes = new LongAdder();
+    private final ZoneId zone;
+
+    private volatile Segment[] segments = new Segment[0];
+    private volatile int[] index = new int[INITIAL_INDEX_CAPACITY];
+    private volatile int size;
+    private int indexed;
+    private int nextSlot;
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    /**
+     * @param zone the zone of the application clock, in which creation times are given
+     */
+    public MonitorStateTable(ZoneId zone) {
+        this.zone = zone;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * @return the slot holding the monitor, or -1 if it is not held
+     */
+    public int slotOf(String id) {
+        if (!isCanonicalUuid(id)) {
+            Integer slot = irregularSlots.get(id);
+            return slot != null ? slot : NOT_FOUND;
+        }
+        long high = uuidHigh(id);
+        long low = uuidLow(id);
+        long stamp = indexLock.tryOptimisticRead();
+        int slot = probe(high, low);
+        if (slot == INCONSISTENT || !indexLock.validate(stamp)) {
+            stamp = indexLock.readLock();
+            try {
+                slot = probe(high, low);
+            } finally {
+                indexLock.unlockRead(stamp);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Adds the monitor unless its ID is already held.
+     *
+     * @return the new slot, or the complement ({@code ~slot}) of the slot already holding the ID
+     */
+    public int add(Monitor monitor) {
+        String id = monitor.getId();
+        boolean canonical = isCanonicalUuid(id);
+        long high = canonical ? uuidHigh(id) : 0;
+        long low = canonical ? uuidLow(id) : 0;
+        long stamp = indexLock.writeLock();
+        try {
+            int existing;
+            if (canonical) {
+                existing = probe(high, low);
+            } else {
+                existing = irregularSlots.getOrDefault(id, NOT_FOUND);
+            }
+            if (existing >= 0) {
+                return ~existing;
+            }
+            int slot = allocate();
+            Segment segment = segments[slot >>> SEGMENT_BITS];
+            int i = slot & SEGMENT_MASK;
+            synchronized (lockFor(slot)) {
+                segment.idHigh[i] = high;
+                segment.idLow[i] = low;
+                segment.flags[i] = canonical ? PRESENT : (byte) (PRESENT | IRREGULAR_ID);
+                write(segment, i, monitor);
+            }
+            if (canonical) {
+                indexSlot(slot, high, low);
+            } else {
+                irregularIds.put(slot, id);
+                irregularSlots.put(id, slot);
+            }
+            size++;
+            return slot;
+        } finally {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds the monitor, or overwrites the state held for its ID.
+     */
+    public void put(Monitor monitor) {
+        while (true) {
+            int slot = add(monitor);
+            if (slot >= 0) {
+                return;
+            }
+            slot = ~slot;
+            synchronized (lockFor(slot)) {
+                if (holds(slot, monitor.getId())) {
+                    write(segments[slot >>> SEGMENT_BITS], slot & SEGMENT_MASK, monitor);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the monitor and frees its slot for reuse, discarding any unflushed change.
+     *
+     * @return true if the monitor was held
+     */
+    public boolean remove(String id) {
+        return remove(id, false);
+    }
+
+    /**
+     * Drops the monitor unless it has changes that are not flushed yet.
+     *
+     * @return true if the monitor was dropped
+     */
+    public boolean removeIfClean(String id) {
+        return remove(id, true);
+    }
+
+    /**
+     * Drops every monitor without unflushed changes.
+     *
+     * @return the number of monitors dropped
+     */
+    public int removeAllClean() {
+        List<String> clean = new ArrayList<>();
+        Segment[] current = segments;
+        for (int s = 0; s < current.length; s++) {
+            Segment segment = current[s];
+            for (int i = 0; i < SEGMENT_SIZE; i++) {
+                int slot = (s << SEGMENT_BITS) | i;
+                synchronized (lockFor(slot)) {
+                    byte flags = segment.flags[i];
+                    if ((flags & PRESENT) != 0 && !isDirty(slot)) {
+                        clean.add(idOf(slot, segment, i, flags));
+                    }
+                }
+            }
+        }
+        int removed = 0;
+        for (String id : clean) {
+            if (removeIfClean(id)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private boolean remove(String id, boolean onlyIfClean) {
+        boolean canonical = isCanonicalUuid(id);
+        long stamp = indexLock.writeLock();
+        try {
+            int slot;
+            if (canonical) {
+                slot = probe(uuidHigh(id), uuidLow(id));
+            } else {
+                slot = irregularSlots.getOrDefault(id, NOT_FOUND);
+            }
+            if (slot < 0) {
+                return false;
+            }
+            Segment segment = segments[slot >>> SEGMENT_BITS];
+            int i = slot & SEGMENT_MASK;
+            synchronized (lockFor(slot)) {
+                if (onlyIfClean && isDirty(slot)) {
+                    return false;
+                }
+                clearDirty(segment, i);
+                clearBit(segment.flushing, i);
+                setDeviceId(segment, i, null);
+                segment.alertEmail[i] = null;
+                segment.flags[i] = 0;
+            }
+            if (canonical) {
+                unindexSlot(uuidHigh(id), uuidLow(id));
+            } else {
+                irregularSlots.remove(id);
+                irregularIds.remove(slot);
+            }
+            segment.idHigh[i] = 0;
+            segment.idLow[i] = 0;
+            release(slot);
+            size--;
+            return true;
+        } finally {
+            indexLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Lock guarding the columns of the given slot. Several slots share a lock.
+     */
+    public Object lockFor(int slot) {
+        return stripes[slot & (STRIPES - 1)];
+    }
+
+    /**
+     * Whether the slot currently holds the given monitor. Call under {@link #lockFor(int)}.
+     */
+    public boolean holds(int slot, String id) {
+        Segment segment = segment(slot);
+        if (segment == null) {
+            return false;
+        }
+        int i = slot & SEGMENT_MASK;
+        byte flags = segment.flags[i];
+        if ((flags & PRESENT) == 0) {
+            return false;
+        }
+        if ((flags & IRREGULAR_ID) != 0) {
+            return id.equals(irregularIds.get(slot));
+        }
+        return isCanonicalUuid(id) && segment.idHigh[i] == uuidHigh(id) && segment.idLow[i] == uuidLow(id);
+    }
+
+    // The accessors below must be called under lockFor(slot), after holds(slot, id)
+
+    public MonitorStatus status(int slot) {
+        byte flags = segment(slot).flags[slot & SEGMENT_MASK];
+        return MonitorStatus.of((flags & ACTIVE) != 0, (flags & PAUSED) != 0);
+    }
+
+    public long expiresAtMillis(int slot) {
+        return segment(slot).expiresAt[slot & SEGMENT_MASK];
+    }
+
+    public long version(int slot) {
+        return segment(slot).version[slot & SEGMENT_MASK];
+    }
+
+    // Each mutation that changes what a snapshot shows raises the monitor's version
+
+    /**
+     * Same transition as {@link Monitor#resetTimer(long)}.
+     */
+    public void resetTimer(int slot, long nowMillis) {
+        Segment segment = segment(slot);
+        int i = slot & SEGMENT_MASK;
+        setTimer(segment, i, nowMillis, nowMillis + segment.timeout[i] * 1000L, true, false);
+        segment.version[i]++;
+    }
+
+    public void pause(int slot) {
+        Segment segment = segment(slot);
+        int i = slot & SEGMENT_MASK;
+        if ((segment.flags[i] & PAUSED) == 0) {
+            segment.flags[i] |= PAUSED;
+            segment.version[i]++;
+        }
+    }
+
+    public void deactivate(int slot) {
+        Segment segment = segment(slot);
+        int i = slot & SEGMENT_MASK;
+        segment.flags[i] &= ~ACTIVE;
+        segment.version[i]++;
+    }
+
+    /**
+     * Overwrites the timer state and version of the slot with the ones of the given row.
+     */
+    public void setTimerState(int slot, Monitor row) {
+        Segment segment = segment(slot);
+        int i = slot & SEGMENT_MASK;
+        setTimer(segment, i, row.getLastHeartbeatMillis(), row.getExpiresAtMillis(), row.isActive(), row.isPaused());
+        segment.version[i] = row.getVersionOrZero();
+    }
+
+    /**
+     * Builds a detached monitor from the slot, reusing the caller's ID string.
+     */
+    public Monitor snapshot(int slot, String id) {
+        Segment segment = segment(slot);
+        int i = slot & SEGMENT_MASK;
+        return Monitor.builder()
+                .id(id)
+                .deviceId(deviceIdOf(segment, i))
+                .timeout(segment.timeout[i])
+                .alertEmail(segment.alertEmail[i])
+                .createdAt(toLocalDateTime(segment.createdAt[i]))
+                .lastHeartbeatMillis(segment.lastHeartbeat[i])
+                .expiresAtMillis(segment.expiresAt[i])
+                .isActive((segment.flags[i] & ACTIVE) != 0)
+                .isPaused((segment.flags[i] & PAUSED) != 0)
+                .version(segment.version[i])
+                .build();
+    }
+
+    /**
+     * Whether the slot has changes not confirmed written yet: pending, or drained and in flight.
+     */
+    public boolean isDirty(int slot) {
+        Segment segment = segment(slot);
+        int i = slot & SEGMENT_MASK;
+        long bit = 1L << i;
+        return ((segment.dirty.get(i >>> 6) | segment.flushing.get(i >>> 6)) & bit) != 0;
+    }
+
+    public void markDirty(int slot) {
+        AtomicLongArray dirty = segment(slot).dirty;
+        int i = slot & SEGMENT_MASK;
+        int word = i >>> 6;
+        long bit = 1L << i;
+        long current;
+        do {
+            current = dirty.get(word);
+            if ((current & bit) != 0) {
+                return;
+            }
+        } while (!dirty.compareAndSet(word, current, current | bit));
+        dirtyCount.incrementAndGet();
+    }
+
+    /**
+     * Records that the status of the slot changed, for the next {@link #drainDirty(Set)}.
+     */
+    public void markTransitioned(int slot) {
+        segment(slot).flags[slot & SEGMENT_MASK] |= TRANSITIONED;
+    }
+
+    /**
+     * Confirms that the drained monitors were written, so they count as clean again unless they
+     * changed since.
+     */
+    public void flushed(Collection<Monitor> monitors) {
+        completeFlush(monitors, Set.of(), false);
+    }
+
+    /**
+     * Marks the drained monitors dirty again after their write failed, and the given ones as
+     * transitioned again. Monitors removed meanwhile, which only an explicit
+     * {@link #remove(String)} can do, are skipped.
+     */
+    public void flushFailed(Collection<Monitor> monitors, Set<String> transitioned) {
+        completeFlush(monitors, transitioned, true);
+    }
+
+    private void completeFlush(Collection<Monitor> monitors, Set<String> transitioned, boolean failed) {
+        for (Monitor monitor : monitors) {
+            int slot = slotOf(monitor.getId());
+            if (slot < 0) {
+                continue;
+            }
+            synchronized (lockFor(slot)) {
+                if (holds(slot, monitor.getId())) {
+                    clearBit(segment(slot).flushing, slot & SEGMENT_MASK);
+                    if (failed) {
+                        markDirty(slot);
+                        if (transitioned.contains(monitor.getId())) {
+                            markTransitioned(slot);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int dirtyCount() {
+        return dirtyCount.get();
+    }
+
+    /**
+     * Moves every dirty mark to in flight and returns the timer state of the marked monitors,
+     * without the descriptive fields the write-behind flush does not need. Pass the result to
+     * {@link #flushed(Collection)} or {@link #flushFailed(Collection, Set)} once the write is done.
+     *
+     * @param transitioned receives the IDs of the drained monitors whose status changed
+     */
+    public List<Monitor> drainDirty(Set<String> transitioned) {
+        List<Monitor> drained = new ArrayList<>(Math.max(0, dirtyCount.get()));
+        Segment[] current = segments;
+        for (int s = 0; s < current.length; s++) {
+            Segment segment = current[s];
+            for (int word = 0; word < segment.dirty.length(); word++) {
+                long bits = segment.dirty.get(word);
+                while (bits != 0) {
+                    int i = (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int slot = (s << SEGMENT_BITS) | i;
+                    synchronized (lockFor(slot)) {
+                        byte flags = segment.flags[i];
+                        if ((segment.dirty.get(word) & (1L << i)) == 0) {
+                            continue;
+                        }
+                        // Set in flight before clearing dirty, under the slot's lock, so the
+                        // monitor never looks clean to a concurrent remove
+                        if ((flags & PRESENT) != 0) {
+                            setBit(segment.flushing, i);
+                        }
+                        clearDirty(segment, i);
+                        if ((flags & PRESENT) != 0) {
+                            String id = idOf(slot, segment, i, flags);
+                            if ((flags & TRANSITIONED) != 0) {
+                                segment.flags[i] &= ~TRANSITIONED;
+                                transitioned.add(id);
+                            }
+                            drained.add(Monitor.builder()
+                                    .id(id)
+                                    .timeout(segment.timeout[i])
+                                    .lastHeartbeatMillis(segment.lastHeartbeat[i])
+                                    .expiresAtMillis(segment.expiresAt[i])
+                                    .isActive((flags & ACTIVE) != 0)
+                                    .isPaused((flags & PAUSED) != 0)
+                                    .version(segment.version[i])
+                                    .build());
+                        }
+                    }
+                }
+            }
+        }
+        return drained;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap retained by the table: the segment columns, the ID index and the device IDs
+     * too long to be packed. Non-UUID IDs and the shared alert addresses are not counted.
+     */
+    public long footprintBytes() {
+        return segments.length * SEGMENT_BYTES + 16L + 4L * index.length + unpackedDeviceIdBytes.sum();
+    }
+
+    private Segment segment(int slot) {
+        Segment[] current = segments;
+        int s = slot >>> SEGMENT_BITS;
+        return s < current.length ? current[s] : null;
+    }
+
+    private void write(Segment segment, int i, Monitor monitor) {
+        setDeviceId(segment, i, monitor.getDeviceId());
+        segment.alertEmail[i] = monitor.getAlertEmail() != null
+                ? alertEmails.computeIfAbsent(monitor.getAlertEmail(), email -> email) : null;
+        segment.timeout[i] = monitor.getTimeout();
+        segment.createdAt[i] = toEpochMillis(monitor.getCreatedAt());
+        setTimer(segment, i, monitor.getLastHeartbeatMillis(), monitor.getExpiresAtMillis(),
+                monitor.isActive(), monitor.isPaused());
+        segment.version[i] = monitor.getVersionOrZero();
+    }
+
+    private static void setTimer(Segment segment, int i, long lastHeartbeatMillis, long expiresAtMillis,
+                                 boolean active, boolean paused) {
+        segment.lastHeartbeat[i] = lastHeartbeatMillis;
+        segment.expiresAt[i] = expiresAtMillis;
+        segment.flags[i] = (byte) ((segment.flags[i] & ~(ACTIVE | PAUSED))
+                | (active ? ACTIVE : 0) | (paused ? PAUSED : 0));
+    }
+
+    private void setDeviceId(Segment segment, int i, String deviceId) {
+        unpackedDeviceIdBytes.add(-arrayBytes(segment.deviceId[i]));
+        segment.deviceId[i] = null;
+        segment.deviceIdHigh[i] = 0;
+        segment.deviceIdLow[i] = 0;
+        segment.flags[i] &= ~PACKED_DEVICE_ID;
+        if (deviceId == null) {
+            return;
+        }
+        if (isPackable(deviceId)) {
+            // Big-endian ASCII, zero-padded; device IDs never contain NUL, so the padding marks the end
+            long high = 0;
+            long low = 0;
+            for (int c = 0; c < PACKED_DEVICE_ID_LENGTH; c++) {
+                long b = c < deviceId.length() ? deviceId.charAt(c) : 0;
+                if (c < 8) {
+                    high = (high << 8) | b;
+                } else {
+                    low = (low << 8) | b;
+                }
+            }
+            segment.deviceIdHigh[i] = high;
+            segment.deviceIdLow[i] = low;
+            segment.flags[i] |= PACKED_DEVICE_ID;
+        } else {
+            byte[] bytes = deviceId.getBytes(StandardCharsets.UTF_8);
+            segment.deviceId[i] = bytes;
+            unpackedDeviceIdBytes.add(arrayBytes(bytes));
+        }
+    }
+
+    private static String deviceIdOf(Segment segment, int i) {
+        if ((segment.flags[i] & PACKED_DEVICE_ID) == 0) {
+            byte[] bytes = segment.deviceId[i];
+            return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+        }
+        char[] chars = new char[PACKED_DEVICE_ID_LENGTH];
+        int length = 0;
+        for (int c = 0; c < PACKED_DEVICE_ID_LENGTH; c++) {
+            long word = c < 8 ? segment.deviceIdHigh[i] : segment.deviceIdLow[i];
+            char b = (char) ((word >>> (56 - 8 * (c & 7))) & 0xFF);
+            if (b == 0) {
+                break;
+            }
+            chars[length++] = b;
+        }
+        return new String(chars, 0, length);
+    }
+
+    private static boolean isPackable(String deviceId) {
+        if (deviceId.length() > PACKED_DEVICE_ID_LENGTH) {
+            return false;
+        }
+        for (int c = 0; c < deviceId.length(); c++) {
+            char ch = deviceId.charAt(c);
+            if (ch == 0 || ch > 127) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void clearDirty(Segment segment, int i) {
+        if (clearBit(segment.dirty, i)) {
+            dirtyCount.decrementAndGet();
+        }
+    }
+
+    private static void setBit(AtomicLongArray bitmap, int i) {
+        int word = i >>> 6;
+        long bit = 1L << i;
+        long current;
+        do {
+            current = bitmap.get(word);
+            if ((current & bit) != 0) {
+                return;
+            }
+        } while (!bitmap.compareAndSet(word, current, current | bit));
+    }
+
+    /**
+     * @return true if the bit was set
+     */
+    private static boolean clearBit(AtomicLongArray bitmap, int i) {
+        int word = i >>> 6;
+        long bit = 1L << i;
+        long current;
+        do {
+            current = bitmap.get(word);
+            if ((current & bit) == 0) {
+                return false;
+            }
+        } while (!bitmap.compareAndSet(word, current, current & ~bit));
+        return true;
+    }
+
+    private String idOf(int slot, Segment segment, int i, byte flags) {
+        if ((flags & IRREGULAR_ID) != 0) {
+            return irregularIds.get(slot);
+        }
+        return new UUID(segment.idHigh[i], segment.idLow[i]).toString();
+    }
+
+    // Slot allocation and the ID index, all under the write lock
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = nextSlot++;
+        Segment[] current = segments;
+        if ((slot >>> SEGMENT_BITS) == current.length) {
+            Segment[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = new Segment();
+            segments = grown;
+        }
+        return slot;
+    }
+
+    private void release(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    /**
+     * Linear probe for the given UUID. Without the write lock held the arrays may change
+     * underneath, in which case -2 is returned or the caller's stamp fails validation.
+     */
+    private int probe(long high, long low) {
+        int[] table = index;
+        Segment[] current = segments;
+        int mask = table.length - 1;
+        int position = hash(high, low) & mask;
+        for (int probes = 0; probes < table.length; probes++, position = (position + 1) & mask) {
+            int entry = table[position];
+            if (entry == 0) {
+                return NOT_FOUND;
+            }
+            int slot = entry - 1;
+            int s = slot >>> SEGMENT_BITS;
+            if (s >= current.length) {
+                return INCONSISTENT;
+            }
+            int i = slot & SEGMENT_MASK;
+            if (current[s].idHigh[i] == high && current[s].idLow[i] == low) {
+                return slot;
+            }
+        }
+        return INCONSISTENT;
+    }
+
+    private void indexSlot(int slot, long high, long low) {
+        // Kept at most three quarters full, so probe sequences stay short
+        if ((indexed + 1) * 4L > index.length * 3L) {
+            int[] grown = new int[index.length * 2];
+            for (int entry : index) {
+                if (entry != 0) {
+                    Segment segment = segments[(entry - 1) >>> SEGMENT_BITS];
+                    int i = (entry - 1) & SEGMENT_MASK;
+                    insert(grown, entry, hash(segment.idHigh[i], segment.idLow[i]));
+                }
+            }
+            index = grown;
+        }
+        insert(index, slot + 1, hash(high, low));
+        indexed++;
+    }
+
+    private static void insert(int[] table, int entry, int hash) {
+        int mask = table.length - 1;
+        int position = hash & mask;
+        while (table[position] != 0) {
+            position = (position + 1) & mask;
+        }
+        table[position] = entry;
+    }
+
+    /**
+     * Removes the UUID from the index with backward-shift deletion, so no tombstones build up.
+     */
+    private int unindexSlot(long high, long low) {
+        int[] table = index;
+        int mask = table.length - 1;
+        int gap = hash(high, low) & mask;
+        while (true) {
+            int entry = table[gap];
+            if (entry == 0) {
+                return NOT_FOUND;
+            }
+            Segment segment = segments[(entry - 1) >>> SEGMENT_BITS];
+            int i = (entry - 1) & SEGMENT_MASK;
+            if (segment.idHigh[i] == high && segment.idLow[i] == low) {
+                break;
+            }
+            gap = (gap + 1) & mask;
+        }
+        int removed = table[gap] - 1;
+        for (int next = (gap + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+            int entry = table[next];
+            Segment segment = segments[(entry - 1) >>> SEGMENT_BITS];
+            int i = (entry - 1) & SEGMENT_MASK;
+            int home = hash(segment.idHigh[i], segment.idLow[i]) & mask;
+            // The entry may fill the gap only if the gap lies between its home and its position
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = entry;
+                gap = next;
+            }
+        }
+        table[gap] = 0;
+        indexed--;
+        return removed;
+    }
+
+    private static int hash(long high, long low) {
+        long h = (high ^ Long.rotateLeft(low, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Whether the ID is in the lowercase form {@link UUID#toString()} produces, so storing it as
+     * two longs and formatting it again yields the same string.
+     */
+    static boolean isCanonicalUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23
+                    ? c == '-'
+                    : (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+            if (!valid) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long uuidHigh(String id) {
+        return hexBits(id, 0, 18);
+    }
+
+    private static long uuidLow(String id) {
+        return hexBits(id, 19, 36);
+    }
+
+    private static long hexBits(String id, int from, int to) {
+        long bits = 0;
+        for (int i = from; i < to; i++) {
+            char c = id.charAt(i);
+            if (c != '-') {
+                bits = (bits << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+            }
+        }
+        return bits;
+    }
+
+    private static long arrayBytes(byte[] bytes) {
+        return bytes == null ? 0 : (16 + bytes.length + 7) & ~7L;
+    }
+
+    private long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime == null ? 0 : dateTime.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return epochMillis == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), zone);
+    }
+
+    private static final class Segment {
+        private final long[] idHigh = new long[SEGMENT_SIZE];
+        private final long[] idLow = new long[SEGMENT_SIZE];
+        private final long[] expiresAt = new long[SEGMENT_SIZE];
+        private final long[] lastHeartbeat = new long[SEGMENT_SIZE];
+        private final long[] createdAt = new long[SEGMENT_SIZE];
+        private final long[] deviceIdHigh = new long[SEGMENT_SIZE];
+        private final long[] deviceIdLow = new long[SEGMENT_SIZE];
+        private final long[] version = new long[SEGMENT_SIZE];
+        private final int[] timeout = new int[SEGMENT_SIZE];
+        private final byte[] flags = new byte[SEGMENT_SIZE];
+        private final byte[][] deviceId = new byte[SEGMENT_SIZE][];
+        private final String[] alertEmail = new String[SEGMENT_SIZE];
+        private final AtomicLongArray dirty = new AtomicLongArray(SEGMENT_SIZE / 64);
+        // Drained for a write that is not confirmed yet
+        private final AtomicLongArray flushing = new AtomicLongArray(SEGMENT_SIZE / 64);
+    }
+}
@@ -0,0 +1,30 @@
+package com.critmon.pulsecheck.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published by {@link MonitorStateStore} after a write-behind flush committed monitor states,
+ * after it took over a state an expiry claim already wrote, or after it registered newly inserted
+ * monitors. {@code ids} are the monitors whose status changed or that are new; {@code moved} the
+ * flushed ones whose heartbeats only moved a deadline.
+ */
+@Getter
+@ToString
+public class MonitorStatesFlushedEvent {
+
+    private final List<String> ids;
+    private final List<String> moved;
+
+    public MonitorStatesFlushedEvent(List<String> ids) {
+        this(ids, Collections.emptyList());
+    }
+
+    public MonitorStatesFlushedEvent(List<String> ids, List<String> moved) {
+        this.ids = ids;
+        this.moved = moved;
+    }
+}
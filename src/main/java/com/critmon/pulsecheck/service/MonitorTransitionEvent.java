@@ -0,0 +1,25 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Published through the application event bus whenever a monitor changes state. The monitor
+ * is a detached snapshot taken right after the transition.
+ */
+@Getter
+@ToString
+public class MonitorTransitionEvent {
+
+    private final Monitor monitor;
+    private final MonitorTransition transition;
+    private final long occurredAtMillis;
+
+    public MonitorTransitionEvent(Monitor monitor, MonitorTransition transition, long occurredAtMillis) {
+        this.monitor = monitor;
+        this.transition = transition;
+        this.occurredAtMillis = occurredAtMillis;
+    }
+}
@@ -0,0 +1,112 @@
+package com.critmon.pulsecheck.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Exchanges invalidations through PostgreSQL {@code LISTEN/NOTIFY} on the application's own
+ * database, so no extra infrastructure is needed. One pooled connection is held for listening.
+ *
+ * <p>Notifications sent while the listener is disconnected are lost, so after reconnecting the
+ * subscribers receive a {@link MonitorInvalidation.Kind#RESYNC} telling them to drop everything.
+ */
+public class PostgresInvalidationTransport implements MonitorInvalidationTransport {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationTransport.class);
+
+    static final String CHANNEL = "monitor_invalidation";
+    // PostgreSQL rejects payloads of 8000 bytes or more
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final List<Consumer<MonitorInvalidation>> listeners = new CopyOnWriteArrayList<>();
+    private final Thread listenerThread;
+    private volatile boolean running = true;
+
+    public PostgresInvalidationTransport(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerThread = new Thread(this::listen, "invalidation-listener");
+        this.listenerThread.setDaemon(true);
+        this.listenerThread.start();
+    }
+
+    @Override
+    public void publish(MonitorInvalidation invalidation) {
+        for (String payload : invalidation.encode(MAX_PAYLOAD_BYTES)) {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", CHANNEL, payload);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<MonitorInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        listenerThread.interrupt();
+    }
+
+    private void listen() {
+        boolean connectedBefore = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (connectedBefore) {
+                    logger.info("Invalidation listener reconnected");
+                    MonitorInvalidation resync = MonitorInvalidation.resync();
+                    listeners.forEach(listener -> listener.accept(resync));
+                }
+                connectedBefore = true;
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Invalidation listener disconnected, retrying in {}ms", RECONNECT_DELAY_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        try {
+            MonitorInvalidation invalidation = MonitorInvalidation.decode(payload);
+            listeners.forEach(listener -> listener.accept(invalidation));
+        } catch (RuntimeException e) {
+            logger.error("Failed to apply invalidation {}", payload, e);
+        }
+    }
+}
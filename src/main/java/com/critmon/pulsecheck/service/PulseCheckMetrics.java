@@ -0,0 +1,150 @@
+package com.critmon.pulsecheck.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters for the heartbeat, persistence, expiry and alert paths, exported under
+ * {@code pulsecheck.*}. Tags are limited to fixed sets of values (outcome, operation, source),
+ * never monitor or device IDs. HTTP endpoints are timed by Spring as {@code http.server.requests}.
+ */
+@Component
+public class PulseCheckMetrics {
+
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry registry;
+    private final Timer heartbeatFound;
+    private final Timer heartbeatNotFound;
+    private final Timer sweep;
+    private final Timer expiryLag;
+    private final Timer emailSent;
+    private final Timer emailFailed;
+    private final Counter emailMessagesSent;
+    private final Counter emailMessagesFailed;
+
+    public PulseCheckMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.heartbeatFound = heartbeatTimer(SUCCESS);
+        this.heartbeatNotFound = heartbeatTimer("not_found");
+        this.sweep = Timer.builder("pulsecheck.expiry.sweep")
+                .description("Duration of a database reconciliation sweep")
+                .register(registry);
+        this.expiryLag = Timer.builder("pulsecheck.expiry.lag")
+                .description("Time from a monitor's expiresAt until its alert email was sent")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(100))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry);
+        this.emailSent = emailTimer(SUCCESS);
+        this.emailFailed = emailTimer(FAILURE);
+        this.emailMessagesSent = emailCounter(SUCCESS);
+        this.emailMessagesFailed = emailCounter(FAILURE);
+    }
+
+    private Timer heartbeatTimer(String outcome) {
+        return Timer.builder("pulsecheck.heartbeat")
+                .description("Time to apply a single heartbeat")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer emailTimer(String outcome) {
+        return Timer.builder("pulsecheck.email.send")
+                .description("Time to send a batch of emails over one SMTP connection")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter emailCounter(String outcome) {
+        return Counter.builder("pulsecheck.email.messages")
+                .description("Emails handed to the mail server")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * Registers a gauge on state owned by the caller, which must keep the object reachable.
+     */
+    public <T> void gauge(String name, String description, T owner, ToDoubleFunction<T> value) {
+        Gauge.builder(name, owner, value)
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * Registers a counter for callers that keep it, e.g. one per tag combination on a hot path.
+     */
+    public Counter counter(String name, String description, String... tags) {
+        return Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    public void heartbeat(long startNanos, boolean found) {
+        (found ? heartbeatFound : heartbeatNotFound).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a database write of monitor rows.
+     *
+     * @param operation {@code flush} for write-behind timer updates, {@code insert} for batch creation
+     */
+    public void databaseWrite(String operation, int rows, long startNanos, boolean success) {
+        Timer.builder("pulsecheck.db.write")
+                .description("Time to write a batch of monitor rows")
+                .tag("operation", operation)
+                .tag("outcome", success ? SUCCESS : FAILURE)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            DistributionSummary.builder("pulsecheck.db.write.rows")
+                    .description("Monitor rows per database write")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .record(rows);
+        }
+    }
+
+    public void sweep(long startNanos) {
+        sweep.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a batch of monitors found expired.
+     *
+     * @param source {@code sweep} for database claims, {@code timer} for the in-memory timing wheel
+     */
+    public void expiredBatch(String source, int size) {
+        DistributionSummary.builder("pulsecheck.expiry.batch")
+                .description("Monitors found expired per batch")
+                .tag("source", source)
+                .register(registry)
+                .record(size);
+    }
+
+    public void expiryLag(long lagMillis) {
+        expiryLag.record(Math.max(0, lagMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records one SMTP send of several messages. A send that failed for some messages counts as
+     * a failure.
+     */
+    public void emailSend(int sent, int failed, long startNanos) {
+        (failed > 0 ? emailFailed : emailSent).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        emailMessagesSent.increment(sent);
+        emailMessagesFailed.increment(failed);
+    }
+}
@@ -0,0 +1,54 @@
+package com.critmon.pulsecheck.service;
+
+import java.time.Clock;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket per alert recipient, refilled continuously at {@code permitsPerMinute}.
+ * Recipients are matched case-insensitively, as digests are.
+ */
+public class RecipientRateLimiter {
+
+    private final Clock clock;
+    private final double permitsPerMilli;
+    private final double capacity;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public RecipientRateLimiter(int permitsPerMinute, Clock clock) {
+        this.clock = clock;
+        this.capacity = Math.max(1, permitsPerMinute);
+        this.permitsPerMilli = capacity / 60_000.0;
+    }
+
+    /**
+     * Takes one permit for the recipient.
+     *
+     * @return 0 if a permit was taken, otherwise the milliseconds until one becomes available
+     */
+    public long tryAcquire(String recipient) {
+        Bucket bucket = buckets.computeIfAbsent(recipient.toLowerCase(Locale.ROOT),
+                key -> new Bucket(capacity, clock.millis()));
+        synchronized (bucket) {
+            long now = clock.millis();
+            bucket.tokens = Math.min(capacity, bucket.tokens + Math.max(0, now - bucket.lastRefill) * permitsPerMilli);
+            bucket.lastRefill = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / permitsPerMilli);
+        }
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokens, long lastRefill) {
+            this.tokens = tokens;
+            this.lastRefill = lastRefill;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.ClusterNode;
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.ShardLease;
+import com.critmon.pulsecheck.repository.ClusterNodeRepository;
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
+import com.critmon.pulsecheck.repository.MonitorRepository;
+import com.critmon.pulsecheck.repository.ShardLeaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Splits expiry work across nodes. Monitors are hash-partitioned into {@code shards} shards and
+ * every node holds time-bounded leases on its fair share of them in the {@code shard_leases}
+ * table. Leases are renewed on every cycle; a node that stops renewing loses its shards to the
+ * others once the lease TTL passes, and a node that joins makes the others release their excess.
+ *
+ * <p>With clustering disabled (the default) the node owns every shard and no lease table is used.
+ */
+@Service
+public class ShardLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardLeaseManager.class);
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final ShardLeaseRepository leaseRepository;
+    private final ClusterNodeRepository nodeRepository;
+    private final MonitorRepository monitorRepository;
+    private final MonitorJdbcRepository monitorJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int shardCount;
+    private final long leaseTtlMillis;
+    private final long expiryGraceMillis;
+    private final String nodeId;
+
+    private volatile Set<Integer> ownedShards = Collections.emptySet();
+    private volatile long ownedUntilMillis;
+
+    public ShardLeaseManager(ShardLeaseRepository leaseRepository,
+                             ClusterNodeRepository nodeRepository,
+                             MonitorRepository monitorRepository,
+                             MonitorJdbcRepository monitorJdbcRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             Clock clock,
+                             @Value("${pulse-check.cluster.enabled:false}") boolean enabled,
+                             @Value("${pulse-check.cluster.shards:64}") int shardCount,
+                             @Value("${pulse-check.cluster.lease-ttl-ms:15000}") long leaseTtlMillis,
+                             @Value("${pulse-check.cluster.node-id:}") String nodeId,
+                             @Value("${pulse-check.heartbeat.max-flush-lag-ms:1000}") long maxFlushLagMillis) {
+        if (shardCount <= 0 || shardCount > Monitor.PARTITIONS) {
+            throw new IllegalArgumentException("pulse-check.cluster.shards must be between 1 and " + Monitor.PARTITIONS);
+        }
+        this.leaseRepository = leaseRepository;
+        this.nodeRepository = nodeRepository;
+        this.monitorRepository = monitorRepository;
+        this.monitorJdbcRepository = monitorJdbcRepository;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.shardCount = shardCount;
+        this.leaseTtlMillis = leaseTtlMillis;
+        this.expiryGraceMillis = enabled ? maxFlushLagMillis : 0L;
+        this.nodeId = nodeId.isEmpty() ? defaultNodeId() : nodeId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        logger.info("Cluster mode enabled: node {} competing for {} shards", nodeId, shardCount);
+        createMissingShards();
+        backfillPartitionKeys();
+        maintain();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        // Hand the shards back right away instead of making the other nodes wait for the TTL
+        try {
+            int released = leaseRepository.releaseAll(nodeId, LocalDateTime.now(clock));
+            nodeRepository.deleteById(nodeId);
+            logger.info("Released {} shard leases on shutdown", released);
+        } catch (Exception e) {
+            logger.warn("Failed to release shard leases on shutdown, they expire in {}ms", leaseTtlMillis, e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * In cluster mode a heartbeat may sit in another node's write-behind buffer for up to
+     * {@code max-flush-lag-ms}, so an expiry is only confirmed from the database after that lag.
+     */
+    public long getExpiryGraceMillis() {
+        return expiryGraceMillis;
+    }
+
+    public int shardOf(String monitorId) {
+        return Monitor.partitionOf(monitorId) % shardCount;
+    }
+
+    /**
+     * @return true if this node is responsible for expiring the given monitor
+     */
+    public boolean owns(String monitorId) {
+        if (!enabled) {
+            return true;
+        }
+        return clock.millis() < ownedUntilMillis && ownedShards.contains(shardOf(monitorId));
+    }
+
+    /**
+     * @return the shards this node currently holds leases on; every shard if clustering is off
+     */
+    public Set<Integer> ownedShards() {
+        if (!enabled) {
+            return IntStream.range(0, shardCount).boxed().collect(Collectors.toSet());
+        }
+        return clock.millis() < ownedUntilMillis ? ownedShards : Collections.emptySet();
+    }
+
+    /**
+     * Renews this node's leases and moves its share of shards towards
+     * {@code ceil(shards / live nodes)}, releasing any excess and claiming free or expired leases.
+     */
+    @Scheduled(fixedDelayString = "${pulse-check.cluster.lease-renew-ms:5000}",
+               initialDelayString = "${pulse-check.cluster.lease-renew-ms:5000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long cycleStart = clock.millis();
+            LocalDateTime now = LocalDateTime.now(clock);
+            LocalDateTime expiresAt = now.plusNanos(leaseTtlMillis * 1_000_000);
+
+            nodeRepository.save(new ClusterNode(nodeId, expiresAt));
+            leaseRepository.renew(nodeId, now, expiresAt);
+            List<Integer> owned = new ArrayList<>(leaseRepository.findOwned(nodeId, now));
+
+            long liveNodes = Math.max(1, nodeRepository.countLive(now));
+            int target = (int) ((shardCount + liveNodes - 1) / liveNodes);
+
+            if (owned.size() > target) {
+                List<Integer> excess = new ArrayList<>(owned.subList(target, owned.size()));
+                leaseRepository.release(nodeId, excess, now);
+                owned.removeAll(excess);
+                logger.info("Released {} shards for rebalancing across {} nodes", excess.size(), liveNodes);
+            } else if (owned.size() < target) {
+                List<Integer> claimable = leaseRepository.findClaimable(shardCount, now,
+                        PageRequest.ofSize(target - owned.size()));
+                for (Integer shard : claimable) {
+                    if (leaseRepository.claim(shard, nodeId, now, expiresAt) == 1) {
+                        owned.add(shard);
+                    }
+                }
+            }
+            nodeRepository.deleteExpired(now.minusNanos(leaseTtlMillis * 1_000_000));
+            update(new TreeSet<>(owned), cycleStart + leaseTtlMillis);
+        } catch (Exception e) {
+            // Keep working on the current shards until the leases run out, then stop owning them
+            logger.error("Failed to renew shard leases, {} shards held until their leases expire", ownedShards.size(), e);
+        }
+    }
+
+    private void update(Set<Integer> owned, long validUntilMillis) {
+        Set<Integer> previous = ownedShards;
+        Set<Integer> gained = new TreeSet<>(owned);
+        gained.removeAll(previous);
+        Set<Integer> lost = new TreeSet<>(previous);
+        lost.removeAll(owned);
+
+        ownedShards = Collections.unmodifiableSet(owned);
+        ownedUntilMillis = validUntilMillis;
+
+        if (!gained.isEmpty() || !lost.isEmpty()) {
+            logger.info("Node {} now owns {} of {} shards (+{} -{})",
+                       nodeId, owned.size(), shardCount, gained.size(), lost.size());
+            eventPublisher.publishEvent(new ShardOwnershipChangedEvent(gained, lost));
+        }
+    }
+
+    private void createMissingShards() {
+        Set<Integer> existing = leaseRepository.findAllShards();
+        List<ShardLease> missing = IntStream.range(0, shardCount)
+                .filter(shard -> !existing.contains(shard))
+                .mapToObj(shard -> ShardLease.builder().shard(shard).expiresAt(LocalDateTime.now(clock)).build())
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+        try {
+            leaseRepository.saveAll(missing);
+            logger.info("Created {} shard lease rows", missing.size());
+        } catch (DataIntegrityViolationException e) {
+            // Another node created them concurrently
+            logger.debug("Shard lease rows were created by another node");
+        }
+    }
+
+    private void backfillPartitionKeys() {
+        int total = 0;
+        List<String> ids;
+        while (!(ids = monitorRepository.findIdsWithoutPartitionKey(PageRequest.ofSize(BACKFILL_BATCH_SIZE))).isEmpty()) {
+            monitorJdbcRepository.assignPartitionKeys(ids, BACKFILL_BATCH_SIZE);
+            total += ids.size();
+        }
+        if (total > 0) {
+            logger.info("Assigned partition keys to {} existing monitors", total);
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
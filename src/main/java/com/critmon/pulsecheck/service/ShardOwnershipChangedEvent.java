@@ -0,0 +1,22 @@
+package com.critmon.pulsecheck.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+/**
+ * Published by {@link ShardLeaseManager} when this node gains or loses shard leases.
+ */
+@Getter
+@ToString
+public class ShardOwnershipChangedEvent {
+
+    private final Set<Integer> gained;
+    private final Set<Integer> lost;
+
+    public ShardOwnershipChangedEvent(Set<Integer> gained, Set<Integer> lost) {
+        this.gained = gained;
+        this.lost = lost;
+    }
+}
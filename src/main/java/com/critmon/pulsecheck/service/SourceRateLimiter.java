@@ -0,0 +1,77 @@
+package com.critmon.pulsecheck.service;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token bucket per source address, refilled continuously at {@code permitsPerSecond} up to
+ * {@code burst}. Buckets that have refilled completely carry no state and are pruned.
+ */
+public class SourceRateLimiter {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private final Map<InetAddress, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public SourceRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        this.capacity = Math.max(1, burst);
+        this.permitsPerNano = permitsPerSecond / 1_000_000_000.0;
+    }
+
+    /**
+     * Takes one permit for the source.
+     *
+     * @return true if a permit was taken
+     */
+    public boolean tryAcquire(InetAddress source) {
+        Bucket bucket = buckets.computeIfAbsent(source, key -> new Bucket(capacity));
+        synchronized (bucket) {
+            long now = System.nanoTime();
+            bucket.refill(now, capacity, permitsPerNano);
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Drops the buckets of sources that have been quiet long enough to be full again.
+     */
+    public void prune() {
+        long now = System.nanoTime();
+        for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext(); ) {
+            Bucket bucket = it.next();
+            synchronized (bucket) {
+                bucket.refill(now, capacity, permitsPerNano);
+                if (bucket.tokens >= capacity) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        private Bucket(double tokens) {
+            this.tokens = tokens;
+        }
+
+        private void refill(long now, double capacity, double permitsPerNano) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+        }
+    }
+}
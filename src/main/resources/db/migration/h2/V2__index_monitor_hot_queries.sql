@@ -0,0 +1,8 @@
+-- H2 variant of db/migration/postgresql/V2__index_monitor_hot_queries.sql. H2 has neither
+-- partial indexes nor INCLUDE, so the armed and alerted lookups lead with the status columns.
+
+CREATE INDEX IF NOT EXISTS idx_monitors_armed_expires_at ON monitors (is_active, is_paused, expires_at);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_monitors_device_id ON monitors (device_id);
+
+CREATE INDEX IF NOT EXISTS idx_monitors_alert_email ON monitors (alert_email);
@@ -0,0 +1,15 @@
+-- H2 variant of db/migration/postgresql/V3__store_timer_state_as_epoch_millis.sql. Casting to
+-- TIMESTAMP WITH TIME ZONE interprets the old local times in the session zone, i.e. the JVM's.
+
+ALTER TABLE monitors ADD COLUMN last_heartbeat_ms BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE monitors ADD COLUMN expires_at_ms BIGINT NOT NULL DEFAULT 0;
+
+UPDATE monitors SET
+    last_heartbeat_ms = COALESCE(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(last_heartbeat AS TIMESTAMP WITH TIME ZONE)) * 1000) AS BIGINT), 0),
+    expires_at_ms     = COALESCE(CAST(FLOOR(EXTRACT(EPOCH FROM CAST(expires_at AS TIMESTAMP WITH TIME ZONE)) * 1000) AS BIGINT), 0);
+
+DROP INDEX IF EXISTS idx_monitors_armed_expires_at;
+ALTER TABLE monitors DROP COLUMN last_heartbeat;
+ALTER TABLE monitors DROP COLUMN expires_at;
+
+CREATE INDEX idx_monitors_armed_expires_at_ms ON monitors (is_active, is_paused, expires_at_ms);
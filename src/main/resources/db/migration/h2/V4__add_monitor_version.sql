@@ -0,0 +1,3 @@
+-- H2 variant of db/migration/postgresql/V4__add_monitor_version.sql.
+
+ALTER TABLE monitors ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
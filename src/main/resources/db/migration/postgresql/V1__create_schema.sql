@@ -0,0 +1,49 @@
+-- Baseline schema. Uses IF NOT EXISTS so databases created by hand from the previous setup
+-- instructions (or by Hibernate) can be migrated in place; see spring.flyway.baseline-on-migrate.
+
+CREATE TABLE IF NOT EXISTS monitors (
+    id              VARCHAR(255) PRIMARY KEY,
+    device_id       VARCHAR(255),
+    timeout         INTEGER      NOT NULL,
+    alert_email     VARCHAR(255),
+    created_at      TIMESTAMP(6),
+    last_heartbeat  TIMESTAMP(6),
+    is_active       BOOLEAN      NOT NULL,
+    is_paused       BOOLEAN      NOT NULL,
+    expires_at      TIMESTAMP(6),
+    partition_key   INTEGER
+);
+ALTER TABLE monitors ADD COLUMN IF NOT EXISTS partition_key INTEGER;
+
+-- Alerts are queued here before delivery
+CREATE TABLE IF NOT EXISTS alert_outbox (
+    id              VARCHAR(255) PRIMARY KEY,
+    monitor_id      VARCHAR(255) NOT NULL,
+    partition_key   INTEGER,
+    device_id       VARCHAR(255),
+    recipient       VARCHAR(255) NOT NULL,
+    type            VARCHAR(32)  NOT NULL,
+    timeout         INTEGER      NOT NULL,
+    last_heartbeat  TIMESTAMP(6),
+    expires_at      TIMESTAMP(6),
+    status          VARCHAR(32)  NOT NULL,
+    attempts        INTEGER      NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL,
+    sent_at         TIMESTAMP(6),
+    last_error      VARCHAR(500)
+);
+ALTER TABLE alert_outbox ADD COLUMN IF NOT EXISTS partition_key INTEGER;
+CREATE INDEX IF NOT EXISTS idx_alert_outbox_due ON alert_outbox (status, next_attempt_at);
+
+-- Cluster mode: shard leases and live nodes
+CREATE TABLE IF NOT EXISTS shard_leases (
+    shard      INTEGER PRIMARY KEY,
+    owner      VARCHAR(255),
+    expires_at TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS cluster_nodes (
+    node_id    VARCHAR(255) PRIMARY KEY,
+    expires_at TIMESTAMP(6)
+);
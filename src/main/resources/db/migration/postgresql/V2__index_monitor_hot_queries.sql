@@ -0,0 +1,20 @@
+-- Indexes for the queries on the hot path. Fails if existing data has several monitors for the
+-- same device; remove the duplicates first (SELECT device_id FROM monitors GROUP BY device_id
+-- HAVING COUNT(*) > 1).
+
+-- Expiry sweep, claim batches and deadline rebuild only ever look at armed monitors, which the
+-- partial index keeps small; INCLUDE (id) lets the deadline rebuild run as an index-only scan.
+CREATE INDEX IF NOT EXISTS idx_monitors_armed_expires_at ON monitors (expires_at) INCLUDE (id)
+    WHERE is_active AND NOT is_paused;
+
+-- findByDeviceId, heartbeat lookups by device and the batch duplicate check. Being unique, it
+-- also guarantees one monitor per device when two requests race.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_monitors_device_id ON monitors (device_id);
+
+-- findByAlertEmail
+CREATE INDEX IF NOT EXISTS idx_monitors_alert_email ON monitors (alert_email);
+
+-- Status counts (countActiveMonitors, the dashboard reconciliation) as index-only scans, and the
+-- alerts-today count over alerted monitors
+CREATE INDEX IF NOT EXISTS idx_monitors_status ON monitors (is_active, is_paused);
+CREATE INDEX IF NOT EXISTS idx_monitors_alerted_expires_at ON monitors (expires_at) WHERE NOT is_active;
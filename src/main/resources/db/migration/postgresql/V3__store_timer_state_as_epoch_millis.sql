@@ -0,0 +1,18 @@
+-- Timer state moves to epoch milliseconds. The old columns held zone-less local times written in
+-- the application's zone, which ${appTimeZone} supplies at migration time.
+
+ALTER TABLE monitors ADD COLUMN last_heartbeat_ms BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE monitors ADD COLUMN expires_at_ms BIGINT NOT NULL DEFAULT 0;
+
+UPDATE monitors SET
+    last_heartbeat_ms = COALESCE(FLOOR(EXTRACT(EPOCH FROM last_heartbeat AT TIME ZONE '${appTimeZone}') * 1000), 0),
+    expires_at_ms     = COALESCE(FLOOR(EXTRACT(EPOCH FROM expires_at AT TIME ZONE '${appTimeZone}') * 1000), 0);
+
+DROP INDEX IF EXISTS idx_monitors_armed_expires_at;
+DROP INDEX IF EXISTS idx_monitors_alerted_expires_at;
+ALTER TABLE monitors DROP COLUMN last_heartbeat;
+ALTER TABLE monitors DROP COLUMN expires_at;
+
+CREATE INDEX idx_monitors_armed_expires_at_ms ON monitors (expires_at_ms) INCLUDE (id)
+    WHERE is_active AND NOT is_paused;
+CREATE INDEX idx_monitors_alerted_expires_at_ms ON monitors (expires_at_ms) WHERE NOT is_active;
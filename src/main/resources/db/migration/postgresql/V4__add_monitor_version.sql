@@ -0,0 +1,4 @@
+-- Per-monitor change counter, mapped as the JPA @Version of Monitor. It is raised on every state
+-- change in memory and written with the write-behind flush, and it backs the monitor's ETag.
+
+ALTER TABLE monitors ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,89 @@
+package com.critmon.pulsecheck.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MonitorControllerTest {
+
+    private final ObjectReader idReader = new ObjectMapper().readerFor(String.class);
+
+    @Test
+    void readsOneIdPerLine() throws IOException {
+        assertThat(readIds("\"a\"\n\"b\"\r\n\n  \"c\"  \n", 10)).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void unescapesIds() throws IOException {
+        assertThat(readIds("\"dev\\\"ice\\\\1\"\n\"caf\\u00e9\"\n", 10)).containsExactly("dev\"ice\\1", "café");
+    }
+
+    @Test
+    void acceptsAnEmptyBody() throws IOException {
+        assertThat(readIds("", 10)).isEmpty();
+    }
+
+    @Test
+    void rejectsMoreIdsThanTheLimit() throws IOException {
+        assertThat(readIds("\"a\"\n\"b\"\n", 2)).containsExactly("a", "b");
+        assertThatThrownBy(() -> readIds("\"a\"\n\"b\"\n\"c\"\n", 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("At most 2 IDs per request");
+    }
+
+    @Test
+    void stopsReadingOnceTheLimitIsExceeded() {
+        CountingInputStream body = new CountingInputStream("\"a\"\n\"b\"\n" + "\"c\"\n".repeat(100_000));
+
+        assertThatThrownBy(() -> MonitorController.readIds(idReader, body, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(body.read).isLessThan(64 * 1024);
+    }
+
+    @Test
+    void rejectsLinesThatAreNotJsonStrings() {
+        assertThatThrownBy(() -> readIds("\"a\"\nunquoted\n", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> readIds("{\"id\":\"a\"}\n", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> readIds("\"a\n", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> readIds("\"\"\n", 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> readIds("null\n", 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<String> readIds(String body, int maxIds) throws IOException {
+        return MonitorController.readIds(idReader, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), maxIds);
+    }
+
+    private static final class CountingInputStream extends InputStream {
+        private final byte[] bytes;
+        private int read;
+
+        private CountingInputStream(String body) {
+            this.bytes = body.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            return read < bytes.length ? bytes[read++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (read >= bytes.length) {
+                return -1;
+            }
+            int count = Math.min(length, bytes.length - read);
+            System.arraycopy(bytes, read, buffer, offset, count);
+            read += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.critmon.pulsecheck.mapper;
+
+import com.critmon.pulsecheck.dto.ApiResponse;
+import com.critmon.pulsecheck.dto.MonitorResponse;
+import com.critmon.pulsecheck.model.Monitor;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonitorJsonWriterTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    // The Jackson settings from application.yml
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+    private final MonitorJsonWriter writer = new MonitorJsonWriter(objectMapper.getFactory(), ZONE);
+
+    @Test
+    void formatsDateTimesAsTheIsoFormatterDoes() {
+        LocalDateTime base = LocalDateTime.of(2026, 3, 9, 7, 5, 3);
+        List<LocalDateTime> values = List.of(
+                base,
+                LocalDateTime.of(2026, 3, 9, 7, 5),
+                LocalDateTime.of(1, 1, 1, 0, 0),
+                LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_999),
+                base.withNano(100_000_000),
+                base.withNano(120_000_000),
+                base.withNano(1_000),
+                base.withNano(1),
+                LocalDateTime.of(10_000, 1, 1, 0, 0, 0, 5),
+                LocalDateTime.of(-1, 6, 1, 12, 0),
+                LocalDateTime.MAX,
+                LocalDateTime.MIN);
+
+        for (LocalDateTime value : values) {
+            char[] text = new char[36];
+            int length = MonitorJsonWriter.formatDateTime(value, text);
+            assertThat(new String(text, 0, length)).isEqualTo(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+        }
+    }
+
+    @Test
+    void writesMonitorsAsDataBindingDoes() throws Exception {
+        LocalDateTime timestamp = LocalDateTime.of(2026, 3, 9, 7, 5, 3, 250_000_000);
+        Monitor monitor = Monitor.builder()
+                .id(UUID.randomUUID().toString())
+                .deviceId("sensor \"north\"")
+                .timeout(90)
+                .alertEmail("ops@example.com")
+                .createdAt(LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_000_000))
+                .build();
+        monitor.resetTimer(1_773_036_303_457L);
+        ApiResponse<MonitorResponse> response = ApiResponse.<MonitorResponse>builder()
+                .success(true)
+                .message("Operation successful")
+                .data(MonitorMapper.toResponse(monitor, ZONE))
+                .timestamp(timestamp)
+                .build();
+
+        assertThat(new String(writer.monitor(monitor, timestamp), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(response));
+    }
+
+    @Test
+    void timestampsResponsesWithTheInjectedClock() throws Exception {
+        Clock clock = Clock.fixed(Instant.parse("2026-03-09T06:05:03.120Z"), ZONE);
+
+        ApiResponse<String> response = ApiResponse.error("Monitor not found", clock);
+
+        assertThat(response.getTimestamp()).isEqualTo(LocalDateTime.of(2026, 3, 9, 7, 5, 3, 120_000_000));
+        assertThat(objectMapper.writeValueAsString(response)).contains("\"timestamp\":\"2026-03-09T07:05:03.12\"");
+    }
+}
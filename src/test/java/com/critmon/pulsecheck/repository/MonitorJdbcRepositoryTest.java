@@ -0,0 +1,131 @@
+package com.critmon.pulsecheck.repository;
+
+import com.critmon.pulsecheck.model.Monitor;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the claim statements against an in-memory H2 database migrated with the H2 scripts.
+ */
+class MonitorJdbcRepositoryTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private JdbcTemplate jdbcTemplate;
+    private MonitorJdbcRepository repository;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/h2").load().migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new MonitorJdbcRepository(jdbcTemplate, new NamedParameterJdbcTemplate(jdbcTemplate));
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void claimsTheOldestExpiredMonitorsAndMarksThemInactive() {
+        insert(monitor("late", NOW - 1_000), monitor("early", NOW - 5_000), monitor("middle", NOW - 3_000),
+                monitor("future", NOW + 60_000), monitor("paused", NOW - 9_000).toBuilder().isPaused(true).build(),
+                monitor("unarmed", 0));
+
+        List<Monitor> claimed = claim(2, null);
+
+        assertThat(claimed).extracting(Monitor::getId).containsExactly("early", "middle");
+        assertThat(claimed).allSatisfy(monitor -> {
+            assertThat(monitor.isActive()).isFalse();
+            assertThat(monitor.getVersion()).isEqualTo(4L);
+        });
+        assertThat(activeIds()).containsExactlyInAnyOrder("late", "future", "paused", "unarmed");
+        assertThat(claim(10, null)).extracting(Monitor::getId).containsExactly("late");
+    }
+
+    @Test
+    void onlyClaimsMonitorsInTheGivenShards() {
+        Monitor inShard = monitor("a", NOW - 1_000).toBuilder().partitionKey(3).build();
+        Monitor otherShard = monitor("b", NOW - 1_000).toBuilder().partitionKey(4).build();
+        insert(inShard, otherShard);
+
+        List<Monitor> claimed = claim(10, Set.of(3));
+
+        assertThat(claimed).extracting(Monitor::getId).containsExactly("a");
+        assertThat(activeIds()).containsExactly("b");
+    }
+
+    @Test
+    void concurrentClaimersNeverWaitForOrShareRows() {
+        insert(monitor("a", NOW - 3_000), monitor("b", NOW - 2_000), monitor("c", NOW - 1_000));
+
+        List<String> others = transactionTemplate.execute(status -> {
+            assertThat(repository.claimExpiredBatch(NOW, 2, 64, null)).extracting(Monitor::getId).containsExactly("a", "b");
+            // H2 locks every row the WHERE clause matched, not just the LIMIT, so the second
+            // claimer comes back empty here; PostgreSQL would hand it "c"
+            return CompletableFuture.supplyAsync(() -> claim(10, null))
+                    .orTimeout(5, TimeUnit.SECONDS)
+                    .join()
+                    .stream()
+                    .map(Monitor::getId)
+                    .toList();
+        });
+
+        assertThat(others).doesNotContain("a", "b");
+        assertThat(claim(10, null)).extracting(Monitor::getId).containsExactly("c");
+    }
+
+    @Test
+    void unclaimRestoresTheRowsAsTheyWereBeforeTheClaim() {
+        insert(monitor("a", NOW - 2_000), monitor("b", NOW - 1_000));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            repository.claimExpiredBatch(NOW, 10, 64, null);
+            repository.unclaim(List.of("a"));
+        });
+
+        assertThat(activeIds()).containsExactly("a");
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM monitors WHERE id = 'a'", Long.class)).isEqualTo(3L);
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM monitors WHERE id = 'b'", Long.class)).isEqualTo(4L);
+    }
+
+    private List<Monitor> claim(int limit, Set<Integer> shards) {
+        return transactionTemplate.execute(status -> repository.claimExpiredBatch(NOW, limit, 64, shards));
+    }
+
+    private void insert(Monitor... monitors) {
+        assertThat(repository.insertAll(List.of(monitors), 10)).isEmpty();
+    }
+
+    private List<String> activeIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM monitors WHERE is_active = TRUE", String.class);
+    }
+
+    private static Monitor monitor(String id, long expiresAtMillis) {
+        return Monitor.builder()
+                .id(id)
+                .deviceId("device-" + id)
+                .timeout(60)
+                .alertEmail("ops@example.com")
+                .createdAt(LocalDateTime.of(2023, 11, 14, 22, 0))
+                .lastHeartbeatMillis(expiresAtMillis - 60_000)
+                .expiresAtMillis(expiresAtMillis)
+                .partitionKey(Monitor.partitionOf(id))
+                .version(3L)
+                .build();
+    }
+}
@@ -0,0 +1,231 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.AlertOutbox;
+import com.critmon.pulsecheck.model.AlertStatus;
+import com.critmon.pulsecheck.model.AlertType;
+import com.critmon.pulsecheck.repository.AlertOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AlertDispatcherTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+    private static final LocalDateTime NOW_DATE_TIME = LocalDateTime.now(CLOCK);
+
+    private final AlertOutboxRepository outboxRepository = mock(AlertOutboxRepository.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final ShardLeaseManager shardLeaseManager = mock(ShardLeaseManager.class);
+    private final Map<String, AlertOutbox> outbox = new ConcurrentHashMap<>();
+    private final Map<String, MimeMessage> messagesByAlert = new ConcurrentHashMap<>();
+    private AlertDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(outboxRepository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<String> ids = invocation.getArgument(0);
+            List<AlertOutbox> found = new ArrayList<>();
+            ids.forEach(id -> found.add(outbox.get(id)));
+            return found;
+        });
+        when(emailService.createHtmlMessage(anyString(), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            MimeMessage message = mock(MimeMessage.class);
+            messagesByAlert.put(invocation.getArgument(3), message);
+            return message;
+        });
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void collectsAlertsPerRecipientAndTypeIntoOneDigest() {
+        dispatcher = dispatcher(200, 500, 30);
+        dispatcher.start();
+
+        dispatcher.enqueue(alert("a", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("b", "OPS@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("c", "ops@example.com", AlertType.RECOVERED));
+
+        verify(emailService, timeout(5000)).createHtmlMessage(eq("ops@example.com"),
+                eq("🚨 CRITICAL: 2 Monitors Expired"), argThat(html -> html.contains("device-a") && html.contains("device-b")),
+                eq("a"));
+        verify(emailService, timeout(5000)).createHtmlMessage(eq("ops@example.com"),
+                eq("✅ RECOVERED: Monitor Back Online - device-c"), anyString(), eq("c"));
+        verify(outboxRepository, timeout(5000)).markSent(argThat(ids -> ids.containsAll(List.of("a", "b"))), eq(NOW_DATE_TIME));
+    }
+
+    @Test
+    void closesADigestEarlyOnceItIsFull() {
+        dispatcher = dispatcher(60_000, 2, 30);
+        dispatcher.start();
+
+        dispatcher.enqueue(alert("a", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("b", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("c", "ops@example.com", AlertType.EXPIRED));
+
+        verify(emailService, timeout(5000)).createHtmlMessage(eq("ops@example.com"),
+                eq("🚨 CRITICAL: 2 Monitors Expired"), anyString(), eq("a"));
+        verify(emailService, after(200).never()).createHtmlMessage(anyString(), anyString(), anyString(), eq("c"));
+    }
+
+    @Test
+    void queuesEachAlertOnlyOnce() {
+        dispatcher = dispatcher(0, 500, 30);
+        AlertOutbox alert = alert("a", "ops@example.com", AlertType.EXPIRED);
+
+        dispatcher.enqueue(alert);
+        dispatcher.enqueue(alert);
+
+        assertThat(dispatcher.queueDepth()).isEqualTo(1);
+    }
+
+    @Test
+    void regroupsDueRowsPerRecipientInDigestSizedChunks() {
+        dispatcher = dispatcher(60_000, 2, 30);
+        when(outboxRepository.findDue(any(), eq(NOW_DATE_TIME), any())).thenReturn(List.of(
+                alert("a", "ops@example.com", AlertType.EXPIRED),
+                alert("b", "ops@example.com", AlertType.EXPIRED),
+                alert("c", "other@example.com", AlertType.EXPIRED),
+                alert("d", "ops@example.com", AlertType.EXPIRED)));
+
+        dispatcher.requeueDue();
+
+        // ops@ is split into [a, b] and [d], other@ gets its own
+        assertThat(dispatcher.queueDepth()).isEqualTo(3);
+    }
+
+    @Test
+    void defersDigestsOverTheRecipientsRateLimit() {
+        dispatcher = dispatcher(0, 500, 1);
+        dispatcher.start();
+
+        dispatcher.enqueue(alert("a", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("b", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("c", "other@example.com", AlertType.EXPIRED));
+
+        verify(outboxRepository, timeout(5000)).defer(eq(List.of("b")), argThat(next ->
+                Duration.between(NOW_DATE_TIME, next).toMillis() > 59_000
+                        && Duration.between(NOW_DATE_TIME, next).toMillis() <= 60_000));
+        verify(emailService, timeout(5000)).createHtmlMessage(anyString(), anyString(), anyString(), eq("c"));
+        verify(emailService, never()).createHtmlMessage(anyString(), anyString(), anyString(), eq("b"));
+    }
+
+    @Test
+    void retriesFailedSendsWithExponentialBackoff() {
+        dispatcher = dispatcher(0, 500, 30);
+        doThrow(new MailSendException("smtp down")).when(emailService).sendAll(anyList());
+        dispatcher.start();
+
+        AlertOutbox retried = alert("b", "other@example.com", AlertType.EXPIRED);
+        retried.setAttempts(2);
+        dispatcher.enqueue(alert("a", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(retried);
+
+        verify(outboxRepository, timeout(5000)).reschedule("a", AlertStatus.PENDING, 1,
+                NOW_DATE_TIME.plusSeconds(1), "smtp down");
+        verify(outboxRepository, timeout(5000)).reschedule("b", AlertStatus.PENDING, 3,
+                NOW_DATE_TIME.plusSeconds(4), "smtp down");
+        verify(outboxRepository, never()).markSent(anyCollection(), any());
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        dispatcher = dispatcher(0, 500, 30);
+        doThrow(new MailSendException("smtp down")).when(emailService).sendAll(anyList());
+        dispatcher.start();
+
+        AlertOutbox alert = alert("a", "ops@example.com", AlertType.EXPIRED);
+        alert.setAttempts(7);
+        dispatcher.enqueue(alert);
+
+        verify(outboxRepository, timeout(5000)).reschedule("a", AlertStatus.FAILED, 8, NOW_DATE_TIME, "smtp down");
+    }
+
+    @Test
+    void marksTheMessagesThatWentOutAsSentWhenOthersFail() {
+        dispatcher = dispatcher(0, 500, 30);
+        doAnswer(invocation -> {
+            throw new MailSendException(Map.<Object, Exception>of(messagesByAlert.get("b"), new IllegalStateException("mailbox full")));
+        }).when(emailService).sendAll(argThat(messages -> messages.size() == 2));
+        dispatcher.enqueue(alert("a", "ops@example.com", AlertType.EXPIRED));
+        dispatcher.enqueue(alert("b", "other@example.com", AlertType.EXPIRED));
+
+        // Both digests are queued before the worker starts, so they go out over one connection
+        dispatcher.start();
+
+        verify(outboxRepository, timeout(5000)).markSent(List.of("a"), NOW_DATE_TIME);
+        verify(outboxRepository, timeout(5000)).reschedule("b", AlertStatus.PENDING, 1,
+                NOW_DATE_TIME.plusSeconds(1), "mailbox full");
+    }
+
+    @Test
+    void skipsRowsThatAreNoLongerPending() {
+        dispatcher = dispatcher(0, 500, 30);
+        dispatcher.start();
+
+        AlertOutbox alert = alert("a", "ops@example.com", AlertType.EXPIRED);
+        alert.setStatus(AlertStatus.SENT);
+        dispatcher.enqueue(alert);
+        dispatcher.enqueue(alert("b", "ops@example.com", AlertType.EXPIRED));
+
+        verify(outboxRepository, timeout(5000)).markSent(List.of("b"), NOW_DATE_TIME);
+        verify(emailService, never()).createHtmlMessage(anyString(), anyString(), anyString(), eq("a"));
+    }
+
+    private AlertDispatcher dispatcher(long digestWindowMillis, int maxDigestSize, int rateLimitPerMinute) {
+        return new AlertDispatcher(outboxRepository, emailService, new EmailTemplateRenderer(CLOCK, false),
+                shardLeaseManager, new PulseCheckMetrics(new SimpleMeterRegistry()), CLOCK,
+                100, 1, 20, digestWindowMillis, maxDigestSize, 8, 1000, 4000, rateLimitPerMinute, 168, false);
+    }
+
+    private AlertOutbox alert(String id, String recipient, AlertType type) {
+        AlertOutbox alert = AlertOutbox.builder()
+                .id(id)
+                .monitorId("monitor-" + id)
+                .deviceId("device-" + id)
+                .recipient(recipient)
+                .type(type)
+                .timeout(60)
+                .lastHeartbeat(NOW_DATE_TIME.minusMinutes(2))
+                .expiresAt(NOW_DATE_TIME.minusMinutes(1))
+                .nextAttemptAt(NOW_DATE_TIME)
+                .build();
+        outbox.put(id, alert);
+        return alert;
+    }
+}
@@ -0,0 +1,77 @@
+package com.critmon.pulsecheck.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailTemplateTest {
+
+    @Test
+    void fillsPlaceholdersBetweenLiterals() {
+        EmailTemplate template = EmailTemplate.parse("<p>{{deviceId}} expired after {{ timeout }}s</p>");
+
+        assertThat(render(template, Map.of("deviceId", "sensor-1", "timeout", 60)))
+                .isEqualTo("<p>sensor-1 expired after 60s</p>");
+    }
+
+    @Test
+    void escapesValuesForHtml() {
+        EmailTemplate template = EmailTemplate.parse("<td title=\"{{deviceId}}\">{{deviceId}}</td>");
+
+        assertThat(render(template, Map.of("deviceId", "<b>\"Tom & Jerry's\"</b>")))
+                .isEqualTo("<td title=\"&lt;b&gt;&quot;Tom &amp; Jerry&#39;s&quot;&lt;/b&gt;\">"
+                        + "&lt;b&gt;&quot;Tom &amp; Jerry&#39;s&quot;&lt;/b&gt;</td>");
+    }
+
+    @Test
+    void insertsTriplePlaceholdersRaw() {
+        EmailTemplate template = EmailTemplate.parse("<table>{{{rows}}}</table><p>{{count}}</p>");
+
+        assertThat(render(template, Map.of("rows", "<tr><td>a&b</td></tr>", "count", "<2>")))
+                .isEqualTo("<table><tr><td>a&b</td></tr></table><p>&lt;2&gt;</p>");
+    }
+
+    @Test
+    void rendersMissingValuesEmpty() {
+        EmailTemplate template = EmailTemplate.parse("[{{missing}}][{{{alsoMissing}}}]");
+
+        assertThat(render(template, Map.of())).isEqualTo("[][]");
+    }
+
+    @Test
+    void keepsUnterminatedAndLiteralBracesAsText() {
+        assertThat(render(EmailTemplate.parse("a { b } {{open"), Map.of())).isEqualTo("a { b } {{open");
+        assertThat(render(EmailTemplate.parse("no placeholders"), Map.of())).isEqualTo("no placeholders");
+        assertThat(render(EmailTemplate.parse(""), Map.of())).isEmpty();
+    }
+
+    @Test
+    void appendsToTheCallersBuilder() {
+        StringBuilder out = new StringBuilder("before|");
+
+        EmailTemplate.parse("{{a}}|{{a}}").renderTo(out, Map.of("a", "x")::get);
+
+        assertThat(out).hasToString("before|x|x");
+    }
+
+    @Test
+    void rendersTheBundledTemplatesWithEveryPlaceholderFilled() {
+        EmailTemplateRenderer renderer = new EmailTemplateRenderer(Clock.systemUTC(), false);
+        renderer.preload();
+        EmailTemplate fallback = EmailTemplate.parse("fallback");
+
+        String rendered = renderer.render("monitor-expired.html", fallback, name -> "<" + name + ">");
+
+        assertThat(rendered).isNotEqualTo("fallback").doesNotContain("{{").contains("&lt;deviceId&gt;");
+        assertThat(renderer.render("does-not-exist.html", fallback, name -> "x")).isEqualTo("fallback");
+    }
+
+    private static String render(EmailTemplate template, Map<String, ?> values) {
+        StringBuilder out = new StringBuilder();
+        template.renderTo(out, values::get);
+        return out.toString();
+    }
+}
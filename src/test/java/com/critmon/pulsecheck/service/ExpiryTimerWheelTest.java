@@ -0,0 +1,139 @@
+package com.critmon.pulsecheck.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the wheel on the system clock with a short tick. The worker only ever fires late when the
+ * machine is slow, never early, so the checks below hold on a loaded build agent too.
+ */
+class ExpiryTimerWheelTest {
+
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 8;
+    // One rotation of the wheel
+    private static final long ROTATION = TICK * WHEEL_SIZE;
+
+    private final Clock clock = Clock.systemUTC();
+    private final List<String> fired = new CopyOnWriteArrayList<>();
+    private final Map<String, Long> firedAt = new ConcurrentHashMap<>();
+    private ExpiryTimerWheel wheel;
+
+    @BeforeEach
+    void startWheel() {
+        wheel = new ExpiryTimerWheel(TICK, WHEEL_SIZE, clock, id -> {
+            firedAt.put(id, clock.millis());
+            fired.add(id);
+        });
+        wheel.start();
+    }
+
+    @AfterEach
+    void stopWheel() {
+        wheel.stop();
+    }
+
+    @Test
+    void firesOnceAfterTheDeadline() throws InterruptedException {
+        long deadline = clock.millis() + 50;
+        wheel.schedule("a", deadline);
+
+        awaitFired(1);
+        assertThat(fired).containsExactly("a");
+        assertThat(firedAt.get("a")).isGreaterThanOrEqualTo(deadline);
+        assertThat(wheel.size()).isZero();
+
+        TimeUnit.MILLISECONDS.sleep(3 * ROTATION);
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    void deadlinesBeyondOneRotationWaitForTheirRound() throws InterruptedException {
+        long now = clock.millis();
+        // Several rotations out, so the timeout passes its bucket a few times before it is due
+        long later = now + 4 * ROTATION + 30;
+        long sooner = now + ROTATION / 2;
+        wheel.schedule("later", later);
+        wheel.schedule("sooner", sooner);
+
+        awaitFired(2);
+        assertThat(fired).containsExactly("sooner", "later");
+        assertThat(firedAt.get("sooner")).isGreaterThanOrEqualTo(sooner);
+        assertThat(firedAt.get("later")).isGreaterThanOrEqualTo(later);
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFire() throws InterruptedException {
+        long deadline = clock.millis() + 30;
+        wheel.schedule("a", deadline);
+        wheel.schedule("b", deadline);
+        wheel.cancel("a");
+
+        awaitFired(1);
+        TimeUnit.MILLISECONDS.sleep(2 * ROTATION);
+        assertThat(fired).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancellingAnUnknownIdIsIgnored() {
+        wheel.cancel("missing");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierDeadline() throws InterruptedException {
+        long now = clock.millis();
+        long extended = now + 3 * ROTATION;
+        wheel.schedule("a", now + 20);
+        wheel.schedule("a", extended);
+        assertThat(wheel.size()).isEqualTo(1);
+
+        awaitFired(1);
+        assertThat(firedAt.get("a")).isGreaterThanOrEqualTo(extended);
+        TimeUnit.MILLISECONDS.sleep(2 * ROTATION);
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    void deadlinesInThePastFireOnTheNextTick() throws InterruptedException {
+        wheel.schedule("overdue", clock.millis() - 1000);
+
+        awaitFired(1);
+        assertThat(fired).containsExactly("overdue");
+    }
+
+    @Test
+    void manyTimeoutsAllFireExactlyOnce() throws InterruptedException {
+        long now = clock.millis();
+        for (int i = 0; i < 1000; i++) {
+            wheel.schedule("m" + i, now + 500 + (i % 200));
+        }
+        // Pulling half of them in must not fire those twice
+        for (int i = 0; i < 1000; i += 2) {
+            wheel.schedule("m" + i, now + 100 + (i % 100));
+        }
+
+        awaitFired(1000);
+        TimeUnit.MILLISECONDS.sleep(2 * ROTATION);
+        assertThat(fired).hasSize(1000).doesNotHaveDuplicates();
+    }
+
+    private void awaitFired(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (fired.size() < count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        assertThat(fired).hasSizeGreaterThanOrEqualTo(count);
+    }
+}
@@ -0,0 +1,142 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.exception.MonitorNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HeartbeatListenerTest {
+
+    private static final String SECRET = "listener-secret";
+    private static final InetAddress SOURCE = InetAddress.getLoopbackAddress();
+
+    private final MonitorServiceInterface monitorService = mock(MonitorServiceInterface.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final HeartbeatTokens tokens = new HeartbeatTokens(SECRET);
+    private final Set<String> applyingThreads = ConcurrentHashMap.newKeySet();
+    private HeartbeatListener listener;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            applyingThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(monitorService).heartbeat(any());
+        listener = listener(1000, 1000);
+    }
+
+    @Test
+    void appliesEveryTextLineOnTheWorkerPool() {
+        String id = UUID.randomUUID().toString();
+        String other = UUID.randomUUID().toString();
+
+        listener.handleLines(text(id + " " + tokens.hexToken(id) + "\r\n\n" + other + " " + tokens.hexToken(other)),
+                SOURCE, HeartbeatListener.Transport.UDP, true);
+
+        verify(monitorService, timeout(5000)).heartbeat(id);
+        verify(monitorService, timeout(5000)).heartbeat(other);
+        await().untilAsserted(() -> assertThat(count("udp", "accepted")).isEqualTo(2));
+        assertThat(applyingThreads).allMatch(name -> name.startsWith("heartbeat-loader-"));
+    }
+
+    @Test
+    void leavesAPartialTcpLineInTheBuffer() {
+        String id = UUID.randomUUID().toString();
+        String line = id + " " + tokens.hexToken(id) + "\n";
+        ByteBuffer buffer = text(line + "partial");
+
+        listener.handleLines(buffer, SOURCE, HeartbeatListener.Transport.TCP, false);
+
+        verify(monitorService, timeout(5000)).heartbeat(id);
+        assertThat(buffer.position()).isEqualTo(line.length());
+    }
+
+    @Test
+    void acceptsBinaryFrames() {
+        UUID id = UUID.randomUUID();
+        ByteBuffer frame = ByteBuffer.allocate(1 + 16 + HeartbeatTokens.LENGTH);
+        frame.put((byte) 0x01).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits())
+                .put(tokens.token(id.toString()))
+                .flip();
+
+        listener.handleBinary(frame, SOURCE);
+
+        verify(monitorService, timeout(5000)).heartbeat(id.toString());
+    }
+
+    @Test
+    void rejectsMalformedFrames() {
+        listener.handleBinary(ByteBuffer.wrap(new byte[]{0x01, 0x02, 0x03}), SOURCE);
+        listener.handleLines(text("id not-hex"), SOURCE, HeartbeatListener.Transport.UDP, true);
+        listener.handleLines(text("x".repeat(200)), SOURCE, HeartbeatListener.Transport.UDP, true);
+
+        assertThat(count("udp", "malformed")).isEqualTo(3);
+        verify(monitorService, never()).heartbeat(any());
+    }
+
+    @Test
+    void rejectsMissingAndWrongTokens() {
+        String id = UUID.randomUUID().toString();
+
+        listener.handleLines(text(id + "\n" + id + " " + tokens.hexToken("other")), SOURCE,
+                HeartbeatListener.Transport.UDP, true);
+
+        assertThat(count("udp", "unauthorized")).isEqualTo(2);
+        verify(monitorService, never()).heartbeat(any());
+    }
+
+    @Test
+    void rateLimitsEachSource() {
+        listener = listener(0.001, 1);
+        String id = UUID.randomUUID().toString();
+        String line = id + " " + tokens.hexToken(id) + "\n";
+
+        listener.handleLines(text(line + line), SOURCE, HeartbeatListener.Transport.UDP, true);
+
+        assertThat(count("udp", "rate_limited")).isEqualTo(1);
+        verify(monitorService, timeout(5000)).heartbeat(id);
+    }
+
+    @Test
+    void countsUnknownMonitors() {
+        String id = UUID.randomUUID().toString();
+        when(monitorService.heartbeat(id)).thenThrow(new MonitorNotFoundException("Monitor not found: " + id));
+
+        listener.handleLines(text(id + " " + tokens.hexToken(id)), SOURCE, HeartbeatListener.Transport.TCP, true);
+
+        await().untilAsserted(() -> assertThat(count("tcp", "not_found")).isEqualTo(1));
+    }
+
+    private HeartbeatListener listener(double ratePerSecond, int burst) {
+        return new HeartbeatListener(monitorService, new PulseCheckMetrics(registry),
+                0, 0, SECRET, ratePerSecond, burst, 10, 1, false);
+    }
+
+    private static ByteBuffer text(String lines) {
+        return ByteBuffer.wrap(lines.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private double count(String transport, String outcome) {
+        return registry.get("pulsecheck.listener.heartbeats")
+                .tags("transport", transport, "outcome", outcome)
+                .counter()
+                .count();
+    }
+}
@@ -0,0 +1,40 @@
+package com.critmon.pulsecheck.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeartbeatTokensTest {
+
+    private final HeartbeatTokens tokens = new HeartbeatTokens("listener-secret");
+
+    @Test
+    void derivesTheTruncatedHmacOfTheMonitorId() {
+        // HMAC-SHA256("key", "The quick brown fox jumps over the lazy dog"), first 16 bytes
+        assertThat(new HeartbeatTokens("key").hexToken("The quick brown fox jumps over the lazy dog"))
+                .isEqualTo("f7bc83f430538424b13298e6aa6fb143");
+    }
+
+    @Test
+    void verifiesOnlyTheMonitorsOwnToken() {
+        byte[] token = tokens.token("monitor-a");
+
+        assertThat(token).hasSize(HeartbeatTokens.LENGTH);
+        assertThat(tokens.verify("monitor-a", token)).isTrue();
+        assertThat(tokens.verify("monitor-a", HexFormat.of().parseHex(tokens.hexToken("monitor-a")))).isTrue();
+        assertThat(tokens.verify("monitor-b", token)).isFalse();
+        assertThat(new HeartbeatTokens("other-secret").verify("monitor-a", token)).isFalse();
+    }
+
+    @Test
+    void rejectsMissingAndTruncatedTokens() {
+        byte[] token = tokens.token("monitor-a");
+
+        assertThat(tokens.verify("monitor-a", null)).isFalse();
+        assertThat(tokens.verify("monitor-a", new byte[0])).isFalse();
+        assertThat(tokens.verify("monitor-a", Arrays.copyOf(token, 8))).isFalse();
+    }
+}
@@ -0,0 +1,196 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.AlertOutbox;
+import com.critmon.pulsecheck.model.AlertType;
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import com.critmon.pulsecheck.repository.AlertOutboxJdbcRepository;
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MonitorAlertServiceTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final int BATCH_SIZE = 500;
+
+    private final MonitorJdbcRepository monitorJdbcRepository = mock(MonitorJdbcRepository.class);
+    private final MonitorStateStore stateStore = mock(MonitorStateStore.class);
+    private final AlertOutboxJdbcRepository outboxJdbcRepository = mock(AlertOutboxJdbcRepository.class);
+    private final AlertDispatcher alertDispatcher = mock(AlertDispatcher.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final ShardLeaseManager shardLeaseManager = mock(ShardLeaseManager.class);
+    private final Clock clock = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+    private MonitorAlertService alertService;
+
+    @BeforeEach
+    void setUp() {
+        when(shardLeaseManager.owns(any())).thenReturn(true);
+        when(shardLeaseManager.getShardCount()).thenReturn(64);
+        alertService = new MonitorAlertService(monitorJdbcRepository, stateStore, outboxJdbcRepository,
+                alertDispatcher, mock(DashboardCounters.class), mock(MonitorCache.class), eventPublisher,
+                shardLeaseManager, new PulseCheckMetrics(new SimpleMeterRegistry()),
+                new TransactionTemplate(new NoOpTransactionManager()), clock, true, BATCH_SIZE, 1, 1000);
+    }
+
+    @AfterEach
+    void shutdown() {
+        alertService.shutdown();
+    }
+
+    @Test
+    void timerExpiriesAreWrittenOnceTheirAlertsAreRecorded() {
+        Monitor monitor = expired("a");
+        when(stateStore.find("a")).thenReturn(Optional.of(monitor));
+        when(stateStore.holdAlerted("a", monitor.getExpiresAtMillis())).thenReturn(true);
+
+        alertService.handleExpiredMonitors(List.of("a"));
+
+        verify(outboxJdbcRepository).insertAllIfAbsent(argThat(alerts -> alerts.size() == 1
+                && alerts.get(0).getType() == AlertType.EXPIRED), eq(BATCH_SIZE));
+        verify(stateStore).confirmAlerted(List.of(monitor));
+        verify(stateStore, never()).releaseAlerted(anyCollection());
+        verify(alertDispatcher).enqueue(any());
+    }
+
+    @Test
+    void timerExpiriesComeBackUpWhenTheirAlertsCannotBeRecorded() {
+        Monitor monitor = expired("a");
+        when(stateStore.find("a")).thenReturn(Optional.of(monitor));
+        when(stateStore.holdAlerted("a", monitor.getExpiresAtMillis())).thenReturn(true);
+        doThrow(new IllegalStateException("database down")).when(outboxJdbcRepository).insertAllIfAbsent(anyList(), anyInt());
+
+        alertService.handleExpiredMonitors(List.of("a"));
+
+        verify(stateStore).releaseAlerted(List.of(monitor));
+        verify(stateStore, never()).confirmAlerted(anyCollection());
+        verify(alertDispatcher, never()).enqueue(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void sweepAppliesClaimsAfterTheirCommit() throws InterruptedException {
+        Monitor row = expired("a").toBuilder().isActive(false).build();
+        when(monitorJdbcRepository.claimExpiredBatch(anyLong(), eq(BATCH_SIZE), eq(64), isNull())).thenReturn(List.of(row));
+        when(stateStore.overlay(row)).thenReturn(row);
+        when(stateStore.markAlerted(row)).thenReturn(true);
+
+        alertService.checkExpiredMonitors();
+
+        verify(outboxJdbcRepository).insertAllIfAbsent(argThat(alerts -> alerts.size() == 1), eq(BATCH_SIZE));
+        verify(stateStore).markAlerted(row);
+        verify(alertDispatcher).enqueue(any());
+    }
+
+    @Test
+    void sweepLeavesMemoryAloneWhenTheClaimRollsBack() throws InterruptedException {
+        Monitor row = expired("a").toBuilder().isActive(false).build();
+        when(monitorJdbcRepository.claimExpiredBatch(anyLong(), eq(BATCH_SIZE), eq(64), isNull())).thenReturn(List.of(row));
+        when(stateStore.overlay(row)).thenReturn(row);
+        doThrow(new IllegalStateException("database down")).when(outboxJdbcRepository).insertAllIfAbsent(anyList(), anyInt());
+
+        alertService.checkExpiredMonitors();
+
+        verify(stateStore, never()).markAlerted(any(Monitor.class));
+        verify(alertDispatcher, never()).enqueue(any());
+    }
+
+    @Test
+    void sweepFollowsAnAlertOvertakenByAHeartbeatWithARecovery() throws InterruptedException {
+        Monitor row = expired("a").toBuilder().isActive(false).build();
+        when(monitorJdbcRepository.claimExpiredBatch(anyLong(), eq(BATCH_SIZE), eq(64), isNull())).thenReturn(List.of(row));
+        when(stateStore.overlay(row)).thenReturn(row);
+        when(stateStore.markAlerted(row)).thenReturn(false);
+        when(stateStore.find("a")).thenReturn(Optional.of(row.toBuilder().isActive(true).build()));
+
+        alertService.checkExpiredMonitors();
+
+        verify(alertDispatcher).enqueue(any());
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof MonitorTransitionEvent
+                && ((MonitorTransitionEvent) event).getTransition() == MonitorTransition.RECOVERED));
+    }
+
+    @Test
+    void recordsRecoveriesOffTheCallingThreadAndRetriesFailures() {
+        // The recorder reuses its batch list, so the attempts are copied as they happen
+        List<List<AlertType>> attempts = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<AlertOutbox> alerts = invocation.getArgument(0);
+            attempts.add(alerts.stream().map(AlertOutbox::getType).toList());
+            if (attempts.size() == 1) {
+                throw new IllegalStateException("database down");
+            }
+            return null;
+        }).when(outboxJdbcRepository).insertAllIfAbsent(anyList(), anyInt());
+        Monitor monitor = expired("a").toBuilder().lastHeartbeatMillis(NOW).expiresAtMillis(NOW + 60_000).build();
+
+        alertService.onTransition(new MonitorTransitionEvent(monitor, MonitorTransition.RECOVERED, NOW));
+
+        verify(alertDispatcher, timeout(5000)).enqueue(argThat((AlertOutbox alert) -> alert.getType() == AlertType.RECOVERED));
+        assertThat(attempts).containsExactly(List.of(AlertType.RECOVERED), List.of(AlertType.RECOVERED));
+    }
+
+    private static Monitor expired(String id) {
+        return Monitor.builder()
+                .id(id)
+                .deviceId("device-" + id)
+                .timeout(60)
+                .alertEmail("ops@example.com")
+                .lastHeartbeatMillis(NOW - 120_000)
+                .expiresAtMillis(NOW - 60_000)
+                .partitionKey(Monitor.partitionOf(id))
+                .version(3L)
+                .build();
+    }
+
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.exception.ChangeSequenceExpiredException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MonitorChangeLogTest {
+
+    private static final int CAPACITY = 4;
+
+    private final MonitorChangeLog changeLog = new MonitorChangeLog(CAPACITY, false);
+
+    @AfterEach
+    void shutdown() {
+        changeLog.shutdown();
+    }
+
+    @Test
+    void listsChangedMonitorsOnceInTheOrderTheyFirstChanged() {
+        long start = changeLog.currentSequence();
+        changeLog.append("a");
+        changeLog.append("b");
+        changeLog.append("a");
+
+        MonitorChangeLog.Changes changes = changeLog.read(start, 100);
+
+        assertThat(changes.getIds()).containsExactly("a", "b");
+        assertThat(changes.getSequence()).isEqualTo(3);
+        assertThat(changeLog.read(changes.getSequence(), 100).getIds()).isEmpty();
+    }
+
+    @Test
+    void leavesChangesBeyondTheLimitForTheNextRead() {
+        changeLog.append("a");
+        changeLog.append("b");
+        changeLog.append("c");
+
+        MonitorChangeLog.Changes first = changeLog.read(0, 2);
+        MonitorChangeLog.Changes rest = changeLog.read(first.getSequence(), 2);
+
+        assertThat(first.getIds()).containsExactly("a", "b");
+        assertThat(rest.getIds()).containsExactly("c");
+        assertThat(rest.getSequence()).isEqualTo(3);
+    }
+
+    @Test
+    void readsTheRetainedChangesAfterTheRingWrapsAround() {
+        for (int i = 1; i <= 10; i++) {
+            changeLog.append("m" + i);
+        }
+
+        MonitorChangeLog.Changes changes = changeLog.read(6, 100);
+
+        assertThat(changes.getIds()).containsExactly("m7", "m8", "m9", "m10");
+        assertThat(changes.getSequence()).isEqualTo(10);
+    }
+
+    @Test
+    void rejectsSequencesOlderThanTheRing() {
+        for (int i = 1; i <= 10; i++) {
+            changeLog.append("m" + i);
+        }
+
+        assertThatThrownBy(() -> changeLog.read(5, 100)).isInstanceOf(ChangeSequenceExpiredException.class);
+        assertThatThrownBy(() -> changeLog.read(0, 100)).isInstanceOf(ChangeSequenceExpiredException.class);
+    }
+
+    @Test
+    void resetExpiresEarlierSequences() {
+        changeLog.append("a");
+        long beforeReset = changeLog.currentSequence();
+        changeLog.reset();
+        long afterReset = changeLog.currentSequence();
+        changeLog.append("b");
+
+        assertThatThrownBy(() -> changeLog.read(beforeReset, 100)).isInstanceOf(ChangeSequenceExpiredException.class);
+        assertThat(changeLog.read(afterReset, 100).getIds()).containsExactly("b");
+    }
+
+    @Test
+    void parsesItsOwnTokens() {
+        long seq = changeLog.append("a");
+
+        assertThat(changeLog.parse(changeLog.token(seq))).isEqualTo(seq);
+        assertThat(changeLog.parse(changeLog.token(0))).isZero();
+    }
+
+    @Test
+    void rejectsTokensFromOtherInstances() {
+        MonitorChangeLog other = new MonitorChangeLog(CAPACITY, false);
+        try {
+            String foreign = other.token(0);
+            assertThatThrownBy(() -> changeLog.parse(foreign)).isInstanceOf(ChangeSequenceExpiredException.class);
+        } finally {
+            other.shutdown();
+        }
+        String ahead = changeLog.token(changeLog.currentSequence() + 1);
+        assertThatThrownBy(() -> changeLog.parse(ahead)).isInstanceOf(ChangeSequenceExpiredException.class);
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThatThrownBy(() -> changeLog.parse("no-sequence")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> changeLog.parse("12")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> changeLog.parse(changeLog.token(-1))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void wakesWaitersOnTheNextChange() throws Exception {
+        long current = changeLog.currentSequence();
+        CompletableFuture<Void> waiter = changeLog.awaitAfter(current);
+
+        assertThat(waiter).isNotDone();
+        changeLog.append("a");
+
+        waiter.get(5, TimeUnit.SECONDS);
+        assertThat(changeLog.awaitAfter(current)).isDone();
+    }
+
+    @Test
+    void keepsTheListTagWhileOnlyDeadlinesMove() {
+        changeLog.append("a");
+        String tag = changeLog.listTag();
+
+        changeLog.appendMoved("a");
+        changeLog.appendMoved("b");
+
+        assertThat(changeLog.listTag()).isEqualTo(tag);
+        assertThat(changeLog.read(1, 100).getIds()).containsExactly("a", "b");
+
+        changeLog.append("b");
+
+        assertThat(changeLog.listTag()).isNotEqualTo(tag);
+    }
+
+    @Test
+    void changesTheListTagBeforeATokenServedWithItExpires() {
+        changeLog.append("a");
+        String tag = changeLog.listTag();
+        long served = changeLog.currentSequence();
+
+        while (changeLog.listTag().equals(tag)) {
+            changeLog.read(served, 100);
+            changeLog.appendMoved("b");
+        }
+
+        assertThat(changeLog.currentSequence() - served).isLessThanOrEqualTo(CAPACITY);
+    }
+}
@@ -0,0 +1,99 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MonitorInvalidationBroadcasterTest {
+
+    private final MonitorInvalidationTransport transport = mock(MonitorInvalidationTransport.class);
+    private final MonitorStateStore stateStore = mock(MonitorStateStore.class);
+    private final MonitorCache monitorCache = mock(MonitorCache.class);
+    private final MonitorExpiryScheduler expiryScheduler = mock(MonitorExpiryScheduler.class);
+    private final ShardLeaseManager shardLeaseManager = mock(ShardLeaseManager.class);
+    private final MonitorChangeLog changeLog = new MonitorChangeLog(16, false);
+    private MonitorInvalidationBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        when(shardLeaseManager.getNodeId()).thenReturn("self");
+        when(shardLeaseManager.owns("owned")).thenReturn(true);
+        broadcaster = new MonitorInvalidationBroadcaster(
+                transport, stateStore, monitorCache, expiryScheduler, shardLeaseManager, changeLog);
+    }
+
+    @AfterEach
+    void shutdown() {
+        changeLog.shutdown();
+    }
+
+    @Test
+    void broadcastsEveryFlushedMonitorOncePerKind() {
+        broadcaster.onFlushed(new MonitorStatesFlushedEvent(List.of("paused"), List.of("a", "b")));
+
+        ArgumentCaptor<MonitorInvalidation> sent = ArgumentCaptor.forClass(MonitorInvalidation.class);
+        verify(transport, times(2)).publish(sent.capture());
+        assertThat(sent.getAllValues()).extracting(MonitorInvalidation::getKind)
+                .containsExactly(MonitorInvalidation.Kind.CHANGED, MonitorInvalidation.Kind.MOVED);
+        assertThat(sent.getAllValues().get(0).getIds()).containsExactly("paused");
+        assertThat(sent.getAllValues().get(1).getIds()).containsExactly("a", "b");
+    }
+
+    @Test
+    void skipsEmptyKinds() {
+        broadcaster.onFlushed(new MonitorStatesFlushedEvent(List.of(), List.of("a")));
+
+        ArgumentCaptor<MonitorInvalidation> sent = ArgumentCaptor.forClass(MonitorInvalidation.class);
+        verify(transport).publish(sent.capture());
+        assertThat(sent.getValue().getKind()).isEqualTo(MonitorInvalidation.Kind.MOVED);
+    }
+
+    @Test
+    void dropsCopiesOfMovedDeadlinesWithoutReadingThem() {
+        long sequence = changeLog.currentSequence();
+
+        broadcaster.onInvalidation(new MonitorInvalidation("other", MonitorInvalidation.Kind.MOVED, List.of("owned", "b")));
+
+        verify(monitorCache).evict("owned");
+        verify(monitorCache).evict("b");
+        verify(stateStore).invalidate("owned");
+        verify(stateStore).invalidate("b");
+        verify(stateStore, never()).refreshAll(anyCollection());
+        assertThat(changeLog.read(sequence, 10).getIds()).containsExactly("owned", "b");
+    }
+
+    @Test
+    void reReadsAndReArmsOwnedMonitorsWhoseStatusChanged() {
+        Monitor refreshed = Monitor.builder().id("owned").build();
+        when(stateStore.refreshAll(List.of("owned"))).thenReturn(List.of(refreshed));
+
+        broadcaster.onInvalidation(new MonitorInvalidation("other", MonitorInvalidation.Kind.CHANGED, List.of("owned", "b")));
+
+        verify(monitorCache).evict("owned");
+        verify(monitorCache).evict("b");
+        verify(stateStore).invalidate("b");
+        verify(stateStore, never()).invalidate("owned");
+        verify(expiryScheduler).arm(refreshed);
+    }
+
+    @Test
+    void ignoresItsOwnMessages() {
+        broadcaster.onInvalidation(new MonitorInvalidation("self", MonitorInvalidation.Kind.MOVED, List.of("a")));
+
+        verify(monitorCache, never()).evict(any());
+        verify(stateStore, never()).invalidate(any());
+    }
+}
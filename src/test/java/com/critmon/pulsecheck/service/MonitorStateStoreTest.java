@@ -0,0 +1,198 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorTransition;
+import com.critmon.pulsecheck.repository.MonitorJdbcRepository;
+import com.critmon.pulsecheck.repository.MonitorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MonitorStateStoreTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final MonitorRepository monitorRepository = mock(MonitorRepository.class);
+    private final MonitorJdbcRepository monitorJdbcRepository = mock(MonitorJdbcRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final MonitorChangeLog changeLog = new MonitorChangeLog(16, false);
+    private final Clock clock = mock(Clock.class);
+    private final MonitorStateStore store = store(60_000);
+
+    @AfterEach
+    void shutdown() {
+        changeLog.shutdown();
+    }
+
+    @Test
+    void collapsesRepeatedHeartbeatsIntoOneWrite() {
+        Monitor monitor = monitor(true);
+        store.registerIfAbsent(List.of(monitor));
+
+        when(clock.millis()).thenReturn(NOW + 1_000, NOW + 2_000, NOW + 3_000);
+        store.heartbeat(monitor.getId());
+        store.heartbeat(monitor.getId());
+        store.heartbeat(monitor.getId());
+        assertThat(store.pendingWrites()).isEqualTo(1);
+
+        store.flush();
+
+        List<Monitor> written = writtenBatch();
+        assertThat(written).singleElement().satisfies(snapshot -> {
+            assertThat(snapshot.getLastHeartbeatMillis()).isEqualTo(NOW + 3_000);
+            assertThat(snapshot.getExpiresAtMillis()).isEqualTo(NOW + 63_000);
+        });
+        assertThat(store.pendingWrites()).isZero();
+        MonitorStatesFlushedEvent event = flushedEvent();
+        assertThat(event.getIds()).isEmpty();
+        assertThat(event.getMoved()).containsExactly(monitor.getId());
+    }
+
+    @Test
+    void announcesStatusChangesApartFromMovedDeadlines() {
+        Monitor down = monitor(false);
+        Monitor up = monitor(true);
+        store.registerIfAbsent(List.of(down, up));
+        when(clock.millis()).thenReturn(NOW + 1_000);
+
+        assertThat(store.heartbeat(down.getId()).getTransition()).isEqualTo(MonitorTransition.RECOVERED);
+        assertThat(store.heartbeat(up.getId()).getTransition()).isNull();
+        store.flush();
+
+        MonitorStatesFlushedEvent event = flushedEvent();
+        assertThat(event.getIds()).containsExactly(down.getId());
+        assertThat(event.getMoved()).containsExactly(up.getId());
+    }
+
+    @Test
+    void keepsFailedWritesPendingAndRetriesThem() {
+        Monitor monitor = monitor(true);
+        store.registerIfAbsent(List.of(monitor));
+        when(clock.millis()).thenReturn(NOW + 1_000);
+        store.pause(monitor.getId());
+        doThrow(new IllegalStateException("database down"))
+                .doNothing()
+                .when(monitorJdbcRepository).updateTimerStates(anyList(), anyInt());
+
+        assertThatThrownBy(store::flush).hasMessage("database down");
+        assertThat(store.pendingWrites()).isEqualTo(1);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+
+        store.flush();
+
+        verify(monitorJdbcRepository, times(2)).updateTimerStates(anyList(), anyInt());
+        assertThat(store.pendingWrites()).isZero();
+        // The pause is still announced as a status change by the write that succeeded
+        assertThat(flushedEvent().getIds()).containsExactly(monitor.getId());
+    }
+
+    @Test
+    void keepsMonitorsWhoseWriteIsInFlight() {
+        Monitor monitor = monitor(true);
+        store.registerIfAbsent(List.of(monitor));
+        when(clock.millis()).thenReturn(NOW + 1_000, NOW + 2_000);
+        store.heartbeat(monitor.getId());
+        doAnswer(invocation -> {
+            // Another node's change arrives, then a heartbeat, while the first write is running
+            store.invalidate(monitor.getId());
+            store.heartbeat(monitor.getId());
+            return null;
+        }).doNothing().when(monitorJdbcRepository).updateTimerStates(anyList(), anyInt());
+
+        store.flush();
+
+        assertThat(store.contains(monitor.getId())).isTrue();
+        assertThat(store.pendingWrites()).isEqualTo(1);
+        store.flush();
+        List<Monitor> written = writtenBatch();
+        assertThat(written).singleElement()
+                .extracting(Monitor::getLastHeartbeatMillis).isEqualTo(NOW + 2_000);
+        verify(monitorRepository, never()).findById(any());
+    }
+
+    @Test
+    void dropsCleanMonitorsOnInvalidation() {
+        Monitor monitor = monitor(true);
+        store.registerIfAbsent(List.of(monitor));
+
+        store.invalidate(monitor.getId());
+
+        assertThat(store.contains(monitor.getId())).isFalse();
+    }
+
+    @Test
+    void flushesWithinTheLagAndDrainsOnShutdown() throws InterruptedException {
+        MonitorStateStore scheduled = store(20);
+        Monitor first = monitor(true);
+        Monitor second = monitor(true);
+        scheduled.registerIfAbsent(List.of(first, second));
+        when(clock.millis()).thenReturn(NOW + 1_000);
+        scheduled.init();
+
+        scheduled.heartbeat(first.getId());
+        verify(monitorJdbcRepository, timeout(5000)).updateTimerStates(anyList(), anyInt());
+
+        scheduled.heartbeat(second.getId());
+        scheduled.shutdown();
+
+        assertThat(scheduled.pendingWrites()).isZero();
+        assertThat(writtenBatch()).extracting(Monitor::getId).containsExactly(second.getId());
+    }
+
+    private MonitorStateStore store(long maxFlushLagMillis) {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        return new MonitorStateStore(monitorRepository, monitorJdbcRepository, mock(DashboardCounters.class),
+                changeLog, eventPublisher, new PulseCheckMetrics(new SimpleMeterRegistry()), clock,
+                maxFlushLagMillis, 500);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Monitor> writtenBatch() {
+        ArgumentCaptor<List<Monitor>> batch = ArgumentCaptor.forClass(List.class);
+        verify(monitorJdbcRepository, atLeastOnce()).updateTimerStates(batch.capture(), anyInt());
+        return batch.getValue();
+    }
+
+    private MonitorStatesFlushedEvent flushedEvent() {
+        ArgumentCaptor<MonitorStatesFlushedEvent> event = ArgumentCaptor.forClass(MonitorStatesFlushedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        return event.getValue();
+    }
+
+    private static Monitor monitor(boolean active) {
+        String id = UUID.randomUUID().toString();
+        return Monitor.builder()
+                .id(id)
+                .deviceId("device-" + id)
+                .timeout(60)
+                .alertEmail("ops@example.com")
+                .lastHeartbeatMillis(NOW - 30_000)
+                .expiresAtMillis(NOW + 30_000)
+                .isActive(active)
+                .partitionKey(Monitor.partitionOf(id))
+                .version(1L)
+                .build();
+    }
+}
@@ -0,0 +1,269 @@
+package com.critmon.pulsecheck.service;
+
+import com.critmon.pulsecheck.model.Monitor;
+import com.critmon.pulsecheck.model.MonitorStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonitorStateTableTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final MonitorStateTable table = new MonitorStateTable(ZoneOffset.UTC);
+
+    @Test
+    void addsAndSnapshotsMonitors() {
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor-1");
+        int slot = table.add(monitor);
+
+        assertThat(slot).isNotNegative();
+        assertThat(table.slotOf(monitor.getId())).isEqualTo(slot);
+        assertThat(table.add(monitor)).isEqualTo(~slot);
+        synchronized (table.lockFor(slot)) {
+            assertThat(table.holds(slot, monitor.getId())).isTrue();
+            Monitor snapshot = table.snapshot(slot, monitor.getId());
+            assertThat(snapshot.getDeviceId()).isEqualTo("sensor-1");
+            assertThat(snapshot.getTimeout()).isEqualTo(60);
+            assertThat(snapshot.getExpiresAtMillis()).isEqualTo(NOW + 60_000);
+            assertThat(snapshot.getStatus()).isEqualTo(MonitorStatus.UP);
+        }
+    }
+
+    @Test
+    void keepsCreationTimesInTheClockZone() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 3, 29, 1, 30);
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor").toBuilder().createdAt(createdAt).build();
+        MonitorStateTable paris = new MonitorStateTable(ZoneId.of("Europe/Paris"));
+        int slot = paris.add(monitor);
+
+        synchronized (paris.lockFor(slot)) {
+            assertThat(paris.snapshot(slot, monitor.getId()).getCreatedAt()).isEqualTo(createdAt);
+        }
+    }
+
+    @Test
+    void keepsIrregularIdsAndLongDeviceIds() {
+        String deviceId = "a-device-id-longer-than-sixteen-characters";
+        Monitor monitor = monitor("not-a-uuid", deviceId);
+        int slot = table.add(monitor);
+
+        assertThat(table.slotOf("not-a-uuid")).isEqualTo(slot);
+        synchronized (table.lockFor(slot)) {
+            assertThat(table.snapshot(slot, "not-a-uuid").getDeviceId()).isEqualTo(deviceId);
+        }
+    }
+
+    @Test
+    void reusesRemovedSlotsForOtherMonitors() {
+        Monitor first = monitor(UUID.randomUUID().toString(), "first");
+        int slot = table.add(first);
+
+        assertThat(table.remove(first.getId())).isTrue();
+        assertThat(table.slotOf(first.getId())).isEqualTo(-1);
+        assertThat(table.size()).isZero();
+
+        Monitor second = monitor(UUID.randomUUID().toString(), "second");
+        assertThat(table.add(second)).isEqualTo(slot);
+        synchronized (table.lockFor(slot)) {
+            // A caller that looked the slot up for the old monitor must not touch it any more
+            assertThat(table.holds(slot, first.getId())).isFalse();
+            assertThat(table.holds(slot, second.getId())).isTrue();
+            assertThat(table.snapshot(slot, second.getId()).getDeviceId()).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void drainedMonitorsStayDirtyUntilTheirWriteIsConfirmed() {
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor");
+        int slot = table.add(monitor);
+        heartbeat(slot, monitor.getId(), NOW + 1000);
+
+        List<Monitor> drained = table.drainDirty(new HashSet<>());
+
+        assertThat(drained).extracting(Monitor::getId).containsExactly(monitor.getId());
+        assertThat(drained.get(0).getLastHeartbeatMillis()).isEqualTo(NOW + 1000);
+        assertThat(table.dirtyCount()).isZero();
+        assertThat(table.drainDirty(new HashSet<>())).isEmpty();
+        assertThat(table.removeIfClean(monitor.getId())).isFalse();
+        assertThat(table.removeAllClean()).isZero();
+
+        table.flushed(drained);
+
+        assertThat(table.removeIfClean(monitor.getId())).isTrue();
+    }
+
+    @Test
+    void failedWritesAreDrainedAgain() {
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor");
+        int slot = table.add(monitor);
+        heartbeat(slot, monitor.getId(), NOW + 1000);
+
+        failFlush();
+
+        assertThat(table.dirtyCount()).isEqualTo(1);
+        assertThat(table.removeIfClean(monitor.getId())).isFalse();
+        assertThat(table.drainDirty(new HashSet<>())).extracting(Monitor::getId).containsExactly(monitor.getId());
+    }
+
+    @Test
+    void changesDuringAWriteAreKeptForTheNextDrain() {
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor");
+        int slot = table.add(monitor);
+        heartbeat(slot, monitor.getId(), NOW + 1000);
+        List<Monitor> drained = table.drainDirty(new HashSet<>());
+
+        heartbeat(slot, monitor.getId(), NOW + 2000);
+        table.flushed(drained);
+
+        assertThat(table.removeIfClean(monitor.getId())).isFalse();
+        assertThat(table.drainDirty(new HashSet<>())).singleElement()
+                .extracting(Monitor::getLastHeartbeatMillis).isEqualTo(NOW + 2000);
+    }
+
+    @Test
+    void reportsStatusTransitionsOnceTheyAreWritten() {
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor");
+        Monitor other = monitor(UUID.randomUUID().toString(), "other");
+        int slot = table.add(monitor);
+        heartbeat(table.add(other), other.getId(), NOW + 1000);
+        synchronized (table.lockFor(slot)) {
+            table.pause(slot);
+            table.markDirty(slot);
+            table.markTransitioned(slot);
+        }
+
+        Set<String> transitioned = new HashSet<>();
+        List<Monitor> drained = table.drainDirty(transitioned);
+        assertThat(drained).hasSize(2);
+        assertThat(transitioned).containsExactly(monitor.getId());
+
+        // A failed write is retried, and still announced once it succeeds
+        table.flushFailed(drained, transitioned);
+        Set<String> retried = new HashSet<>();
+        table.flushed(table.drainDirty(retried));
+        assertThat(retried).containsExactly(monitor.getId());
+
+        heartbeat(slot, monitor.getId(), NOW + 2000);
+        Set<String> heartbeatOnly = new HashSet<>();
+        assertThat(table.drainDirty(heartbeatOnly)).hasSize(1);
+        assertThat(heartbeatOnly).isEmpty();
+    }
+
+    @Test
+    void explicitRemoveDropsDrainedMonitors() {
+        Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor");
+        int slot = table.add(monitor);
+        heartbeat(slot, monitor.getId(), NOW + 1000);
+        List<Monitor> drained = table.drainDirty(new HashSet<>());
+
+        assertThat(table.remove(monitor.getId())).isTrue();
+        table.flushFailed(drained, Set.of());
+
+        assertThat(table.size()).isZero();
+        assertThat(table.dirtyCount()).isZero();
+    }
+
+    @Test
+    void noHeartbeatIsLostToConcurrentInvalidation() throws InterruptedException {
+        int monitors = 2000;
+        List<Monitor> added = new ArrayList<>();
+        for (int i = 0; i < monitors; i++) {
+            Monitor monitor = monitor(UUID.randomUUID().toString(), "sensor-" + i);
+            // Dirty from the start, as a monitor created on this node is until its first flush
+            heartbeat(table.add(monitor), monitor.getId(), NOW);
+            added.add(monitor);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch heartbeatsDone = new CountDownLatch(2);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            int offset = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int round = 1; round <= 20; round++) {
+                        for (int i = offset; i < monitors; i += 2) {
+                            String id = added.get(i).getId();
+                            int slot = table.slotOf(id);
+                            assertThat(slot).as("slot of %s", id).isNotNegative();
+                            heartbeat(slot, id, NOW + round);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    heartbeatsDone.countDown();
+                }
+            }));
+        }
+        // Drops whatever looks clean, as a remote invalidation or the eviction sweep would
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                for (Monitor monitor : added) {
+                    table.removeIfClean(monitor.getId());
+                }
+            }
+        }));
+        // Drains and never gets a write through, so every drained monitor must come back
+        threads.add(new Thread(() -> {
+            while (running.get()) {
+                failFlush();
+            }
+        }));
+        threads.forEach(Thread::start);
+
+        boolean finished = heartbeatsDone.await(60, TimeUnit.SECONDS);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(finished).isTrue();
+        assertThat(failure.get()).isNull();
+        assertThat(table.size()).isEqualTo(monitors);
+        assertThat(table.dirtyCount()).isEqualTo(monitors);
+        assertThat(table.drainDirty(new HashSet<>()))
+                .hasSize(monitors)
+                .allSatisfy(monitor -> assertThat(monitor.getLastHeartbeatMillis()).isEqualTo(NOW + 20));
+    }
+
+    private void failFlush() {
+        Set<String> transitioned = new HashSet<>();
+        table.flushFailed(table.drainDirty(transitioned), transitioned);
+    }
+
+    private void heartbeat(int slot, String id, long nowMillis) {
+        synchronized (table.lockFor(slot)) {
+            assertThat(table.holds(slot, id)).isTrue();
+            table.resetTimer(slot, nowMillis);
+            table.markDirty(slot);
+        }
+    }
+
+    private static Monitor monitor(String id, String deviceId) {
+        return Monitor.builder()
+                .id(id)
+                .deviceId(deviceId)
+                .timeout(60)
+                .alertEmail("ops@example.com")
+                .lastHeartbeatMillis(NOW)
+                .expiresAtMillis(NOW + 60_000)
+                .version(0L)
+                .build();
+    }
+}
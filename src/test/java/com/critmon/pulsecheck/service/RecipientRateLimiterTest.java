@@ -0,0 +1,63 @@
+package com.critmon.pulsecheck.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecipientRateLimiterTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final Clock clock = mock(Clock.class);
+    private RecipientRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(NOW);
+        limiter = new RecipientRateLimiter(2, clock);
+    }
+
+    @Test
+    void allowsABurstUpToTheCapacity() {
+        assertThat(limiter.tryAcquire("ops@example.com")).isZero();
+        assertThat(limiter.tryAcquire("ops@example.com")).isZero();
+        assertThat(limiter.tryAcquire("ops@example.com")).isCloseTo(30_000L, within(1L));
+    }
+
+    @Test
+    void refillsFromTheClock() {
+        limiter.tryAcquire("ops@example.com");
+        limiter.tryAcquire("ops@example.com");
+
+        when(clock.millis()).thenReturn(NOW + 15_000);
+        assertThat(limiter.tryAcquire("ops@example.com")).isCloseTo(15_000L, within(1L));
+
+        when(clock.millis()).thenReturn(NOW + 31_000);
+        assertThat(limiter.tryAcquire("ops@example.com")).isZero();
+        assertThat(limiter.tryAcquire("ops@example.com")).isCloseTo(29_000L, within(1L));
+    }
+
+    @Test
+    void sharesOneBucketAcrossTheRecipientsCase() {
+        limiter.tryAcquire("Ops@Example.com");
+        limiter.tryAcquire("OPS@EXAMPLE.COM");
+
+        assertThat(limiter.tryAcquire("ops@example.com")).isPositive();
+        assertThat(limiter.tryAcquire("other@example.com")).isZero();
+    }
+
+    @Test
+    void ignoresAClockThatStepsBack() {
+        limiter.tryAcquire("ops@example.com");
+        limiter.tryAcquire("ops@example.com");
+
+        when(clock.millis()).thenReturn(NOW - 60_000);
+        assertThat(limiter.tryAcquire("ops@example.com")).isCloseTo(30_000L, within(1L));
+    }
+}
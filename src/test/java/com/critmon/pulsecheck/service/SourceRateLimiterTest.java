@@ -0,0 +1,57 @@
+package com.critmon.pulsecheck.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SourceRateLimiterTest {
+
+    private final InetAddress source = address(10, 0, 0, 1);
+    private final InetAddress other = address(10, 0, 0, 2);
+
+    @Test
+    void allowsABurstPerSource() {
+        SourceRateLimiter limiter = new SourceRateLimiter(0.001, 2);
+
+        assertThat(limiter.tryAcquire(source)).isTrue();
+        assertThat(limiter.tryAcquire(source)).isTrue();
+        assertThat(limiter.tryAcquire(source)).isFalse();
+        assertThat(limiter.tryAcquire(other)).isTrue();
+    }
+
+    @Test
+    void prunesOnlySourcesThatRefilledCompletely() throws InterruptedException {
+        SourceRateLimiter slow = new SourceRateLimiter(0.001, 2);
+        SourceRateLimiter fast = new SourceRateLimiter(1_000_000, 2);
+        slow.tryAcquire(source);
+        fast.tryAcquire(source);
+
+        Thread.sleep(5);
+        slow.prune();
+        fast.prune();
+
+        assertThat(slow.size()).isEqualTo(1);
+        assertThat(fast.size()).isZero();
+    }
+
+    @Test
+    void rejectsANonPositiveRate() {
+        assertThatThrownBy(() -> new SourceRateLimiter(0, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static InetAddress address(int... bytes) {
+        byte[] address = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            address[i] = (byte) bytes[i];
+        }
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}